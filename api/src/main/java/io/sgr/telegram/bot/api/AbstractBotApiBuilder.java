@@ -0,0 +1,388 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.api;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Strings.isNullOrEmpty;
+
+import io.sgr.telegram.bot.api.http.CallPriority;
+import io.sgr.telegram.bot.api.http.DefaultCallAdapterFactory;
+import io.sgr.telegram.bot.api.http.LongPollingTimeoutInterceptor;
+import io.sgr.telegram.bot.api.http.OutboundRequestQueue;
+import io.sgr.telegram.bot.api.http.RateLimiter;
+import io.sgr.telegram.bot.api.http.Schedulers;
+import io.sgr.telegram.bot.api.http.StreamingJacksonConverterFactory;
+import io.sgr.telegram.bot.api.utils.JsonUtil;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import retrofit2.Retrofit;
+import retrofit2.converter.jackson.JacksonConverterFactory;
+import retrofit2.converter.scalars.ScalarsConverterFactory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Options shared by builders of bot API clients.
+ *
+ * @param <B> The type of the builder.
+ *
+ * @author SgrAlpha
+ */
+public abstract class AbstractBotApiBuilder<B extends AbstractBotApiBuilder<B>> {
+
+    private static final String BASE_URL_FORMAT = "https://api.telegram.org/bot%s/";
+
+    public static final int DEFAULT_MAX_REQUESTS = 64;
+    public static final long DEFAULT_CONNECT_TIMEOUT_IN_SEC = 30;
+    public static final long DEFAULT_READ_TIMEOUT_IN_SEC = 30;
+    public static final long DEFAULT_WRITE_TIMEOUT_IN_SEC = 30;
+    public static final long DEFAULT_LONG_POLLING_READ_TIMEOUT_IN_SEC = TimeUnit.MINUTES.toSeconds(5);
+
+    private boolean retry = false;
+    private boolean optimizedJson = false;
+    private boolean streamingRequestBodies = false;
+    private Logger logger;
+    private Supplier<RateLimiter> rateLimiterSupplier = () -> null;
+    private Supplier<OutboundRequestQueue> outboundQueueSupplier = () -> null;
+    private final Map<String, CallPriority> callPriorities = new HashMap<>();
+    private OkHttpClient httpClient;
+    private Integer maxRequests;
+    private Integer maxRequestsPerHost;
+    private ConnectionPool connectionPool;
+    private List<Protocol> protocols;
+    private long connectTimeoutInMillis = TimeUnit.SECONDS.toMillis(DEFAULT_CONNECT_TIMEOUT_IN_SEC);
+    private long readTimeoutInMillis = TimeUnit.SECONDS.toMillis(DEFAULT_READ_TIMEOUT_IN_SEC);
+    private long writeTimeoutInMillis = TimeUnit.SECONDS.toMillis(DEFAULT_WRITE_TIMEOUT_IN_SEC);
+    private long longPollingReadTimeoutInMillis = TimeUnit.SECONDS.toMillis(DEFAULT_LONG_POLLING_READ_TIMEOUT_IN_SEC);
+
+    /**
+     * Enable retry
+     *
+     * @return the builder
+     */
+    public B enableRetry() {
+        this.retry = true;
+        return self();
+    }
+
+    /**
+     * Enable client side rate limiting with Telegram's default limits, so messages wait for their turn instead of
+     * being rejected by Telegram.
+     *
+     * @return the builder
+     */
+    public B enableRateLimit() {
+        this.rateLimiterSupplier = RateLimiter::newInstance;
+        return self();
+    }
+
+    /**
+     * @param rateLimiter Optional. The rate limiter applies to calls which send or edit messages, set to NULL to
+     *                    disable client side rate limiting.
+     *
+     * @return the builder
+     */
+    public B setRateLimiter(final RateLimiter rateLimiter) {
+        this.rateLimiterSupplier = () -> rateLimiter;
+        return self();
+    }
+
+    /**
+     * Bound the number of outbound calls, so a burst of calls cannot pile up an unbounded number of pending HTTP
+     * calls. Long polling calls are not counted. {@link CallPriority#HIGH} calls have
+     * {@code maxInFlight} slots of their own, so up to {@code 2 * maxInFlight} calls can be sent at the same time, and
+     * up to {@code maxQueued} calls of each priority can wait for their turn.
+     *
+     * @param maxInFlight    The maximum number of calls being sent at the same time, of high priority and of the others
+     *                       respectively.
+     * @param maxQueued      The maximum number of calls of each priority waiting for their turn.
+     * @param overflowPolicy What to do with a new call when the queue is full.
+     *
+     * @return the builder
+     */
+    public B setOutboundQueue(final int maxInFlight, final int maxQueued, final OutboundRequestQueue.OverflowPolicy overflowPolicy) {
+        checkArgument(maxInFlight > 0, "Max in-flight calls should be greater than 0, but got " + maxInFlight);
+        checkArgument(maxQueued >= 0, "Max queued calls should not be negative, but got " + maxQueued);
+        checkNotNull(overflowPolicy, "Overflow policy should be specified.");
+        this.outboundQueueSupplier = () -> {
+            final OutboundRequestQueue queue = new OutboundRequestQueue(maxInFlight, maxQueued, overflowPolicy);
+            callPriorities.forEach(queue::setPriority);
+            return queue;
+        };
+        return self();
+    }
+
+    /**
+     * Same as {@link #setOutboundQueue(int, int, OutboundRequestQueue.OverflowPolicy)}, but with a queue kept by the
+     * caller, so producers can check its remaining capacity, or change priorities of API methods later. Clients built
+     * by this builder share the queue.
+     *
+     * @param queue Optional. The queue bounds and prioritizes outbound calls, set to NULL to disable it.
+     *
+     * @return the builder
+     */
+    public B setOutboundQueue(final OutboundRequestQueue queue) {
+        this.outboundQueueSupplier = () -> {
+            if (queue != null) {
+                callPriorities.forEach(queue::setPriority);
+            }
+            return queue;
+        };
+        return self();
+    }
+
+    /**
+     * Override the priority of calls of an API method, which takes effect with an outbound queue.
+     *
+     * @param method   The API method, e.g. sendMessage.
+     * @param priority The priority of calls of the method.
+     *
+     * @return the builder
+     */
+    public B setCallPriority(final String method, final CallPriority priority) {
+        checkArgument(!isNullOrEmpty(method), "API method should be provided.");
+        this.callPriorities.put(method, checkNotNull(priority, "Priority should be specified."));
+        return self();
+    }
+
+    /**
+     * Bind JSON with generated bytecode instead of reflection, and resolve (de)serializers of all API types when the
+     * client is built instead of on first use.
+     *
+     * @return the builder
+     */
+    public B enableOptimizedJson() {
+        this.optimizedJson = true;
+        return self();
+    }
+
+    /**
+     * Write request bodies straight into the connection instead of into a byte array first, which saves an
+     * allocation per call for senders of lots of messages. Bodies are sent with chunked transfer encoding then.
+     *
+     * @return the builder
+     */
+    public B enableStreamingRequestBodies() {
+        this.streamingRequestBodies = true;
+        return self();
+    }
+
+    /**
+     * @param logger the logger
+     *
+     * @return the builder
+     */
+    public B setLogger(final Logger logger) {
+        this.logger = logger;
+        return self();
+    }
+
+    /**
+     * Use an existing HTTP client as the base, so its dispatcher, connection pool and interceptors can be shared
+     * with other clients. Options set on this builder are applied to a derived copy, the given client is not
+     * modified.
+     *
+     * @param httpClient Optional. The HTTP client to derive from, set to NULL to create a new one.
+     *
+     * @return the builder
+     */
+    public B setHttpClient(final OkHttpClient httpClient) {
+        this.httpClient = httpClient;
+        return self();
+    }
+
+    /**
+     * Set the maximum number of concurrent requests. All calls go to the same host, so unless specified otherwise
+     * the per host limit is the same as this one, instead of OkHttp's default of 5.
+     *
+     * @param maxRequests The maximum number of concurrent requests, default to {@value #DEFAULT_MAX_REQUESTS}.
+     *
+     * @return the builder
+     */
+    public B setMaxRequests(final int maxRequests) {
+        checkArgument(maxRequests > 0, "Max requests should be positive, but got " + maxRequests);
+        this.maxRequests = maxRequests;
+        return self();
+    }
+
+    /**
+     * @param maxRequestsPerHost The maximum number of concurrent requests to the Telegram API host.
+     *
+     * @return the builder
+     */
+    public B setMaxRequestsPerHost(final int maxRequestsPerHost) {
+        checkArgument(maxRequestsPerHost > 0, "Max requests per host should be positive, but got " + maxRequestsPerHost);
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        return self();
+    }
+
+    /**
+     * @param maxIdleConnections The maximum number of idle connections to keep.
+     * @param keepAliveDuration  How long an idle connection is kept alive.
+     * @param unit               The time unit of keep alive duration.
+     *
+     * @return the builder
+     */
+    public B setConnectionPool(final int maxIdleConnections, final long keepAliveDuration, final TimeUnit unit) {
+        checkArgument(maxIdleConnections >= 0, "Max idle connections should not be negative, but got " + maxIdleConnections);
+        checkArgument(keepAliveDuration > 0, "Keep alive duration should be positive, but got " + keepAliveDuration);
+        checkNotNull(unit, "Time unit should be specified");
+        this.connectionPool = new ConnectionPool(maxIdleConnections, keepAliveDuration, unit);
+        return self();
+    }
+
+    /**
+     * Set the protocols to negotiate, e.g. {@link Protocol#HTTP_2} and {@link Protocol#HTTP_1_1} to multiplex
+     * concurrent calls over a single connection when the server supports it.
+     *
+     * @param protocols The protocols to use, must contain {@link Protocol#HTTP_1_1}.
+     *
+     * @return the builder
+     */
+    public B setProtocols(final Protocol... protocols) {
+        checkArgument(protocols != null && protocols.length > 0, "Protocols should be specified");
+        this.protocols = Arrays.asList(protocols);
+        return self();
+    }
+
+    /**
+     * @param connectTimeout The connect timeout of all calls, default to {@value #DEFAULT_CONNECT_TIMEOUT_IN_SEC} seconds.
+     * @param unit           The time unit of the timeout.
+     *
+     * @return the builder
+     */
+    public B setConnectTimeout(final long connectTimeout, final TimeUnit unit) {
+        this.connectTimeoutInMillis = toPositiveMillis(connectTimeout, unit);
+        return self();
+    }
+
+    /**
+     * @param readTimeout The read timeout of calls other than getUpdates, default to {@value #DEFAULT_READ_TIMEOUT_IN_SEC} seconds.
+     * @param unit        The time unit of the timeout.
+     *
+     * @return the builder
+     */
+    public B setReadTimeout(final long readTimeout, final TimeUnit unit) {
+        this.readTimeoutInMillis = toPositiveMillis(readTimeout, unit);
+        return self();
+    }
+
+    /**
+     * @param writeTimeout The write timeout of all calls, default to {@value #DEFAULT_WRITE_TIMEOUT_IN_SEC} seconds.
+     * @param unit         The time unit of the timeout.
+     *
+     * @return the builder
+     */
+    public B setWriteTimeout(final long writeTimeout, final TimeUnit unit) {
+        this.writeTimeoutInMillis = toPositiveMillis(writeTimeout, unit);
+        return self();
+    }
+
+    /**
+     * @param readTimeout The read timeout of getUpdates calls, should be longer than the long polling timeout,
+     *                    default to {@value #DEFAULT_LONG_POLLING_READ_TIMEOUT_IN_SEC} seconds.
+     * @param unit        The time unit of the timeout.
+     *
+     * @return the builder
+     */
+    public B setLongPollingReadTimeout(final long readTimeout, final TimeUnit unit) {
+        this.longPollingReadTimeoutInMillis = toPositiveMillis(readTimeout, unit);
+        return self();
+    }
+
+    protected abstract B self();
+
+    /**
+     * @return A new call adapter factory, each one has its own rate limiter if rate limiting is enabled.
+     */
+    DefaultCallAdapterFactory newCallAdapterFactory() {
+        return new DefaultCallAdapterFactory(retry, Optional.ofNullable(logger).orElse(LoggerFactory.getLogger(BotApi.class)),
+                rateLimiterSupplier.get(), outboundQueueSupplier.get(), Schedulers.getDefault());
+    }
+
+    Retrofit.Builder newRetrofitBuilder(final OkHttpClient client, final String botApiToken) {
+        final ObjectMapper mapper;
+        if (optimizedJson) {
+            BotApiJsonWarmer.warmUp();
+            mapper = JsonUtil.getOptimizedObjectMapper();
+        } else {
+            mapper = JsonUtil.getObjectMapper();
+        }
+        final Retrofit.Builder builder = new Retrofit.Builder()
+                .baseUrl(toBaseUrl(botApiToken))
+                .addConverterFactory(ScalarsConverterFactory.create());
+        if (streamingRequestBodies) {
+            builder.addConverterFactory(new StreamingJacksonConverterFactory(mapper));
+        }
+        return builder
+                .addConverterFactory(JacksonConverterFactory.create(mapper))
+                .client(client);
+    }
+
+    static String toBaseUrl(final String botApiToken) {
+        return String.format(Locale.ENGLISH, BASE_URL_FORMAT, botApiToken);
+    }
+
+    /**
+     * @return The HTTP client given by the caller to derive from, NULL if none.
+     */
+    OkHttpClient getBaseHttpClient() {
+        return httpClient;
+    }
+
+    OkHttpClient buildHttpClient() {
+        final OkHttpClient.Builder clientBuilder = Optional.ofNullable(httpClient)
+                .map(OkHttpClient::newBuilder)
+                .orElseGet(() -> new OkHttpClient.Builder().retryOnConnectionFailure(true))
+                .connectTimeout(connectTimeoutInMillis, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutInMillis, TimeUnit.MILLISECONDS)
+                .writeTimeout(writeTimeoutInMillis, TimeUnit.MILLISECONDS)
+                .addInterceptor(new LongPollingTimeoutInterceptor(longPollingReadTimeoutInMillis, TimeUnit.MILLISECONDS));
+        if (httpClient == null || maxRequests != null || maxRequestsPerHost != null) {
+            final int max = Optional.ofNullable(maxRequests).orElse(DEFAULT_MAX_REQUESTS);
+            final Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequests(max);
+            dispatcher.setMaxRequestsPerHost(Optional.ofNullable(maxRequestsPerHost).orElse(max));
+            clientBuilder.dispatcher(dispatcher);
+        }
+        Optional.ofNullable(connectionPool).ifPresent(clientBuilder::connectionPool);
+        Optional.ofNullable(protocols).ifPresent(clientBuilder::protocols);
+        return clientBuilder.build();
+    }
+
+    private static long toPositiveMillis(final long timeout, final TimeUnit unit) {
+        checkArgument(timeout > 0, "Timeout should be positive, but got " + timeout);
+        checkNotNull(unit, "Time unit should be specified");
+        return unit.toMillis(timeout);
+    }
+
+}
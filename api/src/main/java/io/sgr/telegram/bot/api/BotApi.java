@@ -19,7 +19,9 @@ package io.sgr.telegram.bot.api;
 
 import static io.sgr.telegram.bot.api.utils.TelegramUtils.verifyToken;
 
-import io.sgr.telegram.bot.api.http.DefaultCallAdapterFactory;
+import io.sgr.telegram.bot.api.http.CallPriority;
+import io.sgr.telegram.bot.api.http.Prioritized;
+import io.sgr.telegram.bot.api.http.RateLimitRetries;
 import io.sgr.telegram.bot.api.models.Chat;
 import io.sgr.telegram.bot.api.models.ChatMember;
 import io.sgr.telegram.bot.api.models.ChatPermissions;
@@ -43,24 +45,18 @@ import io.sgr.telegram.bot.api.models.http.GetUpdatesPayload;
 import io.sgr.telegram.bot.api.models.http.SendMessagePayload;
 import io.sgr.telegram.bot.api.models.http.SendPollPayload;
 import io.sgr.telegram.bot.api.models.http.StopPollPayload;
-import io.sgr.telegram.bot.api.utils.JsonUtil;
 
-import okhttp3.OkHttpClient;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
 import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import retrofit2.Retrofit;
-import retrofit2.converter.jackson.JacksonConverterFactory;
-import retrofit2.converter.scalars.ScalarsConverterFactory;
 import retrofit2.http.Body;
 import retrofit2.http.Field;
 import retrofit2.http.FormUrlEncoded;
 import retrofit2.http.POST;
+import retrofit2.http.Streaming;
 
 import java.util.List;
-import java.util.Locale;
-import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
 
 /**
  * @author SgrAlpha
@@ -81,6 +77,19 @@ public interface BotApi {
     @POST("getUpdates")
     CompletableFuture<List<Update>> getUpdates(@Body GetUpdatesPayload payload);
 
+    /**
+     * Same as {@link #getUpdates(GetUpdatesPayload)}, but hands over the response body as soon as the headers arrive,
+     * so updates can be read one by one with {@link io.sgr.telegram.bot.api.utils.UpdateStreamReader} while the
+     * body is still being received. The caller must close the body.
+     *
+     * @param payload The payload.
+     *
+     * @return The raw response body.
+     */
+    @Streaming
+    @POST("getUpdates")
+    CompletableFuture<ResponseBody> getUpdatesAsStream(@Body GetUpdatesPayload payload);
+
     /**
      * Use this method to send text messages.
      *
@@ -90,6 +99,19 @@ public interface BotApi {
     @POST("sendMessage")
     CompletableFuture<Message> sendMessage(@Body SendMessagePayload payload);
 
+    /**
+     * Same as {@link #sendMessage(SendMessagePayload)}, but sends an already serialized payload, which saves the cost
+     * of serializing the same content again and again when sending it to lots of chats. A call hitting HTTP 429 twice
+     * fails instead of waiting on, so a bulk sender can put the chat aside and carry on.
+     *
+     * @param payload The request payload, serialized as JSON.
+     * @return On success, the sent Message is returned.
+     */
+    @Prioritized(CallPriority.LOW)
+    @RateLimitRetries(1)
+    @POST("sendMessage")
+    CompletableFuture<Message> sendRawMessage(@Body RequestBody payload);
+
     /**
      * Use this method to forward messages of any kind.
      *
@@ -155,6 +177,7 @@ public interface BotApi {
      * @param payload The request payload.
      * @return On success, True is returned.
      */
+    @Prioritized(CallPriority.HIGH)
     @POST("answerInlineQuery")
     CompletableFuture<Boolean> answerInlineQuery(@Body AnswerInlineQueryPayload payload);
 
@@ -627,6 +650,7 @@ public interface BotApi {
      * @param payload The request payload.
      * @return True on success.
      */
+    @Prioritized(CallPriority.HIGH)
     @POST("answerCallbackQuery")
     CompletableFuture<Boolean> answerCallbackQuery(@Body AnswerCallbackQueryPayload payload);
 
@@ -649,55 +673,40 @@ public interface BotApi {
     /**
      * @author SgrAlpha
      */
-    class BotApiBuilder {
-
-        private static final String BASE_URL_FORMAT = "https://api.telegram.org/bot%s/";
+    class BotApiBuilder extends AbstractBotApiBuilder<BotApiBuilder> {
 
         private final String botApiToken;
-        private boolean retry = false;
-        private Logger logger;
 
         BotApiBuilder(final String botApiToken) {
             verifyToken(botApiToken);
             this.botApiToken = botApiToken;
         }
 
-        /**
-         * Enable retry
-         *
-         * @return the builder
-         */
-        public BotApiBuilder enableRetry() {
-            this.retry = true;
+        @Override
+        protected BotApiBuilder self() {
             return this;
         }
 
-        /**
-         * @param logger the logger
-         *
-         * @return the builder
-         */
+        // Keep methods which existed before AbstractBotApiBuilder binary compatible.
+
+        @Override
+        public BotApiBuilder enableRetry() {
+            return super.enableRetry();
+        }
+
+        @Override
         public BotApiBuilder setLogger(final Logger logger) {
-            this.logger = logger;
-            return this;
+            return super.setLogger(logger);
         }
 
         /**
          * @return the bot API client
          */
         public BotApi build() {
-            Retrofit.Builder retrofitBuilder = new Retrofit.Builder()
-                    .baseUrl(String.format(Locale.ENGLISH, BASE_URL_FORMAT, botApiToken))
-                    .addConverterFactory(ScalarsConverterFactory.create())
-                    .addConverterFactory(JacksonConverterFactory.create(JsonUtil.getObjectMapper()))
-                    .addCallAdapterFactory(new DefaultCallAdapterFactory(retry, Optional.ofNullable(logger).orElse(LoggerFactory.getLogger(BotApi.class))));
-            OkHttpClient.Builder clientBuilder = new OkHttpClient().newBuilder()
-                    .retryOnConnectionFailure(true)
-                    .connectTimeout(5, TimeUnit.MINUTES)
-                    .readTimeout(5, TimeUnit.MINUTES)
-                    .writeTimeout(5, TimeUnit.MINUTES);
-            retrofitBuilder.client(clientBuilder.build());
-            return retrofitBuilder.build().create(BotApi.class);
+            return newRetrofitBuilder(buildHttpClient(), botApiToken)
+                    .addCallAdapterFactory(newCallAdapterFactory())
+                    .build()
+                    .create(BotApi.class);
         }
 
     }
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.api;
+
+import static io.sgr.telegram.bot.api.utils.TelegramUtils.verifyToken;
+
+import okhttp3.OkHttpClient;
+import retrofit2.Retrofit;
+
+/**
+ * Creates bot API clients for many bots which share one HTTP client, so hosting hundreds of bots in one JVM does not
+ * cost hundreds of thread pools and connection pools.
+ *
+ * <p>All clients share the dispatcher, the connection pool and the converters, the token is only part of each
+ * client's base URL. Since async calls run on the dispatcher's threads, the total number of HTTP threads is bounded
+ * by the max requests of the shared dispatcher, no matter how many bots are created.
+ *
+ * <p>If rate limiting is enabled with {@link #newBuilder()}, each bot gets its own rate limiter, as Telegram limits
+ * each bot separately. A rate limiter set explicitly is shared by all bots.
+ *
+ * @author SgrAlpha
+ */
+public class BotApiFactory {
+
+    private final OkHttpClient httpClient;
+    private final Retrofit prototype;
+    private final BotApiFactoryBuilder builder;
+    private final boolean ownDispatcher;
+    private final boolean ownConnectionPool;
+
+    private BotApiFactory(final BotApiFactoryBuilder builder) {
+        this.builder = builder;
+        this.httpClient = builder.buildHttpClient();
+        this.prototype = builder.newRetrofitBuilder(httpClient, "").build();
+        final OkHttpClient base = builder.getBaseHttpClient();
+        this.ownDispatcher = base == null || base.dispatcher() != this.httpClient.dispatcher();
+        this.ownConnectionPool = base == null || base.connectionPool() != this.httpClient.connectionPool();
+    }
+
+    /**
+     * Create a client for a bot, it is cheap enough to create one whenever a bot is added, but should be kept and
+     * reused for the bot afterwards.
+     *
+     * @param botApiToken The token of the bot.
+     *
+     * @return The bot API client.
+     */
+    public BotApi create(final String botApiToken) {
+        verifyToken(botApiToken);
+        return prototype.newBuilder()
+                .baseUrl(AbstractBotApiBuilder.toBaseUrl(botApiToken))
+                .addCallAdapterFactory(builder.newCallAdapterFactory())
+                .build()
+                .create(BotApi.class);
+    }
+
+    /**
+     * @return The HTTP client shared by all bots.
+     */
+    public OkHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Stop accepting new calls and release idle connections. Calls already running are not interrupted. The dispatcher
+     * and the connection pool are left untouched if they come from the HTTP client given to the builder, since other
+     * clients of the caller might still be using them.
+     */
+    public void shutdown() {
+        if (ownDispatcher) {
+            httpClient.dispatcher().executorService().shutdown();
+        }
+        if (ownConnectionPool) {
+            httpClient.connectionPool().evictAll();
+        }
+    }
+
+    /**
+     * @return A builder of the factory.
+     */
+    public static BotApiFactoryBuilder newBuilder() {
+        return new BotApiFactoryBuilder();
+    }
+
+    /**
+     * @author SgrAlpha
+     */
+    public static class BotApiFactoryBuilder extends AbstractBotApiBuilder<BotApiFactoryBuilder> {
+
+        private BotApiFactoryBuilder() {
+        }
+
+        @Override
+        protected BotApiFactoryBuilder self() {
+            return this;
+        }
+
+        /**
+         * @return The factory.
+         */
+        public BotApiFactory build() {
+            return new BotApiFactory(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.api;
+
+import io.sgr.telegram.bot.api.models.http.ApiResponse;
+import io.sgr.telegram.bot.api.utils.JsonUtil;
+
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import retrofit2.http.Body;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Resolves (de)serializers of all types sent or received by {@link BotApi} ahead of time.
+ *
+ * @author SgrAlpha
+ */
+final class BotApiJsonWarmer {
+
+    private static volatile boolean warmedUp = false;
+
+    private BotApiJsonWarmer() {
+    }
+
+    static void warmUp() {
+        if (warmedUp) {
+            return;
+        }
+        synchronized (BotApiJsonWarmer.class) {
+            if (warmedUp) {
+                return;
+            }
+            JsonUtil.warmUp(getTypes().toArray(new Type[0]));
+            warmedUp = true;
+        }
+    }
+
+    static Set<Type> getTypes() {
+        final TypeFactory typeFactory = JsonUtil.getOptimizedObjectMapper().getTypeFactory();
+        final Set<Type> types = new LinkedHashSet<>();
+        for (final Method method : BotApi.class.getMethods()) {
+            final Type returnType = method.getGenericReturnType();
+            if (returnType instanceof ParameterizedType && ((ParameterizedType) returnType).getRawType() == CompletableFuture.class) {
+                final Type resultType = ((ParameterizedType) returnType).getActualTypeArguments()[0];
+                // Streamed responses are read as raw bodies, not bound through Jackson.
+                if (resultType == ResponseBody.class) {
+                    continue;
+                }
+                types.add(typeFactory.constructParametricType(ApiResponse.class, typeFactory.constructType(resultType)));
+            }
+            final Annotation[][] annotations = method.getParameterAnnotations();
+            for (int i = 0; i < annotations.length; i++) {
+                for (final Annotation annotation : annotations[i]) {
+                    // Prepared request bodies are sent as is, not bound through Jackson.
+                    if (annotation instanceof Body && method.getGenericParameterTypes()[i] != RequestBody.class) {
+                        types.add(method.getGenericParameterTypes()[i]);
+                    }
+                }
+            }
+        }
+        return types;
+    }
+
+}
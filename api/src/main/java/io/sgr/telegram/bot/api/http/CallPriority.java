@@ -0,0 +1,41 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.api.http;
+
+/**
+ * Priority classes of outbound API calls, see {@link OutboundRequestQueue} for how they are served.
+ *
+ * @author SgrAlpha
+ */
+public enum CallPriority {
+
+    /**
+     * Latency sensitive calls, like answers of callback queries, which are always served first and never wait behind
+     * calls of lower priorities.
+     */
+    HIGH,
+    /**
+     * Regular calls.
+     */
+    NORMAL,
+    /**
+     * Bulk calls, like broadcasts, which get a smaller but fair share of capacity when regular calls are waiting too.
+     */
+    LOW
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.api.http;
+
+import okhttp3.Request;
+import retrofit2.Invocation;
+import retrofit2.http.Body;
+import retrofit2.http.Field;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Optional;
+
+import javax.annotation.Nullable;
+
+/**
+ * Find out the target chat of an API call from its arguments.
+ *
+ * @author SgrAlpha
+ */
+class ChatIdResolver {
+
+    private static final String CHAT_ID_FIELD = "chat_id";
+
+    private static final ClassValue<Optional<Method>> CHAT_ID_GETTERS = new ClassValue<Optional<Method>>() {
+        @Override protected Optional<Method> computeValue(final Class<?> type) {
+            try {
+                return Optional.of(type.getMethod("getChatId"));
+            } catch (NoSuchMethodException e) {
+                return Optional.empty();
+            }
+        }
+    };
+
+    /**
+     * @param request The request to resolve chat ID from.
+     *
+     * @return The chat ID, or NULL if the request does not target any specific chat.
+     */
+    @Nullable
+    static String resolve(@Nullable final Request request) {
+        final Invocation invocation = request == null ? null : request.tag(Invocation.class);
+        if (invocation == null) {
+            return null;
+        }
+        final Annotation[][] parameterAnnotations = invocation.method().getParameterAnnotations();
+        final List<?> arguments = invocation.arguments();
+        for (int i = 0; i < parameterAnnotations.length && i < arguments.size(); i++) {
+            final Object argument = arguments.get(i);
+            if (argument == null) {
+                continue;
+            }
+            for (final Annotation annotation : parameterAnnotations[i]) {
+                if (annotation instanceof Field && CHAT_ID_FIELD.equals(((Field) annotation).value())) {
+                    return String.valueOf(argument);
+                }
+                if (annotation instanceof Body) {
+                    final String chatId = getChatIdFromPayload(argument);
+                    if (chatId != null) {
+                        return chatId;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String getChatIdFromPayload(final Object payload) {
+        final Optional<Method> getter = CHAT_ID_GETTERS.get(payload.getClass());
+        if (!getter.isPresent()) {
+            return null;
+        }
+        try {
+            final Object chatId = getter.get().invoke(payload);
+            return chatId == null ? null : String.valueOf(chatId);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            return null;
+        }
+    }
+
+}
@@ -27,19 +27,45 @@ import retrofit2.CallAdapter;
 
 import java.lang.reflect.Type;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 class CompletableFutureBasedCallAdapter<T> implements CallAdapter<ApiResponse<T>, CompletableFuture<T>> {
 
     private final Type responseType;
     private final boolean retry;
     private final Logger logger;
+    private final RateLimiter rateLimiter;
+    private final OutboundRequestQueue queue;
+    private final String method;
+    private final CallPriority priority;
+    private final int maxRateLimitRetries;
+    private final ScheduledExecutorService scheduler;
 
     CompletableFutureBasedCallAdapter(@Nonnull final Type responseType, final boolean retry, @Nonnull final Logger logger) {
+        this(responseType, retry, logger, null, Schedulers.getDefault());
+    }
+
+    CompletableFutureBasedCallAdapter(@Nonnull final Type responseType, final boolean retry, @Nonnull final Logger logger,
+            @Nullable final RateLimiter rateLimiter, @Nonnull final ScheduledExecutorService scheduler) {
+        this(responseType, retry, logger, rateLimiter, null, null, CallPriority.NORMAL, -1, scheduler);
+    }
+
+    CompletableFutureBasedCallAdapter(@Nonnull final Type responseType, final boolean retry, @Nonnull final Logger logger,
+            @Nullable final RateLimiter rateLimiter, @Nullable final OutboundRequestQueue queue,
+            @Nullable final String method, @Nonnull final CallPriority priority, final int maxRateLimitRetries, @Nonnull final ScheduledExecutorService scheduler) {
         this.responseType = checkNotNull(responseType, "Missing response type!");
         this.retry = retry;
         this.logger = checkNotNull(logger, "Missing logger!");
+        this.rateLimiter = rateLimiter;
+        this.queue = queue;
+        this.method = method;
+        this.priority = checkNotNull(priority, "Missing priority!");
+        this.maxRateLimitRetries = maxRateLimitRetries;
+        this.scheduler = checkNotNull(scheduler, "Missing scheduler!");
     }
 
     @Nonnull
@@ -59,8 +85,36 @@ class CompletableFutureBasedCallAdapter<T> implements CallAdapter<ApiResponse<T>
                 return super.cancel(mayInterruptIfRunning);
             }
         };
-        call.enqueue(new CompletableFutureBasedCallback<>(fut, retry, logger));
+        final CompletableFutureBasedCallback<T> callback = new CompletableFutureBasedCallback<>(fut, retry, logger, scheduler, maxRateLimitRetries);
+        if (queue == null) {
+            enqueue(call, callback);
+        } else {
+            // Resolved per call, so priorities overridden on the queue take effect right away.
+            queue.submit(queue.getPriority(method, priority), () -> enqueue(call, callback), fut);
+        }
         return fut;
     }
 
+    private void enqueue(final Call<ApiResponse<T>> call, final CompletableFutureBasedCallback<T> callback) {
+        if (rateLimiter == null) {
+            call.enqueue(callback);
+            return;
+        }
+        // Wait for the turn of target chat first, then the global one, without holding any thread.
+        final long chatDelay = rateLimiter.reserveChat(ChatIdResolver.resolve(call.request()));
+        schedule(() -> schedule(() -> {
+            if (!call.isCanceled()) {
+                call.enqueue(callback);
+            }
+        }, rateLimiter.reserveGlobal()), chatDelay);
+    }
+
+    private void schedule(final Runnable task, final long delayInNanos) {
+        if (delayInNanos <= 0) {
+            task.run();
+            return;
+        }
+        scheduler.schedule(task, delayInNanos, TimeUnit.NANOSECONDS);
+    }
+
 }
@@ -22,6 +22,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import io.sgr.telegram.bot.api.exceptions.ApiCallException;
 import io.sgr.telegram.bot.api.models.http.ApiErrorResponse;
 import io.sgr.telegram.bot.api.models.http.ApiResponse;
+import io.sgr.telegram.bot.api.models.http.ResponseParameters;
 import io.sgr.telegram.bot.api.utils.JsonUtil;
 
 import okhttp3.ResponseBody;
@@ -31,21 +32,44 @@ import retrofit2.Callback;
 import retrofit2.Response;
 
 import java.io.IOException;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
 
 class CompletableFutureBasedCallback<T> implements Callback<ApiResponse<T>> {
 
+    private static final int DEFAULT_RETRY_AFTER_IN_SEC = 3;
+    private static final int UNLIMITED_RATE_LIMIT_RETRIES = -1;
+
     private final CompletableFuture<T> future;
     private final boolean retry;
     private final Logger logger;
+    private final ScheduledExecutorService scheduler;
+
+    private int rateLimitRetriesLeft;
 
     CompletableFutureBasedCallback(@Nonnull final CompletableFuture<T> future, final boolean retry, @Nonnull final Logger logger) {
+        this(future, retry, logger, Schedulers.getDefault());
+    }
+
+    CompletableFutureBasedCallback(@Nonnull final CompletableFuture<T> future, final boolean retry, @Nonnull final Logger logger,
+            @Nonnull final ScheduledExecutorService scheduler) {
+        this(future, retry, logger, scheduler, UNLIMITED_RATE_LIMIT_RETRIES);
+    }
+
+    /**
+     * @param maxRateLimitRetries The maximum number of retries after HTTP 429 errors, negative means unlimited.
+     */
+    CompletableFutureBasedCallback(@Nonnull final CompletableFuture<T> future, final boolean retry, @Nonnull final Logger logger,
+            @Nonnull final ScheduledExecutorService scheduler, final int maxRateLimitRetries) {
         this.future = checkNotNull(future, "Missing future!");
         this.retry = retry;
         this.logger = checkNotNull(logger, "Missing logger!");
+        this.scheduler = checkNotNull(scheduler, "Missing scheduler!");
+        this.rateLimitRetriesLeft = maxRateLimitRetries;
     }
 
     @Override public void onResponse(@Nonnull final Call<ApiResponse<T>> call, @Nonnull final Response<ApiResponse<T>> response) {
@@ -73,21 +97,21 @@ class CompletableFutureBasedCallback<T> implements Callback<ApiResponse<T>> {
                 future.completeExceptionally(new ApiCallException(apiError));
                 return;
             }
-            if (response.code() == 429) {
-                int index = errDesc.lastIndexOf(' ');
-                int time;
-                try {
-                    time = Integer.parseInt(errDesc.substring(index));
-                } catch (Exception e) {
-                    time = 3;
-                }
-                try {
-                    TimeUnit.SECONDS.sleep(time);
-                } catch (InterruptedException e) {
-                    future.completeExceptionally(e);
-                    return;
+            if (response.code() == 429 && rateLimitRetriesLeft != 0) {
+                if (rateLimitRetriesLeft > 0) {
+                    rateLimitRetriesLeft--;
                 }
-                call.clone().enqueue(this);
+                final int retryAfter = Optional.ofNullable(apiError)
+                        .flatMap(ApiErrorResponse::getParameters)
+                        .map(ResponseParameters::getRetryAfter)
+                        .orElse(DEFAULT_RETRY_AFTER_IN_SEC);
+                logger.debug("Error '{}:{}' received, retry after {} seconds.", response.code(), errDesc, retryAfter);
+                // Never sleep here, this runs on the thread of HTTP client dispatcher.
+                scheduler.schedule(() -> {
+                    if (!future.isDone()) {
+                        call.clone().enqueue(this);
+                    }
+                }, retryAfter, TimeUnit.SECONDS);
                 return;
             }
             logger.error("Error '{}:{}' received.", response.code(), errDesc);
@@ -21,25 +21,62 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import io.sgr.telegram.bot.api.models.http.ApiResponse;
 
+import okhttp3.ResponseBody;
 import org.slf4j.Logger;
 import retrofit2.CallAdapter;
 import retrofit2.Retrofit;
+import retrofit2.http.POST;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 public class DefaultCallAdapterFactory extends CallAdapter.Factory {
 
+    private static final String[] RATE_LIMITED_METHOD_PREFIXES = {"send", "forward", "edit"};
+    private static final String LONG_POLLING_METHOD = "getUpdates";
+
     private final boolean retry;
     private final Logger logger;
+    private final RateLimiter rateLimiter;
+    private final OutboundRequestQueue queue;
+    private final ScheduledExecutorService scheduler;
 
     public DefaultCallAdapterFactory(final boolean retry, @Nonnull final Logger logger) {
+        this(retry, logger, null, Schedulers.getDefault());
+    }
+
+    /**
+     * @param retry       Whether or not to retry failed calls.
+     * @param logger      The logger.
+     * @param rateLimiter Optional. The rate limiter applies to calls which send or edit messages.
+     * @param scheduler   The scheduler to delay rate limited calls and retries.
+     */
+    public DefaultCallAdapterFactory(final boolean retry, @Nonnull final Logger logger,
+            @Nullable final RateLimiter rateLimiter, @Nonnull final ScheduledExecutorService scheduler) {
+        this(retry, logger, rateLimiter, null, scheduler);
+    }
+
+    /**
+     * @param retry       Whether or not to retry failed calls.
+     * @param logger      The logger.
+     * @param rateLimiter Optional. The rate limiter applies to calls which send or edit messages.
+     * @param queue       Optional. The queue bounds and prioritizes outbound calls, except long polling ones.
+     * @param scheduler   The scheduler to delay rate limited calls and retries.
+     */
+    public DefaultCallAdapterFactory(final boolean retry, @Nonnull final Logger logger,
+            @Nullable final RateLimiter rateLimiter, @Nullable final OutboundRequestQueue queue,
+            @Nonnull final ScheduledExecutorService scheduler) {
         this.retry = retry;
         this.logger = checkNotNull(logger, "Missing logger!");
+        this.rateLimiter = rateLimiter;
+        this.queue = queue;
+        this.scheduler = checkNotNull(scheduler, "Missing scheduler!");
     }
 
     @Override
@@ -52,7 +89,57 @@ public class DefaultCallAdapterFactory extends CallAdapter.Factory {
                     + " CompletableFuture<Foo> or CompletableFuture<? extends Foo>");
         }
         final Type innerType = getParameterUpperBound(0, (ParameterizedType) returnType);
-        return new CompletableFutureBasedCallAdapter<>(new ApiResponseType(innerType), retry, logger);
+        if (innerType == ResponseBody.class) {
+            return new StreamingCallAdapter(logger);
+        }
+        final RateLimiter limiter = isRateLimited(annotations) ? rateLimiter : null;
+        final String method = getMethod(annotations);
+        // Long polling calls are held by Telegram for a long time, they should not take up slots of the queue.
+        final OutboundRequestQueue bounded = LONG_POLLING_METHOD.equals(method) ? null : queue;
+        return new CompletableFutureBasedCallAdapter<>(new ApiResponseType(innerType), retry, logger, limiter, bounded, method,
+                getPriority(annotations), getRateLimitRetries(annotations), scheduler);
+    }
+
+    private static String getMethod(final Annotation[] annotations) {
+        for (final Annotation annotation : annotations) {
+            if (annotation instanceof POST) {
+                return ((POST) annotation).value();
+            }
+        }
+        return null;
+    }
+
+    private static CallPriority getPriority(final Annotation[] annotations) {
+        for (final Annotation annotation : annotations) {
+            if (annotation instanceof Prioritized) {
+                return ((Prioritized) annotation).value();
+            }
+        }
+        return CallPriority.NORMAL;
+    }
+
+    private static int getRateLimitRetries(final Annotation[] annotations) {
+        for (final Annotation annotation : annotations) {
+            if (annotation instanceof RateLimitRetries) {
+                return ((RateLimitRetries) annotation).value();
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isRateLimited(final Annotation[] annotations) {
+        for (final Annotation annotation : annotations) {
+            if (!(annotation instanceof POST)) {
+                continue;
+            }
+            final String method = ((POST) annotation).value();
+            for (final String prefix : RATE_LIMITED_METHOD_PREFIXES) {
+                if (method.startsWith(prefix)) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     static final class ApiResponseType implements ParameterizedType {
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.api.http;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies a dedicated read timeout to long polling getUpdates calls, so normal calls can use a much shorter one and a
+ * stuck request does not hold a connection for as long as a long poll may legitimately take.
+ *
+ * @author SgrAlpha
+ */
+public class LongPollingTimeoutInterceptor implements Interceptor {
+
+    private static final String GET_UPDATES_PATH_SUFFIX = "/getUpdates";
+
+    private final int readTimeoutInMillis;
+
+    /**
+     * @param readTimeout The read timeout of long polling calls, should be longer than the timeout sent with getUpdates.
+     * @param unit        The time unit of the timeout.
+     */
+    public LongPollingTimeoutInterceptor(final long readTimeout, final TimeUnit unit) {
+        checkArgument(readTimeout > 0, "Read timeout should be positive, but got " + readTimeout);
+        checkNotNull(unit, "Time unit should be specified");
+        this.readTimeoutInMillis = Math.toIntExact(unit.toMillis(readTimeout));
+    }
+
+    @Override
+    public Response intercept(final Chain chain) throws IOException {
+        final Request request = chain.request();
+        if (isLongPolling(request)) {
+            return chain.withReadTimeout(readTimeoutInMillis, TimeUnit.MILLISECONDS).proceed(request);
+        }
+        return chain.proceed(request);
+    }
+
+    static boolean isLongPolling(final Request request) {
+        return request.url().encodedPath().endsWith(GET_UPDATES_PATH_SUFFIX);
+    }
+
+}
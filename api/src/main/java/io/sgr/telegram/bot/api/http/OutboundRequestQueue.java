@@ -0,0 +1,268 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.api.http;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Strings.isNullOrEmpty;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Bounds the number of outbound requests, so a burst of calls cannot create an unbounded number of pending HTTP calls.
+ * At most {@code maxInFlight} requests are being sent at the same time, and at most {@code maxQueued} more requests
+ * wait for their turn. Once both are full, new requests are either rejected or block their callers until there is
+ * room, depending on the {@link OverflowPolicy}. Producers which would rather pull than being pushed back can check
+ * {@link #getRemainingCapacity(CallPriority)} before sending more.
+ *
+ * <p>Requests are queued in one lane per {@link CallPriority}, each of which holds up to {@code maxQueued} requests.
+ * {@link CallPriority#HIGH} requests have {@code maxInFlight} slots of their own, so they never wait behind requests of
+ * lower priorities, which might be holding their slots for a long time while waiting for rate limits. Requests of
+ * other priorities share another {@code maxInFlight} slots, and {@link CallPriority#NORMAL} ones get {@value
+ * #NORMAL_WEIGHT} turns for every turn of {@link CallPriority#LOW} ones when both are waiting. As requests are handed
+ * over to the HTTP client once they get a slot, the HTTP client should allow at least {@code 2 * maxInFlight}
+ * concurrent requests for priorities to take effect.
+ *
+ * @author SgrAlpha
+ */
+public class OutboundRequestQueue {
+
+    /**
+     * What to do with a new request when the queue is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Fail the returned future with {@link RejectedExecutionException} right away.
+         */
+        REJECT,
+        /**
+         * Block the caller until there is room. Do not use this if API calls are made from callbacks of other API calls,
+         * which would block the threads the queue is waiting on.
+         */
+        BLOCK
+    }
+
+    static final int NORMAL_WEIGHT = 3;
+
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final OverflowPolicy overflowPolicy;
+    private final Map<CallPriority, Deque<Request>> lanes = new EnumMap<>(CallPriority.class);
+    private final Map<String, CallPriority> priorities = new ConcurrentHashMap<>();
+
+    private int highInFlight = 0;
+    private int bulkInFlight = 0;
+    private int normalTurns = 0;
+
+    /**
+     * @param maxInFlight    The maximum number of requests being sent at the same time.
+     * @param maxQueued      The maximum number of requests waiting for their turn.
+     * @param overflowPolicy What to do with a new request when the queue is full.
+     */
+    public OutboundRequestQueue(final int maxInFlight, final int maxQueued, final OverflowPolicy overflowPolicy) {
+        checkArgument(maxInFlight > 0, "Max in-flight requests should be greater than 0, but got " + maxInFlight);
+        checkArgument(maxQueued >= 0, "Max queued requests should not be negative, but got " + maxQueued);
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+        this.overflowPolicy = checkNotNull(overflowPolicy, "Overflow policy should be specified.");
+        for (CallPriority priority : CallPriority.values()) {
+            lanes.put(priority, new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Override the priority of calls of an API method, regardless of the one declared by {@link Prioritized}. Takes
+     * effect for calls made afterwards, calls already queued keep their priority.
+     *
+     * @param method   The API method, e.g. sendMessage.
+     * @param priority The priority of calls of the method.
+     *
+     * @return The queue.
+     */
+    public OutboundRequestQueue setPriority(final String method, final CallPriority priority) {
+        checkArgument(!isNullOrEmpty(method), "API method should be provided.");
+        priorities.put(method, checkNotNull(priority, "Priority should be specified."));
+        return this;
+    }
+
+    /**
+     * @param method   The API method, e.g. sendMessage.
+     * @param declared The priority declared by the API method.
+     *
+     * @return The overridden priority of the method, or the declared one if not overridden.
+     */
+    public CallPriority getPriority(final String method, final CallPriority declared) {
+        return method == null ? declared : priorities.getOrDefault(method, declared);
+    }
+
+    /**
+     * Same as {@link #submit(CallPriority, Runnable, CompletableFuture)} with {@link CallPriority#NORMAL} priority.
+     *
+     * @param start  Starts sending the request.
+     * @param future Completes when the request finishes, including retries.
+     */
+    public void submit(final Runnable start, final CompletableFuture<?> future) {
+        submit(CallPriority.NORMAL, start, future);
+    }
+
+    /**
+     * Start the request right away if there is a free slot for its priority, otherwise queue it up. The request takes
+     * up its slot until the given future completes.
+     *
+     * @param priority The priority of the request.
+     * @param start    Starts sending the request.
+     * @param future   Completes when the request finishes, including retries. It is failed with {@link
+     *                 RejectedExecutionException} if the request is rejected.
+     */
+    public void submit(final CallPriority priority, final Runnable start, final CompletableFuture<?> future) {
+        checkNotNull(priority, "Missing priority!");
+        checkNotNull(start, "Missing request!");
+        checkNotNull(future, "Missing future!");
+        final Request request = new Request(priority, start, future);
+        final Deque<Request> lane = lanes.get(priority);
+        synchronized (this) {
+            while (getInFlight(priority) >= maxInFlight && lane.size() >= maxQueued) {
+                if (overflowPolicy == OverflowPolicy.REJECT) {
+                    future.completeExceptionally(new RejectedExecutionException(String.format(
+                            "Outbound request queue of %s priority is full, %d in-flight and %d queued",
+                            priority, getInFlight(priority), lane.size())));
+                    return;
+                }
+                try {
+                    this.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    future.completeExceptionally(new RejectedExecutionException("Interrupted while waiting for outbound request queue", e));
+                    return;
+                }
+            }
+            if (getInFlight(priority) >= maxInFlight) {
+                lane.addLast(request);
+                return;
+            }
+            if (priority == CallPriority.HIGH) {
+                highInFlight++;
+            } else {
+                bulkInFlight++;
+            }
+        }
+        run(request);
+    }
+
+    /**
+     * @return The number of requests of {@link CallPriority#NORMAL} priority can be submitted before the queue is full.
+     */
+    public int getRemainingCapacity() {
+        return getRemainingCapacity(CallPriority.NORMAL);
+    }
+
+    /**
+     * @param priority The priority of requests.
+     *
+     * @return The number of requests of the given priority can be submitted before the queue is full.
+     */
+    public synchronized int getRemainingCapacity(final CallPriority priority) {
+        return maxInFlight - getInFlight(priority) + maxQueued - lanes.get(priority).size();
+    }
+
+    public synchronized int getInFlightCount() {
+        return highInFlight + bulkInFlight;
+    }
+
+    public synchronized int getQueuedCount() {
+        int queued = 0;
+        for (Deque<Request> lane : lanes.values()) {
+            queued += lane.size();
+        }
+        return queued;
+    }
+
+    private int getInFlight(final CallPriority priority) {
+        return priority == CallPriority.HIGH ? highInFlight : bulkInFlight;
+    }
+
+    private void run(final Request request) {
+        Request current = request;
+        while (current != null) {
+            // Skip requests cancelled while waiting in the queue.
+            if (!current.future.isDone()) {
+                try {
+                    current.start.run();
+                } catch (RuntimeException e) {
+                    current.future.completeExceptionally(e);
+                }
+                if (!current.future.isDone()) {
+                    final CallPriority priority = current.priority;
+                    current.future.whenComplete((result, e) -> run(next(priority)));
+                    return;
+                }
+            }
+            current = next(current.priority);
+        }
+    }
+
+    /**
+     * @param finished The priority of the finished request.
+     *
+     * @return The next queued request, which takes over the slot of the finished one, or NULL to give up the slot.
+     */
+    private synchronized Request next(final CallPriority finished) {
+        final Request next = finished == CallPriority.HIGH ? lanes.get(CallPriority.HIGH).pollFirst() : nextBulk();
+        if (next == null) {
+            if (finished == CallPriority.HIGH) {
+                highInFlight--;
+            } else {
+                bulkInFlight--;
+            }
+        }
+        this.notifyAll();
+        return next;
+    }
+
+    private Request nextBulk() {
+        final Deque<Request> normal = lanes.get(CallPriority.NORMAL);
+        final Deque<Request> low = lanes.get(CallPriority.LOW);
+        if (!normal.isEmpty() && (low.isEmpty() || normalTurns < NORMAL_WEIGHT)) {
+            normalTurns++;
+            return normal.pollFirst();
+        }
+        normalTurns = 0;
+        return low.pollFirst();
+    }
+
+    private static class Request {
+
+        private final CallPriority priority;
+        private final Runnable start;
+        private final CompletableFuture<?> future;
+
+        private Request(final CallPriority priority, final Runnable start, final CompletableFuture<?> future) {
+            this.priority = priority;
+            this.start = start;
+            this.future = future;
+        }
+
+    }
+
+}
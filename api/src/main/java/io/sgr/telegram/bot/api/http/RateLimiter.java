@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.api.http;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+/**
+ * Shapes outgoing messages to stay under the limits of Telegram, so requests can wait for their turn instead of getting
+ * HTTP 429 errors. Three limits are enforced at the same time: a global limit of all chats, a limit of each private
+ * chat, and a limit of each group or channel. Permits are handed out as time slots, so callers never block.
+ *
+ * @author SgrAlpha
+ */
+public class RateLimiter {
+
+    public static final double DEFAULT_GLOBAL_PERMITS_PER_SECOND = 30;
+    public static final double DEFAULT_PRIVATE_CHAT_PERMITS_PER_SECOND = 1;
+    public static final double DEFAULT_GROUP_CHAT_PERMITS_PER_MINUTE = 20;
+
+    private static final long IDLE_CHAT_EXPIRATION_IN_SEC = TimeUnit.MINUTES.toSeconds(1);
+
+    private final TokenBucket global;
+    private final LoadingCache<String, TokenBucket> chats;
+
+    /**
+     * @param globalPermitsPerSecond      The maximum number of messages can be sent to all chats per second.
+     * @param privateChatPermitsPerSecond The maximum number of messages can be sent to one private chat per second.
+     * @param groupChatPermitsPerMinute   The maximum number of messages can be sent to one group or channel per minute.
+     */
+    public RateLimiter(final double globalPermitsPerSecond, final double privateChatPermitsPerSecond, final double groupChatPermitsPerMinute) {
+        if (privateChatPermitsPerSecond <= 0) {
+            throw new IllegalArgumentException(String.format("Private chat permits should be greater than 0, but got %f", privateChatPermitsPerSecond));
+        }
+        if (groupChatPermitsPerMinute <= 0) {
+            throw new IllegalArgumentException(String.format("Group chat permits should be greater than 0, but got %f", groupChatPermitsPerMinute));
+        }
+        final int globalBurst = (int) Math.max(1, globalPermitsPerSecond);
+        this.global = new TokenBucket(globalPermitsPerSecond, TimeUnit.SECONDS.toNanos(1), globalBurst);
+        this.chats = CacheBuilder.newBuilder()
+                .expireAfterAccess(IDLE_CHAT_EXPIRATION_IN_SEC, TimeUnit.SECONDS)
+                .build(new CacheLoader<String, TokenBucket>() {
+                    @Override public TokenBucket load(final String chatId) {
+                        return isGroupChat(chatId)
+                                ? new TokenBucket(groupChatPermitsPerMinute, TimeUnit.MINUTES.toNanos(1), 1)
+                                : new TokenBucket(privateChatPermitsPerSecond, TimeUnit.SECONDS.toNanos(1), 1);
+                    }
+                });
+    }
+
+    public static RateLimiter newInstance() {
+        return new RateLimiter(DEFAULT_GLOBAL_PERMITS_PER_SECOND, DEFAULT_PRIVATE_CHAT_PERMITS_PER_SECOND, DEFAULT_GROUP_CHAT_PERMITS_PER_MINUTE);
+    }
+
+    /**
+     * Reserve a permit of the target chat for sending a message. The global permit should be reserved by {@link
+     * #reserveGlobal()} once the returned time elapsed, so waiting for a busy chat does not take up global capacity.
+     *
+     * @param chatId Optional. The target chat of the message, NULL means no chat limit applies.
+     *
+     * @return The time in nanoseconds to wait before reserving global permit, 0 means right now.
+     */
+    public long reserveChat(@Nullable final String chatId) {
+        if (chatId == null) {
+            return 0;
+        }
+        final long now = System.nanoTime();
+        return Math.max(0, chats.getUnchecked(chatId).reserve(now) - now);
+    }
+
+    /**
+     * Reserve a global permit for sending a message.
+     *
+     * @return The time in nanoseconds to wait before the message can be sent, 0 means send it right now.
+     */
+    public long reserveGlobal() {
+        final long now = System.nanoTime();
+        return Math.max(0, global.reserve(now) - now);
+    }
+
+    /**
+     * Chats of groups, super groups and channels have negative IDs, channels can also be addressed by user name.
+     */
+    private static boolean isGroupChat(final String chatId) {
+        return chatId.startsWith("-") || chatId.startsWith("@");
+    }
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.api.http;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * @author SgrAlpha
+ */
+public class Schedulers {
+
+    /**
+     * Get the default scheduler, which is shared by all API clients to delay calls without blocking any thread. Tasks
+     * running on it should be short and non-blocking.
+     *
+     * @return The default scheduler.
+     */
+    public static ScheduledExecutorService getDefault() {
+        return DefaultSchedulerHolder.INST;
+    }
+
+    private static class DefaultSchedulerHolder {
+
+        private static final ScheduledExecutorService INST = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("telegram-bot-api-scheduler-%d").setDaemon(true).build());
+
+    }
+
+}
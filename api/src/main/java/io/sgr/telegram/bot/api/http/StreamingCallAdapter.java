@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.api.http;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.sgr.telegram.bot.api.exceptions.ApiCallException;
+import io.sgr.telegram.bot.api.models.http.ApiErrorResponse;
+import io.sgr.telegram.bot.api.utils.JsonUtil;
+
+import okhttp3.ResponseBody;
+import org.slf4j.Logger;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.CompletableFuture;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Hands the raw response body to the caller, so it can be read as a stream instead of being deserialized at once.
+ * The caller owns the body and must close it. Failed calls are not retried.
+ */
+class StreamingCallAdapter implements CallAdapter<ResponseBody, CompletableFuture<ResponseBody>> {
+
+    private final Logger logger;
+
+    StreamingCallAdapter(@Nonnull final Logger logger) {
+        this.logger = checkNotNull(logger, "Missing logger!");
+    }
+
+    @Nonnull
+    @Override
+    public Type responseType() {
+        return ResponseBody.class;
+    }
+
+    @Nonnull
+    @Override
+    public CompletableFuture<ResponseBody> adapt(@Nonnull final Call<ResponseBody> call) {
+        final CompletableFuture<ResponseBody> fut = new CompletableFuture<ResponseBody>() {
+            @Override public boolean cancel(final boolean mayInterruptIfRunning) {
+                if (mayInterruptIfRunning) {
+                    call.cancel();
+                }
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        call.enqueue(new Callback<ResponseBody>() {
+            @Override public void onResponse(@Nonnull final Call<ResponseBody> call, @Nonnull final Response<ResponseBody> response) {
+                if (response.isSuccessful()) {
+                    final ResponseBody body = response.body();
+                    if (body == null) {
+                        fut.completeExceptionally(new IllegalStateException("Missing response body!"));
+                    } else if (!fut.complete(body)) {
+                        // Nobody is going to read it.
+                        body.close();
+                    }
+                    return;
+                }
+                fut.completeExceptionally(new ApiCallException(readError(response)));
+            }
+
+            @Override public void onFailure(@Nonnull final Call<ResponseBody> call, @Nonnull final Throwable t) {
+                fut.completeExceptionally(t);
+            }
+        });
+        return fut;
+    }
+
+    private ApiErrorResponse readError(final Response<ResponseBody> response) {
+        try (ResponseBody errorBody = response.errorBody()) {
+            if (errorBody == null) {
+                return null;
+            }
+            final ApiErrorResponse apiError = JsonUtil.getObjectMapper().readValue(errorBody.bytes(), ApiErrorResponse.class);
+            logger.error("Error '{}:{}' received.", response.code(), apiError.getDescription().orElse("NA"));
+            return apiError;
+        } catch (IOException e) {
+            logger.error("{}: {}", e.getClass().getSimpleName(), e.getMessage());
+            return null;
+        }
+    }
+
+}
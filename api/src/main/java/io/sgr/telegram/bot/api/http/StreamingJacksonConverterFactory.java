@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.api.http;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Writes request bodies with Jackson straight into the sink of OkHttp, instead of serializing each payload into a
+ * byte array first. Jackson recycles its own buffers and OkHttp pools the segments of the sink, so no intermediate
+ * String or byte array is created per request.
+ *
+ * <p>The length of such a body is unknown until it is written, so it is sent with chunked transfer encoding over
+ * HTTP/1.1. Response bodies are left to the next converter factory.
+ *
+ * @author SgrAlpha
+ */
+public class StreamingJacksonConverterFactory extends Converter.Factory {
+
+    private static final MediaType MEDIA_TYPE = MediaType.get("application/json; charset=UTF-8");
+
+    private final ObjectMapper mapper;
+
+    /**
+     * @param mapper The mapper to write request bodies with.
+     */
+    public StreamingJacksonConverterFactory(@Nonnull final ObjectMapper mapper) {
+        this.mapper = checkNotNull(mapper, "Missing object mapper!");
+    }
+
+    @Override
+    public Converter<?, RequestBody> requestBodyConverter(@Nonnull final Type type, @Nonnull final Annotation[] parameterAnnotations,
+            @Nonnull final Annotation[] methodAnnotations, @Nonnull final Retrofit retrofit) {
+        final ObjectWriter writer = mapper.writerFor(mapper.getTypeFactory().constructType(type))
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return value -> new StreamingRequestBody(writer, value);
+    }
+
+    static final class StreamingRequestBody extends RequestBody {
+
+        private final ObjectWriter writer;
+        private final Object value;
+
+        private StreamingRequestBody(final ObjectWriter writer, final Object value) {
+            this.writer = writer;
+            this.value = value;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return MEDIA_TYPE;
+        }
+
+        @Override
+        public long contentLength() {
+            return -1;
+        }
+
+        @Override
+        public void writeTo(@Nonnull final BufferedSink sink) throws IOException {
+            // Written from the value every time, so the body can be sent again on retry.
+            writer.writeValue(sink.outputStream(), value);
+        }
+
+    }
+
+}
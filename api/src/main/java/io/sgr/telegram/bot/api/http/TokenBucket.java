@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.api.http;
+
+/**
+ * A token bucket implemented with the generic cell rate algorithm, which hands out time slots instead of blocking.
+ *
+ * @author SgrAlpha
+ */
+class TokenBucket {
+
+    private final long intervalInNanos;
+    private final long burstToleranceInNanos;
+
+    private long theoreticalArrivalTime = Long.MIN_VALUE;
+
+    /**
+     * @param permits         The number of permits refilled in each period.
+     * @param periodInNanos   The length of the period in nanoseconds.
+     * @param burst           The maximum number of permits can be used at once.
+     */
+    TokenBucket(final double permits, final long periodInNanos, final int burst) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException(String.format("Permits should be greater than 0, but got %f", permits));
+        }
+        if (periodInNanos <= 0) {
+            throw new IllegalArgumentException(String.format("Period should be greater than 0, but got %d", periodInNanos));
+        }
+        if (burst <= 0) {
+            throw new IllegalArgumentException(String.format("Burst should be greater than 0, but got %d", burst));
+        }
+        this.intervalInNanos = Math.max(1, (long) (periodInNanos / permits));
+        this.burstToleranceInNanos = (burst - 1) * this.intervalInNanos;
+    }
+
+    /**
+     * Reserve a permit no earlier than the given time.
+     *
+     * @param earliestInNanos The earliest time the permit could be used, in the same time scale as {@link
+     *                        System#nanoTime()}.
+     *
+     * @return The time when the reserved permit can be used.
+     */
+    synchronized long reserve(final long earliestInNanos) {
+        if (theoreticalArrivalTime == Long.MIN_VALUE) {
+            theoreticalArrivalTime = earliestInNanos;
+        }
+        final long allowedAt = Math.max(earliestInNanos, theoreticalArrivalTime - burstToleranceInNanos);
+        theoreticalArrivalTime = Math.max(theoreticalArrivalTime, allowedAt) + intervalInNanos;
+        return allowedAt;
+    }
+
+}
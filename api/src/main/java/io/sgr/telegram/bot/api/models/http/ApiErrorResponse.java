@@ -30,6 +30,7 @@ import java.util.Optional;
 public class ApiErrorResponse {
 
     private final boolean ok;
+    private final Integer errorCode;
     private final String description;
     private final ResponseParameters parameters;
 
@@ -39,12 +40,25 @@ public class ApiErrorResponse {
      * @param parameters  Optional. Information about why a request was unsuccessful, which can help to automatically
      *                    handle the error.
      */
+    public ApiErrorResponse(boolean ok, String description, ResponseParameters parameters) {
+        this(ok, null, description, parameters);
+    }
+
+    /**
+     * @param ok          The request was successful or not.
+     * @param errorCode   Optional. The code of the error, which is the same as the HTTP status code.
+     * @param description Optional. A human-readable explanation of the error.
+     * @param parameters  Optional. Information about why a request was unsuccessful, which can help to automatically
+     *                    handle the error.
+     */
     @JsonCreator
     public ApiErrorResponse(
             @JsonProperty("ok") boolean ok,
+            @JsonProperty("error_code") Integer errorCode,
             @JsonProperty("description") String description,
             @JsonProperty("parameters") ResponseParameters parameters) {
         this.ok = ok;
+        this.errorCode = errorCode;
         this.description = description;
         this.parameters = parameters;
     }
@@ -56,6 +70,13 @@ public class ApiErrorResponse {
         return this.ok;
     }
 
+    /**
+     * @return The code of the error, which is the same as the HTTP status code.
+     */
+    public Optional<Integer> getErrorCode() {
+        return Optional.ofNullable(this.errorCode);
+    }
+
     /**
      * @return A human-readable explanation of the error.
      */
@@ -43,7 +43,7 @@ public class ResponseParameters {
             throw new IllegalArgumentException("A ResponseParameters without both migrateToChatId and retryAfter does not make any sense");
         }
         this.migrateToChatId = migrateToChatId;
-        if (retryAfter <= 0) {
+        if (retryAfter != null && retryAfter <= 0) {
             throw new IllegalArgumentException("The retryAfter should be greater than 0");
         }
         this.retryAfter = retryAfter;
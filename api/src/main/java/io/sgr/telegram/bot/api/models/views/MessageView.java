@@ -0,0 +1,176 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.api.models.views;
+
+import io.sgr.telegram.bot.api.models.Chat;
+import io.sgr.telegram.bot.api.models.Message;
+import io.sgr.telegram.bot.api.models.MessageEntity;
+import io.sgr.telegram.bot.api.models.PhotoSize;
+import io.sgr.telegram.bot.api.models.User;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A lazy view of {@link Message}, backed by its raw JSON. Fields which are read by most handlers are read straight
+ * from the bytes, nested objects are only bound when their getters are called, then kept for later calls.
+ *
+ * @author SgrAlpha
+ */
+public class MessageView extends RawJsonView {
+
+    private User from;
+    private Chat chat;
+    private List<MessageEntity> entities;
+    private List<MessageEntity> captionEntities;
+    private List<PhotoSize> photo;
+    private MessageView replyTo;
+    private Message message;
+
+    /**
+     * @param json The JSON of a message.
+     */
+    public MessageView(@Nonnull final byte[] json) {
+        this(json, 0, json.length);
+    }
+
+    /**
+     * @param json   The bytes holding the JSON of a message, which are not copied, so they should not be changed.
+     * @param offset The offset of the message in the bytes.
+     * @param length The length of the message in the bytes.
+     */
+    public MessageView(@Nonnull final byte[] json, final int offset, final int length) {
+        super(json, offset, length);
+    }
+
+    public long getId() {
+        final Long id = longValue("message_id");
+        return id == null ? 0 : id;
+    }
+
+    public long getDate() {
+        final Long date = longValue("date");
+        return date == null ? 0 : date;
+    }
+
+    /**
+     * @return The identifier of the chat, without binding the chat.
+     */
+    @Nullable
+    public Long getChatId() {
+        return nestedLongValue("chat", "id");
+    }
+
+    /**
+     * @return The identifier of the sender, without binding the sender.
+     */
+    @Nullable
+    public Long getFromId() {
+        return nestedLongValue("from", "id");
+    }
+
+    @Nullable
+    public String getText() {
+        return textValue("text");
+    }
+
+    @Nullable
+    public String getCaption() {
+        return textValue("caption");
+    }
+
+    @Nullable
+    public String getMediaGroupId() {
+        return textValue("media_group_id");
+    }
+
+    @Nullable
+    public User getFrom() {
+        if (from == null) {
+            from = bind("from", User.class);
+        }
+        return from;
+    }
+
+    @Nullable
+    public Chat getChat() {
+        if (chat == null) {
+            chat = bind("chat", Chat.class);
+        }
+        return chat;
+    }
+
+    @Nullable
+    public List<MessageEntity> getEntities() {
+        if (entities == null) {
+            entities = bindList("entities", MessageEntity.class);
+        }
+        return entities;
+    }
+
+    @Nullable
+    public List<MessageEntity> getCaptionEntities() {
+        if (captionEntities == null) {
+            captionEntities = bindList("caption_entities", MessageEntity.class);
+        }
+        return captionEntities;
+    }
+
+    @Nullable
+    public List<PhotoSize> getPhoto() {
+        if (photo == null) {
+            photo = bindList("photo", PhotoSize.class);
+        }
+        return photo;
+    }
+
+    @Nullable
+    public MessageView getReplyTo() {
+        if (replyTo == null) {
+            replyTo = messageView("reply_to_message");
+        }
+        return replyTo;
+    }
+
+    /**
+     * Bind any other field of the message, which is bound again on every call.
+     *
+     * @param field The name of the field in Telegram's JSON, e.g. "sticker".
+     * @param type  The type to bind to.
+     * @param <T>   The type to bind to.
+     *
+     * @return The bound object, or NULL if the field is absent.
+     */
+    @Nullable
+    public <T> T get(@Nonnull final String field, @Nonnull final Class<T> type) {
+        return bind(field, type);
+    }
+
+    /**
+     * @return The fully bound message.
+     */
+    public Message toMessage() {
+        if (message == null) {
+            message = bindAll(Message.class);
+        }
+        return message;
+    }
+
+}
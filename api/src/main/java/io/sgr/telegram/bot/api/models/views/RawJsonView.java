@@ -0,0 +1,290 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.api.models.views;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+import io.sgr.telegram.bot.api.utils.JsonUtil;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Base of views backed by the raw JSON bytes of an object. Top level fields are located by one pass over the bytes,
+ * which skips nested values without decoding them, and a field is only parsed or bound when asked for.
+ *
+ * @author SgrAlpha
+ */
+abstract class RawJsonView {
+
+    private static final int INITIAL_FIELD_CAPACITY = 8;
+    // Longer numbers might overflow a long, leave them to the parser.
+    private static final int MAX_PLAIN_DIGITS = 18;
+
+    private final byte[] json;
+    private final int offset;
+    private final int length;
+
+    private String[] names;
+    private int[] starts;
+    private int[] ends;
+    private int fieldCount = -1;
+
+    RawJsonView(@Nonnull final byte[] json, final int offset, final int length) {
+        checkNotNull(json, "Missing JSON!");
+        checkPositionIndexes(offset, offset + length, json.length);
+        this.json = json;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * @return A copy of the raw JSON behind this view.
+     */
+    public byte[] toBytes() {
+        return Arrays.copyOfRange(json, offset, offset + length);
+    }
+
+    /**
+     * Locate top level fields, done once on first access.
+     *
+     * @throws IOException If the JSON is not an object.
+     */
+    final void index() throws IOException {
+        if (fieldCount >= 0) {
+            return;
+        }
+        String[] names = new String[INITIAL_FIELD_CAPACITY];
+        int[] starts = new int[INITIAL_FIELD_CAPACITY];
+        int[] ends = new int[INITIAL_FIELD_CAPACITY];
+        int count = 0;
+        try (JsonParser parser = JsonUtil.getJsonFactory().createParser(json, offset, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("JSON of a view should be an object");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                // Field names are canonicalized by the parser, so they take no memory of their own.
+                final String name = parser.getCurrentName();
+                token = parser.nextToken();
+                if (token == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                if (count == names.length) {
+                    names = Arrays.copyOf(names, count * 2);
+                    starts = Arrays.copyOf(starts, count * 2);
+                    ends = Arrays.copyOf(ends, count * 2);
+                }
+                names[count] = name;
+                starts[count] = offset + (int) parser.getTokenLocation().getByteOffset();
+                parser.skipChildren();
+                // Strings are only decoded when asked for, skip to the end of it without decoding.
+                parser.finishToken();
+                ends[count] = offset + (int) parser.getCurrentLocation().getByteOffset();
+                count++;
+            }
+            if (token != JsonToken.END_OBJECT) {
+                throw new IOException(String.format("Unexpected token %s in JSON of a view", token));
+            }
+        }
+        this.names = names;
+        this.starts = starts;
+        this.ends = ends;
+        this.fieldCount = count;
+    }
+
+    /**
+     * @return The index of the field, or -1 if it is absent or NULL.
+     */
+    final int find(final String field) {
+        try {
+            index();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (int i = 0; i < fieldCount; i++) {
+            if (names[i].equals(field)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Nullable
+    final Long longValue(final String field) {
+        final int index = find(field);
+        if (index < 0) {
+            return null;
+        }
+        final Long plain = plainLong(starts[index], ends[index]);
+        if (plain != null) {
+            return plain;
+        }
+        try (JsonParser parser = valueParser(index)) {
+            parser.nextToken();
+            return parser.getValueAsLong();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Nullable
+    final String textValue(final String field) {
+        final int index = find(field);
+        if (index < 0) {
+            return null;
+        }
+        final String plain = plainText(starts[index], ends[index]);
+        if (plain != null) {
+            return plain;
+        }
+        try (JsonParser parser = valueParser(index)) {
+            parser.nextToken();
+            return parser.getValueAsString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return The value of a nested object field read straight from the bytes, without binding the object.
+     */
+    @Nullable
+    final Long nestedLongValue(final String field, final String nested) {
+        final int index = find(field);
+        if (index < 0) {
+            return null;
+        }
+        try (JsonParser parser = valueParser(index)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final boolean found = nested.equals(parser.getCurrentName());
+                if (parser.nextToken() != JsonToken.VALUE_NULL && found) {
+                    final Long plain = parser.hasToken(JsonToken.VALUE_NUMBER_INT) ? plainLong(starts[index]
+                            + (int) parser.getTokenLocation().getByteOffset(), starts[index] + (int) parser.getCurrentLocation().getByteOffset()) : null;
+                    return plain == null ? parser.getValueAsLong() : plain;
+                }
+                parser.skipChildren();
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return The view of a nested object field sharing the bytes of this view, or NULL if the field is absent.
+     */
+    @Nullable
+    final MessageView messageView(final String field) {
+        final int index = find(field);
+        return index < 0 ? null : new MessageView(json, starts[index], ends[index] - starts[index]);
+    }
+
+    @Nullable
+    final <T> T bind(final String field, final Class<T> type) {
+        return bind(field, JsonUtil.getObjectMapper().getTypeFactory().constructType(type));
+    }
+
+    @Nullable
+    final <T> List<T> bindList(final String field, final Class<T> elementType) {
+        return bind(field, JsonUtil.getObjectMapper().getTypeFactory().constructCollectionType(List.class, elementType));
+    }
+
+    @Nullable
+    final <T> T bind(final String field, final JavaType type) {
+        final int index = find(field);
+        return index < 0 ? null : bind(starts[index], ends[index], type);
+    }
+
+    final <T> T bindAll(final Class<T> type) {
+        return bind(offset, offset + length, JsonUtil.getObjectMapper().getTypeFactory().constructType(type));
+    }
+
+    private <T> T bind(final int start, final int end, final JavaType type) {
+        final ObjectMapper mapper = JsonUtil.getObjectMapper();
+        try {
+            return mapper.readValue(json, start, end - start, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return The integer in the given range of bytes, or NULL if it is not made of plain digits, which should be
+     *         left to the parser.
+     */
+    @Nullable
+    private Long plainLong(final int start, final int end) {
+        final boolean negative = start < end && json[start] == '-';
+        final int first = negative ? start + 1 : start;
+        if (first == end || end - first > MAX_PLAIN_DIGITS) {
+            return null;
+        }
+        long value = 0;
+        for (int i = first; i < end; i++) {
+            final int digit = json[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return null;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * @return The string in the given range of bytes, or NULL if it is not a string without escapes, which should be
+     *         left to the parser.
+     */
+    @Nullable
+    private String plainText(final int start, final int end) {
+        if (end - start < 2 || json[start] != '"') {
+            return null;
+        }
+        for (int i = start + 1; i < end - 1; i++) {
+            if (json[i] == '\\') {
+                return null;
+            }
+        }
+        return new String(json, start + 1, end - start - 2, StandardCharsets.UTF_8);
+    }
+
+    private JsonParser valueParser(final int index) throws IOException {
+        return JsonUtil.getJsonFactory().createParser(json, starts[index], ends[index] - starts[index]);
+    }
+
+    @Override
+    public String toString() {
+        return new String(json, offset, length, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.api.models.views;
+
+import io.sgr.telegram.bot.api.models.CallbackQuery;
+import io.sgr.telegram.bot.api.models.Poll;
+import io.sgr.telegram.bot.api.models.PollAnswer;
+import io.sgr.telegram.bot.api.models.Update;
+import io.sgr.telegram.bot.api.models.inline.ChosenInlineResult;
+import io.sgr.telegram.bot.api.models.inline.InlineQuery;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A lazy view of {@link Update}, backed by its raw JSON, which binds nothing until a getter is called. Messages are
+ * exposed as {@link MessageView} sharing the same bytes, so reading chat id, sender and text of a message neither
+ * builds a JSON tree nor binds the rest of it.
+ *
+ * <p>Views are meant to be used by one thread at a time.
+ *
+ * @author SgrAlpha
+ */
+public class UpdateView extends RawJsonView {
+
+    private MessageView message;
+    private MessageView editedMessage;
+    private MessageView channelPost;
+    private MessageView editedChannelPost;
+    private InlineQuery inlineQuery;
+    private ChosenInlineResult chosenInlineResult;
+    private CallbackQuery callbackQuery;
+    private Poll poll;
+    private PollAnswer pollAnswer;
+    private Update update;
+
+    private UpdateView(@Nonnull final byte[] json, final int offset, final int length) {
+        super(json, offset, length);
+    }
+
+    /**
+     * @param json The JSON of an update, which is not copied, so it should not be changed.
+     *
+     * @return The view of the update.
+     *
+     * @throws IOException If the JSON is not an object.
+     */
+    public static UpdateView parse(@Nonnull final byte[] json) throws IOException {
+        return parse(json, 0, json.length);
+    }
+
+    /**
+     * @param json   The bytes holding the JSON of an update, which are not copied, so they should not be changed.
+     * @param offset The offset of the update in the bytes.
+     * @param length The length of the update in the bytes.
+     *
+     * @return The view of the update.
+     *
+     * @throws IOException If the JSON is not an object.
+     */
+    public static UpdateView parse(@Nonnull final byte[] json, final int offset, final int length) throws IOException {
+        final UpdateView view = new UpdateView(json, offset, length);
+        view.index();
+        return view;
+    }
+
+    public long getId() {
+        final Long id = longValue("update_id");
+        return id == null ? 0 : id;
+    }
+
+    @Nullable
+    public MessageView getMessage() {
+        if (message == null) {
+            message = messageView("message");
+        }
+        return message;
+    }
+
+    @Nullable
+    public MessageView getEditedMessage() {
+        if (editedMessage == null) {
+            editedMessage = messageView("edited_message");
+        }
+        return editedMessage;
+    }
+
+    @Nullable
+    public MessageView getChannelPost() {
+        if (channelPost == null) {
+            channelPost = messageView("channel_post");
+        }
+        return channelPost;
+    }
+
+    @Nullable
+    public MessageView getEditedChannelPost() {
+        if (editedChannelPost == null) {
+            editedChannelPost = messageView("edited_channel_post");
+        }
+        return editedChannelPost;
+    }
+
+    @Nullable
+    public InlineQuery getInlineQuery() {
+        if (inlineQuery == null) {
+            inlineQuery = bind("inline_query", InlineQuery.class);
+        }
+        return inlineQuery;
+    }
+
+    @Nullable
+    public ChosenInlineResult getChosenInlineResult() {
+        if (chosenInlineResult == null) {
+            chosenInlineResult = bind("chosen_inline_result", ChosenInlineResult.class);
+        }
+        return chosenInlineResult;
+    }
+
+    @Nullable
+    public CallbackQuery getCallbackQuery() {
+        if (callbackQuery == null) {
+            callbackQuery = bind("callback_query", CallbackQuery.class);
+        }
+        return callbackQuery;
+    }
+
+    @Nullable
+    public Poll getPoll() {
+        if (poll == null) {
+            poll = bind("poll", Poll.class);
+        }
+        return poll;
+    }
+
+    @Nullable
+    public PollAnswer getPollAnswer() {
+        if (pollAnswer == null) {
+            pollAnswer = bind("poll_answer", PollAnswer.class);
+        }
+        return pollAnswer;
+    }
+
+    /**
+     * @return The fully bound update, for handlers which need all of it.
+     */
+    public Update toUpdate() {
+        if (update == null) {
+            update = bindAll(Update.class);
+        }
+        return update;
+    }
+
+}
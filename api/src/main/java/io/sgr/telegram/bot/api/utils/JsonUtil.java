@@ -22,7 +22,14 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @author SgrAlpha
@@ -37,6 +44,9 @@ public class JsonUtil {
         OBJECT_MAPPER.registerModule(new Jdk8Module());
     }
 
+    private static final ConcurrentMap<Type, ObjectReader> READERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Type, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+
     /**
      * Get the JsonFactory
      *
@@ -55,6 +65,58 @@ public class JsonUtil {
         return OBJECT_MAPPER;
     }
 
+    /**
+     * Get the ObjectMapper which binds with generated bytecode instead of reflection. It is configured the same as
+     * {@link #getObjectMapper()} otherwise, and falls back to reflection where bytecode can not be generated.
+     *
+     * @return An instance of ObjectMapper
+     */
+    public static ObjectMapper getOptimizedObjectMapper() {
+        return OptimizedObjectMapperHolder.INST;
+    }
+
+    /**
+     * Get a reader of the optimized ObjectMapper for the given type, readers are created once and then cached.
+     *
+     * @param type The type to read.
+     * @return An instance of ObjectReader
+     */
+    public static ObjectReader getReader(final Type type) {
+        checkNotNull(type, "Type to read should be specified");
+        return READERS.computeIfAbsent(type, t -> {
+            final ObjectMapper mapper = getOptimizedObjectMapper();
+            return mapper.readerFor(mapper.getTypeFactory().constructType(t));
+        });
+    }
+
+    /**
+     * Get a writer of the optimized ObjectMapper for the given type, writers are created once and then cached.
+     *
+     * @param type The type to write.
+     * @return An instance of ObjectWriter
+     */
+    public static ObjectWriter getWriter(final Type type) {
+        checkNotNull(type, "Type to write should be specified");
+        return WRITERS.computeIfAbsent(type, t -> {
+            final ObjectMapper mapper = getOptimizedObjectMapper();
+            return mapper.writerFor(mapper.getTypeFactory().constructType(t));
+        });
+    }
+
+    /**
+     * Build and cache readers and writers of the given types ahead of time, so the first messages after start up do
+     * not pay for resolving (de)serializers.
+     *
+     * @param types The types to read or write.
+     */
+    public static void warmUp(final Type... types) {
+        checkNotNull(types, "Types to warm up should be specified");
+        for (final Type type : types) {
+            getReader(type);
+            getWriter(type);
+        }
+    }
+
     /**
      * Convert a object to JSON string
      *
@@ -73,4 +135,13 @@ public class JsonUtil {
         return "{}";
     }
 
+    private static class OptimizedObjectMapperHolder {
+
+        // Own factory, since an ObjectMapper binds itself as the codec of its factory.
+        private static final ObjectMapper INST = new ObjectMapper(new JsonFactory())
+                .registerModule(new Jdk8Module())
+                .registerModule(new AfterburnerModule());
+
+    }
+
 }
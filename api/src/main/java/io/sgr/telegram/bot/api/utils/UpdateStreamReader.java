@@ -0,0 +1,237 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.api.utils;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import io.sgr.telegram.bot.api.models.Update;
+import io.sgr.telegram.bot.api.models.views.UpdateView;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Reads updates one by one from the response of getUpdates, so each update can be handled as soon as it is parsed
+ * and only one of them is held in memory at a time. Updates can also be read as their raw JSON, exactly as received,
+ * without being bound, if the reader is created to keep them.
+ *
+ * @author SgrAlpha
+ */
+public class UpdateStreamReader implements Closeable {
+
+    private static final String RESULT_FIELD = "result";
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+
+    private final RecordingInputStream in;
+    private final JsonParser parser;
+    private boolean inResult = false;
+    private boolean finished = false;
+
+    /**
+     * @param in The response body of getUpdates, which will be closed along with this reader.
+     *
+     * @throws IOException If failed to create the parser.
+     */
+    public UpdateStreamReader(@Nonnull final InputStream in) throws IOException {
+        this(in, false);
+    }
+
+    /**
+     * @param in  The response body of getUpdates, which will be closed along with this reader.
+     * @param raw Whether or not to keep the raw JSON of updates for {@link #nextRaw()} and {@link #nextView()}, which
+     *            costs a copy of every byte read, so leave it off if only {@link #next()} is used.
+     *
+     * @throws IOException If failed to create the parser.
+     */
+    public UpdateStreamReader(@Nonnull final InputStream in, final boolean raw) throws IOException {
+        checkNotNull(in, "Missing input stream!");
+        this.in = raw ? new RecordingInputStream(in) : null;
+        this.parser = JsonUtil.getJsonFactory().createParser(raw ? this.in : in);
+    }
+
+    /**
+     * @return The next update, or NULL if there is no more.
+     *
+     * @throws IOException If failed to read or parse the response.
+     */
+    @Nullable
+    public Update next() throws IOException {
+        return nextObject() ? JsonUtil.getObjectMapper().readValue(parser, Update.class) : null;
+    }
+
+    /**
+     * Same as {@link #next()}, but returns the raw JSON of the update, byte for byte as received.
+     *
+     * @return The raw JSON of next update, or NULL if there is no more.
+     *
+     * @throws IOException If failed to read or parse the response.
+     */
+    @Nullable
+    public byte[] nextRaw() throws IOException {
+        checkState(in != null, "Raw JSON of updates is not kept, create the reader with raw enabled.");
+        if (!nextObject()) {
+            return null;
+        }
+        final long start = parser.getTokenLocation().getByteOffset();
+        parser.skipChildren();
+        return in.copy(start, parser.getCurrentLocation().getByteOffset());
+    }
+
+    /**
+     * Same as {@link #next()}, but returns a view backed by the raw JSON of the update, nested objects are bound on
+     * demand.
+     *
+     * @return The view of next update, or NULL if there is no more.
+     *
+     * @throws IOException If failed to read or parse the response.
+     */
+    @Nullable
+    public UpdateView nextView() throws IOException {
+        final byte[] raw = nextRaw();
+        return raw == null ? null : UpdateView.parse(raw);
+    }
+
+    private boolean nextObject() throws IOException {
+        if (finished) {
+            return false;
+        }
+        if (!inResult && !seekResult()) {
+            finished = true;
+            return false;
+        }
+        final JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_OBJECT) {
+            if (in != null) {
+                // Nothing before this update will be asked for again.
+                in.discardBefore(parser.getTokenLocation().getByteOffset());
+            }
+            return true;
+        }
+        if (token == JsonToken.END_ARRAY) {
+            finished = true;
+            return false;
+        }
+        throw new IOException(String.format("Unexpected token %s in result of getUpdates", token));
+    }
+
+    private boolean seekResult() throws IOException {
+        if (parser.currentToken() == null && parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Response of getUpdates should be a JSON object");
+        }
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            final boolean isResult = RESULT_FIELD.equals(parser.getCurrentName());
+            token = parser.nextToken();
+            if (isResult && token == JsonToken.START_ARRAY) {
+                inResult = true;
+                return true;
+            }
+            parser.skipChildren();
+        }
+        if (token != JsonToken.END_OBJECT) {
+            throw new IOException(String.format("Unexpected token %s in response of getUpdates", token));
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    /**
+     * Keeps the bytes read through it since the start of current update, as the parser reads ahead in chunks.
+     */
+    private static class RecordingInputStream extends FilterInputStream {
+
+        private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+        private int count = 0;
+        // The position in the stream of the first byte kept.
+        private long base = 0;
+        // The position in the stream before which bytes are no longer needed.
+        private long mark = 0;
+
+        private RecordingInputStream(final InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b >= 0) {
+                ensureCapacity(1);
+                buffer[count++] = (byte) b;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(@Nonnull final byte[] b, final int off, final int len) throws IOException {
+            final int read = super.read(b, off, len);
+            if (read > 0) {
+                ensureCapacity(read);
+                System.arraycopy(b, off, buffer, count, read);
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            // Skipped bytes are read and kept as well, so positions never go out of step.
+            final int read = read(new byte[(int) Math.min(n, INITIAL_BUFFER_SIZE)]);
+            return Math.max(read, 0);
+        }
+
+        private void discardBefore(final long position) {
+            // Bytes are only dropped when room is needed, instead of moving the rest on every update.
+            mark = Math.max(mark, position);
+        }
+
+        private byte[] copy(final long start, final long end) {
+            return Arrays.copyOfRange(buffer, (int) (start - base), (int) (end - base));
+        }
+
+        private void ensureCapacity(final int more) {
+            if (count + more <= buffer.length) {
+                return;
+            }
+            final int discarded = (int) (mark - base);
+            if (discarded > 0) {
+                System.arraycopy(buffer, discarded, buffer, 0, count - discarded);
+                count -= discarded;
+                base = mark;
+            }
+            if (count + more > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + more));
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.sgr.telegram.bot.api.http.CallPriority;
+import io.sgr.telegram.bot.api.http.LongPollingTimeoutInterceptor;
+import io.sgr.telegram.bot.api.http.OutboundRequestQueue;
+import io.sgr.telegram.bot.api.models.Update;
+import io.sgr.telegram.bot.api.models.http.ApiResponse;
+import io.sgr.telegram.bot.api.models.http.GetUpdatesPayload;
+import io.sgr.telegram.bot.api.models.http.SendMessagePayload;
+import io.sgr.telegram.bot.api.utils.JsonUtil;
+
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import org.junit.Test;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class BotApiBuilderTest {
+
+    private static final String TOKEN = "123456:ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    @Test
+    public void testDefaultHttpClient() {
+        final OkHttpClient client = BotApi.newBuilder(TOKEN).buildHttpClient();
+        assertEquals(BotApi.BotApiBuilder.DEFAULT_MAX_REQUESTS, client.dispatcher().getMaxRequests());
+        assertEquals(BotApi.BotApiBuilder.DEFAULT_MAX_REQUESTS, client.dispatcher().getMaxRequestsPerHost());
+        assertEquals(TimeUnit.SECONDS.toMillis(BotApi.BotApiBuilder.DEFAULT_READ_TIMEOUT_IN_SEC), client.readTimeoutMillis());
+        assertTrue(client.retryOnConnectionFailure());
+        assertTrue(client.interceptors().stream().anyMatch(LongPollingTimeoutInterceptor.class::isInstance));
+    }
+
+    @Test
+    public void testTunedHttpClient() {
+        final OkHttpClient client = BotApi.newBuilder(TOKEN)
+                .setMaxRequests(32)
+                .setMaxRequestsPerHost(16)
+                .setConnectionPool(8, 1, TimeUnit.MINUTES)
+                .setProtocols(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                .setConnectTimeout(5, TimeUnit.SECONDS)
+                .setReadTimeout(10, TimeUnit.SECONDS)
+                .setWriteTimeout(15, TimeUnit.SECONDS)
+                .buildHttpClient();
+        assertEquals(32, client.dispatcher().getMaxRequests());
+        assertEquals(16, client.dispatcher().getMaxRequestsPerHost());
+        assertEquals(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1), client.protocols());
+        assertEquals(5000, client.connectTimeoutMillis());
+        assertEquals(10000, client.readTimeoutMillis());
+        assertEquals(15000, client.writeTimeoutMillis());
+    }
+
+    @Test
+    public void testSharedHttpClient() {
+        final ConnectionPool pool = new ConnectionPool();
+        final OkHttpClient shared = new OkHttpClient.Builder().connectionPool(pool).build();
+        final OkHttpClient client = BotApi.newBuilder(TOKEN).setHttpClient(shared).buildHttpClient();
+        assertSame(pool, client.connectionPool());
+        assertSame(shared.dispatcher(), client.dispatcher());
+        assertTrue(shared.interceptors().isEmpty());
+
+        final OkHttpClient tuned = BotApi.newBuilder(TOKEN).setHttpClient(shared).setMaxRequests(8).buildHttpClient();
+        assertNotSame(shared.dispatcher(), tuned.dispatcher());
+        assertEquals(8, tuned.dispatcher().getMaxRequests());
+    }
+
+    @Test
+    public void testJsonWarmUpTypes() {
+        final TypeFactory typeFactory = JsonUtil.getOptimizedObjectMapper().getTypeFactory();
+        final Set<Type> types = BotApiJsonWarmer.getTypes();
+        assertTrue(types.contains(GetUpdatesPayload.class));
+        assertTrue(types.contains(SendMessagePayload.class));
+        assertTrue(types.contains(typeFactory.constructParametricType(ApiResponse.class,
+                typeFactory.constructCollectionType(List.class, Update.class))));
+        assertFalse(types.contains(typeFactory.constructParametricType(ApiResponse.class, ResponseBody.class)));
+        assertFalse(types.contains(RequestBody.class));
+        assertNotNull(BotApi.newBuilder(TOKEN).enableOptimizedJson().build());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxRequests() {
+        BotApi.newBuilder(TOKEN).setMaxRequests(0);
+    }
+
+    @Test
+    public void testSharedOutboundQueue() {
+        final OutboundRequestQueue queue = new OutboundRequestQueue(1, 1, OutboundRequestQueue.OverflowPolicy.REJECT);
+        final BotApi.BotApiBuilder builder = BotApi.newBuilder(TOKEN).setOutboundQueue(queue).setCallPriority("sendMessage", CallPriority.LOW);
+        assertNotNull(builder.newCallAdapterFactory());
+        assertEquals(CallPriority.LOW, queue.getPriority("sendMessage", CallPriority.NORMAL));
+        assertEquals(2, queue.getRemainingCapacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidOutboundQueue() {
+        BotApi.newBuilder(TOKEN).setOutboundQueue(1, -1, OutboundRequestQueue.OverflowPolicy.BLOCK);
+    }
+
+}
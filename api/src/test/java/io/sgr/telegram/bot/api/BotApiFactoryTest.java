@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.sgr.telegram.bot.api.models.Message;
+import io.sgr.telegram.bot.api.models.User;
+import io.sgr.telegram.bot.api.models.http.SendMessagePayload;
+import io.sgr.telegram.bot.api.utils.JsonUtil;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class BotApiFactoryTest {
+
+    @Test
+    public void testBotsShareHttpClient() throws Exception {
+        final List<String> paths = new CopyOnWriteArrayList<>();
+        final OkHttpClient base = new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    paths.add(chain.request().url().encodedPath());
+                    return new Response.Builder()
+                            .request(chain.request())
+                            .protocol(Protocol.HTTP_1_1)
+                            .code(200)
+                            .message("OK")
+                            .body(ResponseBody.create(MediaType.get("application/json"),
+                                    "{\"ok\":true,\"result\":{\"id\":1,\"is_bot\":true,\"first_name\":\"bot\"}}"))
+                            .build();
+                })
+                .build();
+        final BotApiFactory factory = BotApiFactory.newBuilder().setHttpClient(base).setMaxRequests(4).build();
+        try {
+            assertEquals(4, factory.getHttpClient().dispatcher().getMaxRequests());
+            final User first = factory.create("1:first").getMe().get(5, TimeUnit.SECONDS);
+            final User second = factory.create("2:second").getMe().get(5, TimeUnit.SECONDS);
+            assertEquals(1, first.getId());
+            assertEquals(1, second.getId());
+            assertEquals(2, paths.size());
+            assertTrue(paths.contains("/bot1:first/getMe"));
+            assertTrue(paths.contains("/bot2:second/getMe"));
+        } finally {
+            factory.shutdown();
+        }
+    }
+
+    @Test
+    public void testStreamingRequestBodies() throws Exception {
+        final List<String> bodies = new CopyOnWriteArrayList<>();
+        final OkHttpClient base = new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    final Buffer buffer = new Buffer();
+                    chain.request().body().writeTo(buffer);
+                    bodies.add(buffer.readUtf8());
+                    return new Response.Builder()
+                            .request(chain.request())
+                            .protocol(Protocol.HTTP_1_1)
+                            .code(200)
+                            .message("OK")
+                            .body(ResponseBody.create(MediaType.get("application/json"),
+                                    "{\"ok\":true,\"result\":{\"message_id\":1,\"date\":0,\"chat\":{\"id\":123,\"type\":\"private\"}}}"))
+                            .build();
+                })
+                .build();
+        final BotApiFactory factory = BotApiFactory.newBuilder().setHttpClient(base).enableStreamingRequestBodies().build();
+        try {
+            final SendMessagePayload payload = new SendMessagePayload(123L, "Hello");
+            final Message message = factory.create("1:first").sendMessage(payload).get(5, TimeUnit.SECONDS);
+            assertEquals(123, message.getChat().getId());
+            assertEquals(Collections.singletonList(JsonUtil.toJson(payload)), bodies);
+        } finally {
+            factory.shutdown();
+        }
+    }
+
+    @Test
+    public void testShutdownKeepsCallerResources() {
+        final OkHttpClient base = new OkHttpClient();
+        BotApiFactory.newBuilder().setHttpClient(base).build().shutdown();
+        assertFalse(base.dispatcher().executorService().isShutdown());
+
+        final BotApiFactory factory = BotApiFactory.newBuilder().setHttpClient(base).setMaxRequests(8).build();
+        factory.shutdown();
+        assertTrue(factory.getHttpClient().dispatcher().executorService().isShutdown());
+        assertFalse(base.dispatcher().executorService().isShutdown());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidToken() {
+        BotApiFactory.newBuilder().build().create("invalid");
+    }
+
+}
@@ -23,9 +23,13 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import io.sgr.telegram.bot.api.models.http.ApiErrorResponse;
+import io.sgr.telegram.bot.api.models.http.ResponseParameters;
+import io.sgr.telegram.bot.api.utils.JsonUtil;
 
 import org.junit.Test;
 
+import java.io.IOException;
+
 public class ApiCallExceptionTest {
 
     @Test
@@ -46,4 +50,15 @@ public class ApiCallExceptionTest {
         assertEquals(NullPointerException.class.getName(), e.getMessage());
     }
 
+    @Test
+    public void testParseErrorResponse() throws IOException {
+        final String json = "{\"ok\":false,\"error_code\":400,\"description\":\"Bad Request: group chat was upgraded to a supergroup chat\","
+                + "\"parameters\":{\"migrate_to_chat_id\":-1001234567890}}";
+        final ApiErrorResponse response = JsonUtil.getObjectMapper().readValue(json, ApiErrorResponse.class);
+        assertFalse(response.isOk());
+        assertEquals(Integer.valueOf(400), response.getErrorCode().orElse(null));
+        assertEquals(Long.valueOf(-1001234567890L), response.getParameters().map(ResponseParameters::getMigrateToChatId).orElse(null));
+        assertFalse(new ApiErrorResponse(false, "Something is wrong", null).getErrorCode().isPresent());
+    }
+
 }
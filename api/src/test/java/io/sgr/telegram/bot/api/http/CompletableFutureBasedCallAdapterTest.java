@@ -18,7 +18,12 @@
 package io.sgr.telegram.bot.api.http;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -35,6 +40,8 @@ import retrofit2.Call;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @RunWith(MockitoJUnitRunner.class)
 public class CompletableFutureBasedCallAdapterTest<T> {
@@ -73,6 +80,53 @@ public class CompletableFutureBasedCallAdapterTest<T> {
         verify(mockCall, times(1)).cancel();
     }
 
+    @Test
+    public void testAdaptWithRateLimiter() {
+        final ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        final CompletableFutureBasedCallAdapter<T> adapter = new CompletableFutureBasedCallAdapter<>(String.class, false, LOGGER,
+                new RateLimiter(1, 1, 1), scheduler);
+        adapter.adapt(mockCall);
+        verify(mockCall, times(1)).enqueue(any());
+        verify(scheduler, never()).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        adapter.adapt(mockCall);
+        verify(mockCall, times(1)).enqueue(any());
+        verify(scheduler, times(1)).schedule(any(Runnable.class), anyLong(), eq(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void testAdaptWithOutboundQueue() {
+        final OutboundRequestQueue queue = new OutboundRequestQueue(1, 0, OutboundRequestQueue.OverflowPolicy.REJECT);
+        final CompletableFutureBasedCallAdapter<T> adapter = new CompletableFutureBasedCallAdapter<>(String.class, false, LOGGER,
+                null, queue, null, CallPriority.NORMAL, -1, mock(ScheduledExecutorService.class));
+        final CompletableFuture<T> first = adapter.adapt(mockCall);
+        verify(mockCall, times(1)).enqueue(any());
+        final CompletableFuture<T> second = adapter.adapt(mockCall);
+        assertTrue(second.isCompletedExceptionally());
+        verify(mockCall, times(1)).enqueue(any());
+        first.complete(null);
+        adapter.adapt(mockCall);
+        verify(mockCall, times(2)).enqueue(any());
+    }
+
+    @Test
+    public void testPriorityOverriddenAfterCreated() {
+        final OutboundRequestQueue queue = new OutboundRequestQueue(1, 1, OutboundRequestQueue.OverflowPolicy.REJECT);
+        final CompletableFutureBasedCallAdapter<T> adapter = new CompletableFutureBasedCallAdapter<>(String.class, false, LOGGER,
+                null, queue, "sendMessage", CallPriority.NORMAL, -1, mock(ScheduledExecutorService.class));
+        adapter.adapt(mockCall);
+        queue.setPriority("sendMessage", CallPriority.HIGH);
+        adapter.adapt(mockCall);
+        // The second call takes a slot of high priority instead of waiting behind the first one.
+        verify(mockCall, times(2)).enqueue(any());
+        assertEquals(2, queue.getInFlightCount());
+    }
+
+    @SuppressWarnings("ConstantConditions")
+    @Test(expected = NullPointerException.class)
+    public void testConstructWithoutScheduler() {
+        new CompletableFutureBasedCallAdapter<>(Object.class, true, LOGGER, RateLimiter.newInstance(), null);
+    }
+
     @SuppressWarnings("ConstantConditions")
     @Test(expected = NullPointerException.class)
     public void testConstructWithoutResponseTye() {
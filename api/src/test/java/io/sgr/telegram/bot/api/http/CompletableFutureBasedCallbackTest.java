@@ -17,12 +17,72 @@
 
 package io.sgr.telegram.bot.api.http;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.sgr.telegram.bot.api.models.http.ApiResponse;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.LoggerFactory;
+import retrofit2.Call;
+import retrofit2.Response;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class CompletableFutureBasedCallbackTest {
 
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testRetryAfterTooManyRequests() {
+        final ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        final CompletableFuture<String> future = new CompletableFuture<>();
+        final CompletableFutureBasedCallback<String> callback = new CompletableFutureBasedCallback<>(future, false,
+                LoggerFactory.getLogger(CompletableFutureBasedCallbackTest.class), scheduler);
+        final Call<ApiResponse<String>> call = mock(Call.class);
+        final Call<ApiResponse<String>> cloned = mock(Call.class);
+        when(call.clone()).thenReturn(cloned);
+        final ResponseBody errorBody = ResponseBody.create(MediaType.get("application/json"),
+                "{\"ok\":false,\"error_code\":429,\"description\":\"Too Many Requests: retry after 7\",\"parameters\":{\"retry_after\":7}}");
+        callback.onResponse(call, Response.error(429, errorBody));
+
+        final ArgumentCaptor<Runnable> retry = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler, times(1)).schedule(retry.capture(), eq(7L), eq(TimeUnit.SECONDS));
+        verify(cloned, never()).enqueue(any());
+        assertFalse(future.isDone());
+        retry.getValue().run();
+        verify(cloned, times(1)).enqueue(callback);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testBoundedRetryAfterTooManyRequests() {
+        final ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        final CompletableFuture<String> future = new CompletableFuture<>();
+        final CompletableFutureBasedCallback<String> callback = new CompletableFutureBasedCallback<>(future, false,
+                LoggerFactory.getLogger(CompletableFutureBasedCallbackTest.class), scheduler, 1);
+        final Call<ApiResponse<String>> call = mock(Call.class);
+        final String error = "{\"ok\":false,\"error_code\":429,\"description\":\"Too Many Requests: retry after 7\",\"parameters\":{\"retry_after\":7}}";
+        callback.onResponse(call, Response.error(429, ResponseBody.create(MediaType.get("application/json"), error)));
+        verify(scheduler, times(1)).schedule(any(Runnable.class), eq(7L), eq(TimeUnit.SECONDS));
+        assertFalse(future.isDone());
+
+        callback.onResponse(call, Response.error(429, ResponseBody.create(MediaType.get("application/json"), error)));
+        verify(scheduler, times(1)).schedule(any(Runnable.class), eq(7L), eq(TimeUnit.SECONDS));
+        assertTrue(future.isCompletedExceptionally());
+    }
+
     @SuppressWarnings("ConstantConditions")
     @Test(expected = NullPointerException.class)
     public void testConstructWithoutResponseTye() {
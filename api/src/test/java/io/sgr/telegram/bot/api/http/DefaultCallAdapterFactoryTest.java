@@ -24,6 +24,7 @@ import static org.junit.Assert.assertTrue;
 
 import io.sgr.telegram.bot.api.models.http.ApiResponse;
 
+import okhttp3.ResponseBody;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -67,6 +68,30 @@ public class DefaultCallAdapterFactoryTest {
         assertEquals(DefaultCallAdapterFactory.ApiResponseType.class, responseType.getClass());
     }
 
+    @Test
+    public void testCreateStreamingAdapter() {
+        DefaultCallAdapterFactory factory = new DefaultCallAdapterFactory(false, LOGGER);
+        Type returnType = new ParameterizedType() {
+            @Override
+            public Type[] getActualTypeArguments() {
+                return new Type[]{ResponseBody.class};
+            }
+
+            @Override
+            public Type getRawType() {
+                return CompletableFuture.class;
+            }
+
+            @Override
+            public Type getOwnerType() {
+                return Object.class;
+            }
+        };
+        CallAdapter<?, ?> adapter = factory.get(returnType, new Annotation[0], null);
+        assertTrue(adapter instanceof StreamingCallAdapter);
+        assertEquals(ResponseBody.class, adapter.responseType());
+    }
+
     @Test(expected = IllegalStateException.class)
     public void testNonParameterizedCompletableFuture() {
         DefaultCallAdapterFactory factory = new DefaultCallAdapterFactory(false, LOGGER);
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.api.http;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class LongPollingTimeoutInterceptorTest {
+
+    private static final String BASE_URL = "https://api.telegram.org/bot123:abc/";
+
+    @Test
+    public void testLongPollingCallUsesDedicatedReadTimeout() throws Exception {
+        final Request request = new Request.Builder().url(BASE_URL + "getUpdates").build();
+        final Interceptor.Chain chain = mock(Interceptor.Chain.class);
+        final Interceptor.Chain longPollingChain = mock(Interceptor.Chain.class);
+        when(chain.request()).thenReturn(request);
+        when(chain.withReadTimeout(anyInt(), any())).thenReturn(longPollingChain);
+
+        new LongPollingTimeoutInterceptor(5, TimeUnit.MINUTES).intercept(chain);
+        verify(chain).withReadTimeout(eq((int) TimeUnit.MINUTES.toMillis(5)), eq(TimeUnit.MILLISECONDS));
+        verify(longPollingChain).proceed(request);
+        verify(chain, never()).proceed(any());
+    }
+
+    @Test
+    public void testOtherCallsKeepDefaultReadTimeout() throws Exception {
+        final Request request = new Request.Builder().url(BASE_URL + "sendMessage").build();
+        final Interceptor.Chain chain = mock(Interceptor.Chain.class);
+        when(chain.request()).thenReturn(request);
+
+        new LongPollingTimeoutInterceptor(5, TimeUnit.MINUTES).intercept(chain);
+        verify(chain, never()).withReadTimeout(anyInt(), any());
+        verify(chain).proceed(request);
+    }
+
+    @Test
+    public void testIsLongPolling() {
+        assertTrue(LongPollingTimeoutInterceptor.isLongPolling(new Request.Builder().url(BASE_URL + "getUpdates").build()));
+        assertFalse(LongPollingTimeoutInterceptor.isLongPolling(new Request.Builder().url(BASE_URL + "getMe").build()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositiveTimeout() {
+        new LongPollingTimeoutInterceptor(0, TimeUnit.SECONDS);
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.api.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.sgr.telegram.bot.api.http.OutboundRequestQueue.OverflowPolicy;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author SgrAlpha
+ */
+public class OutboundRequestQueueTest {
+
+    @Test
+    public void testRejectWhenFull() {
+        final OutboundRequestQueue queue = new OutboundRequestQueue(1, 1, OverflowPolicy.REJECT);
+        final List<Integer> started = new ArrayList<>();
+        final CompletableFuture<Void> first = submit(queue, started, 1);
+        final CompletableFuture<Void> second = submit(queue, started, 2);
+        assertEquals(0, queue.getRemainingCapacity());
+        final CompletableFuture<Void> third = submit(queue, started, 3);
+        assertEquals(Collections.singletonList(1), started);
+        assertTrue(third.isCompletedExceptionally());
+        third.exceptionally(e -> {
+            assertTrue(e instanceof RejectedExecutionException);
+            return null;
+        });
+
+        first.complete(null);
+        assertEquals(Arrays.asList(1, 2), started);
+        assertEquals(1, queue.getInFlightCount());
+        assertEquals(0, queue.getQueuedCount());
+        second.complete(null);
+        assertEquals(0, queue.getInFlightCount());
+        assertEquals(2, queue.getRemainingCapacity());
+    }
+
+    @Test
+    public void testSkipCancelledRequests() {
+        final OutboundRequestQueue queue = new OutboundRequestQueue(1, 2, OverflowPolicy.REJECT);
+        final List<Integer> started = new ArrayList<>();
+        final CompletableFuture<Void> first = submit(queue, started, 1);
+        submit(queue, started, 2).cancel(false);
+        submit(queue, started, 3);
+        first.complete(null);
+        assertEquals(Arrays.asList(1, 3), started);
+        assertEquals(1, queue.getInFlightCount());
+    }
+
+    @Test
+    public void testBlockWhenFull() throws InterruptedException {
+        final OutboundRequestQueue queue = new OutboundRequestQueue(1, 0, OverflowPolicy.BLOCK);
+        final List<Integer> started = Collections.synchronizedList(new ArrayList<>());
+        final CompletableFuture<Void> first = submit(queue, started, 1);
+        final CountDownLatch submitted = new CountDownLatch(1);
+        final Thread producer = new Thread(() -> {
+            submit(queue, started, 2);
+            submitted.countDown();
+        });
+        producer.start();
+        assertFalse(submitted.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(Collections.singletonList(1), started);
+        first.complete(null);
+        assertTrue(submitted.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(1, 2), started);
+    }
+
+    @Test
+    public void testHighPriorityServedFirst() {
+        final OutboundRequestQueue queue = new OutboundRequestQueue(1, 10, OverflowPolicy.REJECT);
+        final List<Integer> started = new ArrayList<>();
+        final CompletableFuture<Void> bulk = submit(queue, CallPriority.NORMAL, started, 1);
+        submit(queue, CallPriority.NORMAL, started, 2);
+        // High priority requests have slots of their own.
+        final CompletableFuture<Void> high = submit(queue, CallPriority.HIGH, started, 3);
+        submit(queue, CallPriority.HIGH, started, 4);
+        assertEquals(Arrays.asList(1, 3), started);
+        high.complete(null);
+        assertEquals(Arrays.asList(1, 3, 4), started);
+        bulk.complete(null);
+        assertEquals(Arrays.asList(1, 3, 4, 2), started);
+    }
+
+    @Test
+    public void testFairShareOfLowPriority() {
+        final OutboundRequestQueue queue = new OutboundRequestQueue(1, 10, OverflowPolicy.REJECT);
+        final List<Integer> started = new ArrayList<>();
+        final Map<Integer, CompletableFuture<Void>> futures = new HashMap<>();
+        futures.put(0, submit(queue, CallPriority.NORMAL, started, 0));
+        for (int i = 1; i <= 5; i++) {
+            futures.put(-i, submit(queue, CallPriority.LOW, started, -i));
+            futures.put(i, submit(queue, CallPriority.NORMAL, started, i));
+        }
+        // Finish requests one by one, in the order they are started.
+        for (int i = 0; i < started.size(); i++) {
+            futures.get(started.get(i)).complete(null);
+        }
+        assertEquals(Arrays.asList(0, 1, 2, 3, -1, 4, 5, -2, -3, -4, -5), started);
+    }
+
+    @Test
+    public void testPriorityOverride() {
+        final OutboundRequestQueue queue = new OutboundRequestQueue(1, 1, OverflowPolicy.REJECT).setPriority("sendMessage", CallPriority.LOW);
+        assertEquals(CallPriority.LOW, queue.getPriority("sendMessage", CallPriority.NORMAL));
+        assertEquals(CallPriority.HIGH, queue.getPriority("answerCallbackQuery", CallPriority.HIGH));
+        assertEquals(CallPriority.NORMAL, queue.getPriority(null, CallPriority.NORMAL));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxInFlight() {
+        new OutboundRequestQueue(0, 1, OverflowPolicy.REJECT);
+    }
+
+    private static CompletableFuture<Void> submit(final OutboundRequestQueue queue, final List<Integer> started, final int id) {
+        return submit(queue, CallPriority.NORMAL, started, id);
+    }
+
+    private static CompletableFuture<Void> submit(final OutboundRequestQueue queue, final CallPriority priority,
+            final List<Integer> started, final int id) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        queue.submit(priority, () -> started.add(id), future);
+        return future;
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.api.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class RateLimiterTest {
+
+    private static final long TOLERANCE = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidGlobalPermits() {
+        new RateLimiter(0, 1, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidChatPermits() {
+        new RateLimiter(1, 0, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidGroupPermits() {
+        new RateLimiter(1, 1, -1);
+    }
+
+    @Test
+    public void testTokenBucket() {
+        final TokenBucket bucket = new TokenBucket(2, TimeUnit.SECONDS.toNanos(1), 2);
+        final long interval = TimeUnit.MILLISECONDS.toNanos(500);
+        assertEquals(0, bucket.reserve(0));
+        assertEquals(0, bucket.reserve(0));
+        assertEquals(interval, bucket.reserve(0));
+        assertEquals(interval * 2, bucket.reserve(0));
+        // Idle long enough, burst is available again.
+        final long later = interval * 100;
+        assertEquals(later, bucket.reserve(later));
+        assertEquals(later, bucket.reserve(later));
+        assertEquals(later + interval, bucket.reserve(later));
+    }
+
+    @Test
+    public void testPrivateChatLimit() {
+        final RateLimiter limiter = RateLimiter.newInstance();
+        assertEquals(0, limiter.reserveChat("123"), TOLERANCE);
+        assertWaitFor(TimeUnit.SECONDS.toNanos(1), limiter.reserveChat("123"));
+        assertEquals(0, limiter.reserveChat("456"), TOLERANCE);
+        assertEquals(0, limiter.reserveChat(null));
+    }
+
+    @Test
+    public void testGroupChatLimit() {
+        final RateLimiter limiter = RateLimiter.newInstance();
+        assertEquals(0, limiter.reserveChat("-100123"), TOLERANCE);
+        assertWaitFor(TimeUnit.SECONDS.toNanos(3), limiter.reserveChat("-100123"));
+        assertEquals(0, limiter.reserveChat("@channel"), TOLERANCE);
+        assertWaitFor(TimeUnit.SECONDS.toNanos(3), limiter.reserveChat("@channel"));
+    }
+
+    @Test
+    public void testGlobalLimit() {
+        final RateLimiter limiter = new RateLimiter(10, 1, 20);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, limiter.reserveGlobal(), TOLERANCE);
+        }
+        final long delay = limiter.reserveGlobal();
+        assertTrue(delay > 0);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), delay, TOLERANCE);
+    }
+
+    /**
+     * The delay shrinks by the time elapsed since the previous reservation, which might be long on a busy machine.
+     */
+    private static void assertWaitFor(final long expected, final long delay) {
+        assertTrue("Expected to wait for about " + expected + "ns, but got " + delay, delay > 0 && delay <= expected);
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.api.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import io.sgr.telegram.bot.api.models.http.SendMessagePayload;
+import io.sgr.telegram.bot.api.utils.JsonUtil;
+
+import okhttp3.RequestBody;
+import okio.Buffer;
+import org.junit.Test;
+import retrofit2.Converter;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+
+public class StreamingJacksonConverterFactoryTest {
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testWriteRequestBody() throws IOException {
+        final StreamingJacksonConverterFactory factory = new StreamingJacksonConverterFactory(JsonUtil.getObjectMapper());
+        final Converter<SendMessagePayload, RequestBody> converter = (Converter<SendMessagePayload, RequestBody>)
+                factory.requestBodyConverter(SendMessagePayload.class, new Annotation[0], new Annotation[0], null);
+        final SendMessagePayload payload = new SendMessagePayload(123L, "Hello");
+        final RequestBody body = converter.convert(payload);
+
+        assertEquals("application/json; charset=UTF-8", body.contentType().toString());
+        assertEquals(-1, body.contentLength());
+        final String expected = JsonUtil.getObjectMapper().writeValueAsString(payload);
+        // Written twice to make sure a body can be sent again on retry, and the sink stays open after writing.
+        final Buffer sink = new Buffer();
+        body.writeTo(sink);
+        assertEquals(expected, sink.readUtf8());
+        body.writeTo(sink);
+        sink.writeUtf8("|");
+        assertEquals(expected + "|", sink.readUtf8());
+    }
+
+    @Test
+    public void testResponseBodiesLeftToOthers() {
+        final StreamingJacksonConverterFactory factory = new StreamingJacksonConverterFactory(JsonUtil.getObjectMapper());
+        assertNull(factory.responseBodyConverter(SendMessagePayload.class, new Annotation[0], null));
+    }
+
+    @SuppressWarnings("ConstantConditions")
+    @Test(expected = NullPointerException.class)
+    public void testConstructWithoutMapper() {
+        new StreamingJacksonConverterFactory(null);
+    }
+
+}
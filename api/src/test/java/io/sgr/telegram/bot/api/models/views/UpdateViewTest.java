@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.api.models.views;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import io.sgr.telegram.bot.api.models.Message;
+import io.sgr.telegram.bot.api.models.Update;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class UpdateViewTest {
+
+    private static final String MESSAGE_UPDATE = "{\"update_id\":100,\"message\":{\"message_id\":10,\"date\":1560000000,"
+            + "\"from\":{\"id\":7,\"is_bot\":false,\"first_name\":\"Alice\"},"
+            + "\"chat\":{\"id\":-200,\"type\":\"group\",\"title\":\"Group\"},"
+            + "\"text\":\"/start now\",\"entities\":[{\"type\":\"bot_command\",\"offset\":0,\"length\":6}],"
+            + "\"reply_to_message\":{\"message_id\":9,\"date\":1559999999,\"chat\":{\"id\":-200,\"type\":\"group\"},\"text\":\"hi\"}}}";
+
+    @Test
+    public void testMessageView() throws IOException {
+        final UpdateView update = UpdateView.parse(MESSAGE_UPDATE.getBytes(StandardCharsets.UTF_8));
+        assertEquals(100, update.getId());
+        assertNull(update.getEditedMessage());
+        assertNull(update.getCallbackQuery());
+
+        final MessageView message = update.getMessage();
+        assertNotNull(message);
+        assertSame(message, update.getMessage());
+        assertEquals(10, message.getId());
+        assertEquals(1560000000, message.getDate());
+        assertEquals(Long.valueOf(-200), message.getChatId());
+        assertEquals(Long.valueOf(7), message.getFromId());
+        assertEquals("/start now", message.getText());
+        assertNull(message.getCaption());
+        assertEquals("Alice", message.getFrom().getFirstName());
+        assertSame(message.getFrom(), message.getFrom());
+        assertEquals(-200, message.getChat().getId());
+        assertEquals(1, message.getEntities().size());
+        assertEquals("hi", message.getReplyTo().getText());
+        assertNull(message.getReplyTo().getReplyTo());
+        assertNull(message.getPhoto());
+        assertEquals("{\"message_id\":9", message.getReplyTo().toString().substring(0, 15));
+    }
+
+    @Test
+    public void testFullBinding() throws IOException {
+        final UpdateView view = UpdateView.parse(MESSAGE_UPDATE.getBytes(StandardCharsets.UTF_8));
+        final Update update = view.toUpdate();
+        assertSame(update, view.toUpdate());
+        assertEquals(100, update.getId());
+        final Message message = view.getMessage().toMessage();
+        assertEquals("/start now", message.getText());
+        assertEquals(9, message.getReplyTo().getId());
+    }
+
+    @Test
+    public void testCallbackQuery() throws IOException {
+        final String json = "{\"update_id\":101,\"callback_query\":{\"id\":\"q1\",\"from\":{\"id\":7,\"is_bot\":false,\"first_name\":\"Alice\"},"
+                + "\"chat_instance\":\"c1\",\"data\":\"vote:1\"}}";
+        final UpdateView update = UpdateView.parse(json.getBytes(StandardCharsets.UTF_8));
+        assertNull(update.getMessage());
+        assertEquals("vote:1", update.getCallbackQuery().getData());
+        assertSame(update.getCallbackQuery(), update.getCallbackQuery());
+    }
+
+    @Test
+    public void testNullFields() throws IOException {
+        final String json = "{\"update_id\":102,\"message\":null,\"edited_message\":{\"message_id\":11,\"date\":0,"
+                + "\"chat\":{\"type\":\"private\",\"id\":null},\"text\":null,\"photo\":[{\"file_id\":\"f\",\"file_unique_id\":\"u\",\"width\":1,\"height\":1,\"file_size\":1}]}}";
+        final UpdateView update = UpdateView.parse(json.getBytes(StandardCharsets.UTF_8));
+        assertNull(update.getMessage());
+        final MessageView message = update.getEditedMessage();
+        assertNull(message.getChatId());
+        assertNull(message.getText());
+        assertEquals(1, message.getPhoto().size());
+        assertSame(message.getPhoto(), message.getPhoto());
+    }
+
+    @Test
+    public void testValuesLeftToParser() {
+        final String json = "{\"message_id\":1.0,\"date\":12345678901234567890,\"chat\":{\"id\":-1001234567890123,\"type\":\"channel\"},"
+                + "\"from\":{\"id\":\"7\"},\"text\":\"say \\\"h\\u00e9\\\" \u00e0 \\ud83d\\ude00\"}";
+        final MessageView message = new MessageView(json.getBytes(StandardCharsets.UTF_8));
+        assertEquals(1, message.getId());
+        assertEquals(Long.valueOf(-1001234567890123L), message.getChatId());
+        assertEquals(Long.valueOf(7), message.getFromId());
+        assertEquals("say \"h\u00e9\" \u00e0 \ud83d\ude00", message.getText());
+        assertEquals("\u00e0 \ud83d\ude00", new MessageView("{\"text\":\"\u00e0 \ud83d\ude00\"}".getBytes(StandardCharsets.UTF_8)).getText());
+    }
+
+    @Test(expected = IOException.class)
+    public void testNonObject() throws IOException {
+        UpdateView.parse("[]".getBytes(StandardCharsets.UTF_8));
+    }
+
+}
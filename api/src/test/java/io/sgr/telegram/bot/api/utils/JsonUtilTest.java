@@ -19,16 +19,47 @@ package io.sgr.telegram.bot.api.utils;
 
 import static io.sgr.telegram.bot.api.utils.JsonUtil.getJsonFactory;
 import static io.sgr.telegram.bot.api.utils.JsonUtil.getObjectMapper;
+import static io.sgr.telegram.bot.api.utils.JsonUtil.getOptimizedObjectMapper;
+import static io.sgr.telegram.bot.api.utils.JsonUtil.getReader;
+import static io.sgr.telegram.bot.api.utils.JsonUtil.getWriter;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import io.sgr.telegram.bot.api.models.Update;
+import io.sgr.telegram.bot.api.models.http.SendMessagePayload;
 
 import org.junit.Test;
 
+import java.io.IOException;
+
 public class JsonUtilTest {
 
     @Test
     public void testGetter() {
         assertNotNull(getObjectMapper());
         assertNotNull(getJsonFactory());
+        assertNotNull(getOptimizedObjectMapper());
+        assertNotSame(getObjectMapper(), getOptimizedObjectMapper());
+        assertNotSame(getJsonFactory(), getOptimizedObjectMapper().getFactory());
+        assertSame(getObjectMapper(), getJsonFactory().getCodec());
+    }
+
+    @Test
+    public void testCachedReaderAndWriter() throws IOException {
+        assertSame(getReader(Update.class), getReader(Update.class));
+        assertSame(getWriter(SendMessagePayload.class), getWriter(SendMessagePayload.class));
+
+        final String json = "{\"update_id\":1,\"message\":{\"message_id\":10,\"date\":0,"
+                + "\"chat\":{\"id\":100,\"type\":\"private\"},\"text\":\"hi\"}}";
+        final Update update = getReader(Update.class).readValue(json);
+        assertEquals(1, update.getId());
+        assertEquals("hi", update.getMessage().getText());
+        assertEquals(100, update.getMessage().getChat().getId());
+
+        final SendMessagePayload payload = new SendMessagePayload(100L, "hello");
+        assertEquals(getObjectMapper().writeValueAsString(payload), getWriter(SendMessagePayload.class).writeValueAsString(payload));
     }
 
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.api.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import io.sgr.telegram.bot.api.models.Update;
+import io.sgr.telegram.bot.api.models.views.UpdateView;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class UpdateStreamReaderTest {
+
+    @Test
+    public void testReadUpdatesOneByOne() throws IOException {
+        final String json = "{\"ok\":true,\"description\":{\"nested\":[1,2]},\"result\":["
+                + "{\"update_id\":1,\"message\":{\"message_id\":10,\"date\":0,\"chat\":{\"id\":100,\"type\":\"private\"},\"text\":\"hi\"}},"
+                + "{\"update_id\":2}"
+                + "],\"extra\":true}";
+        try (UpdateStreamReader reader = newReader(json)) {
+            final Update first = reader.next();
+            assertNotNull(first);
+            assertEquals(1, first.getId());
+            assertEquals("hi", first.getMessage().getText());
+            final Update second = reader.next();
+            assertNotNull(second);
+            assertEquals(2, second.getId());
+            assertNull(reader.next());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testReadUpdateViews() throws IOException {
+        try (UpdateStreamReader reader = newReader(true, "{\"ok\":true,\"result\":[{\"update_id\":1,\"message\":{\"message_id\":10,"
+                + "\"date\":0,\"chat\":{\"id\":100,\"type\":\"private\"},\"text\":\"hi\"}},{\"update_id\":2}]}")) {
+            final UpdateView first = reader.nextView();
+            assertNotNull(first);
+            assertEquals(1, first.getId());
+            assertEquals(Long.valueOf(100), first.getMessage().getChatId());
+            final UpdateView second = reader.nextView();
+            assertNotNull(second);
+            assertEquals(2, second.getId());
+            assertNull(reader.nextView());
+        }
+    }
+
+    @Test
+    public void testReadRawUpdates() throws IOException {
+        final List<String> updates = new ArrayList<>();
+        final StringBuilder json = new StringBuilder("{\"ok\":true,\"result\":[");
+        for (int id = 1; id <= 500; id++) {
+            // Big enough to span a few reads of the parser, with multi-byte characters and odd spacing kept as is.
+            final String update = "{ \"update_id\" : " + id + ", \"message\":{\"message_id\":" + id
+                    + ",\"date\":0,\"chat\":{\"id\":100,\"type\":\"private\"},\"text\":\"h\\\"i \u00e9\u4f60\"}}";
+            updates.add(update);
+            json.append(id == 1 ? "" : " ,\n").append(update);
+        }
+        json.append("]}");
+        try (UpdateStreamReader reader = newReader(true, json.toString())) {
+            for (final String update : updates) {
+                assertEquals(update, new String(reader.nextRaw(), StandardCharsets.UTF_8));
+            }
+            assertNull(reader.nextRaw());
+        }
+    }
+
+    @Test
+    public void testNoResult() throws IOException {
+        try (UpdateStreamReader reader = newReader("{\"ok\":true,\"result\":[]}")) {
+            assertNull(reader.next());
+        }
+        try (UpdateStreamReader reader = newReader("{\"ok\":false,\"description\":\"error\"}")) {
+            assertNull(reader.next());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidResponse() throws IOException {
+        try (UpdateStreamReader reader = newReader("[]")) {
+            reader.next();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedResponse() throws IOException {
+        try (UpdateStreamReader reader = newReader("{\"ok\":true,\"result\":[{\"update_id\":1},{\"update_")) {
+            assertNotNull(reader.next());
+            reader.next();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRawNotKept() throws IOException {
+        try (UpdateStreamReader reader = newReader("{\"ok\":true,\"result\":[{\"update_id\":1}]}")) {
+            reader.nextRaw();
+        }
+    }
+
+    private static UpdateStreamReader newReader(final boolean raw, final String json) throws IOException {
+        return new UpdateStreamReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), raw);
+    }
+
+    private static UpdateStreamReader newReader(final String json) throws IOException {
+        return new UpdateStreamReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+}
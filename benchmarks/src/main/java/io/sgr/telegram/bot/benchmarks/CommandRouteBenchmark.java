@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.telegram.bot.benchmarks;
+
+import io.sgr.telegram.bot.api.models.Message;
+import io.sgr.telegram.bot.api.models.MessageEntity;
+import io.sgr.telegram.bot.engine.Command;
+import io.sgr.telegram.bot.engine.handlers.BotCommandHandler;
+import io.sgr.telegram.bot.engine.handlers.CommandRouter;
+import io.sgr.telegram.bot.engine.utils.CommandUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of routing command texts with {@link CommandRouter}, by the text or by the "bot_command" entities,
+ * compared with parsing them with {@link CommandUtil#parseCommandFromText(String)}. Run with "-prof gc" to see
+ * allocation per operation as well.
+ *
+ * @author SgrAlpha
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandRouteBenchmark {
+
+    private static final String BOT_USERNAME = "enl_jarvis_bot";
+    private static final String[] COMMANDS = {"start", "help", "settings", "subscribe", "unsubscribe", "status"};
+
+    @Param({"/status", "/subscribe@enl_jarvis_bot news", "/status@other_bot", "/unknown argument"})
+    private String text;
+
+    private CommandRouter router;
+    private List<MessageEntity> entities;
+
+    @Setup
+    public void setUp() {
+        final int nameEnd = CommandUtil.skipCommandChars(text, 1);
+        final int end = nameEnd < text.length() && text.charAt(nameEnd) == '@' ? CommandUtil.skipCommandChars(text, nameEnd + 1) : nameEnd;
+        entities = Collections.singletonList(new MessageEntity(CommandUtil.BOT_COMMAND_ENTITY_TYPE, 0, end, null, null, null));
+        router = new CommandRouter(BOT_USERNAME);
+        for (final String command : COMMANDS) {
+            router.register(new BotCommandHandler() {
+                @Override public String getCommandName() {
+                    return command;
+                }
+
+                @Override public void handle(final String argument, final Message oriMsg) {
+                }
+            });
+        }
+    }
+
+    @Benchmark
+    public boolean route() {
+        return router.route(text, null);
+    }
+
+    @Benchmark
+    public int routeEntities() {
+        return router.route(text, entities, null);
+    }
+
+    @Benchmark
+    public void parse(final Blackhole blackhole) {
+        final Command command = CommandUtil.parseCommandFromText(text);
+        blackhole.consume(command != null && (command.toBot == null || BOT_USERNAME.equals(command.toBot)));
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.benchmarks;
+
+import io.sgr.telegram.bot.api.models.ParseMode;
+import io.sgr.telegram.bot.api.models.http.AnswerInlineQueryPayload;
+import io.sgr.telegram.bot.api.models.http.EditMessageTextPayload;
+import io.sgr.telegram.bot.api.models.http.SendMessagePayload;
+import io.sgr.telegram.bot.api.models.inline.InlineQueryResult;
+import io.sgr.telegram.bot.api.models.inline.InlineQueryResultArticle;
+import io.sgr.telegram.bot.api.models.inline.InputTextMessageContent;
+import io.sgr.telegram.bot.api.models.markups.InlineKeyboardButton;
+import io.sgr.telegram.bot.api.models.markups.InlineKeyboardMarkup;
+import io.sgr.telegram.bot.api.utils.JsonUtil;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of writing the most frequently sent payloads with {@link JsonUtil#getObjectMapper()}. Run with "-prof
+ * gc" to see allocation per operation as well.
+ *
+ * @author SgrAlpha
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PayloadWriteBenchmark {
+
+    private ObjectMapper mapper;
+    private SendMessagePayload sendMessage;
+    private EditMessageTextPayload editMessageText;
+    private AnswerInlineQueryPayload answerInlineQuery;
+
+    @Setup
+    public void setUp() {
+        mapper = JsonUtil.getObjectMapper();
+        final InlineKeyboardMarkup keyboard = new InlineKeyboardMarkup(Arrays.asList(
+                new InlineKeyboardButton[]{new InlineKeyboardButton("Option A", "vote:a"), new InlineKeyboardButton("Option B", "vote:b")},
+                new InlineKeyboardButton[]{new InlineKeyboardButton("Cancel", "cancel")}
+        ));
+        sendMessage = new SendMessagePayload(123456789L, "*Hello* there, pick one option below.", ParseMode.MARKDOWN,
+                true, null, 4201L, keyboard);
+        editMessageText = new EditMessageTextPayload(-1001234567890L, 4203L, "You voted for *Option A*, thanks!",
+                ParseMode.MARKDOWN, true, null);
+        final List<InlineQueryResult> results = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            results.add(new InlineQueryResultArticle("result-" + i, "Funny cat #" + i,
+                    new InputTextMessageContent("Look at this funny cat #" + i + " https://example.com/cats/" + i)));
+        }
+        answerInlineQuery = new AnswerInlineQueryPayload("1234567890123456789", results, 300, false, "20", null, null);
+    }
+
+    @Benchmark
+    public byte[] writeSendMessage() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(sendMessage);
+    }
+
+    @Benchmark
+    public byte[] writeEditMessageText() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(editMessageText);
+    }
+
+    @Benchmark
+    public byte[] writeAnswerInlineQuery() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(answerInlineQuery);
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.benchmarks;
+
+import io.sgr.telegram.bot.api.models.Update;
+import io.sgr.telegram.bot.api.utils.JsonUtil;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of reading updates with {@link JsonUtil#getObjectMapper()}, and with the cached reader of {@link
+ * JsonUtil#getOptimizedObjectMapper()} for comparison. Run with "-prof gc" to see allocation per operation as well.
+ *
+ * @author SgrAlpha
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UpdateReadBenchmark {
+
+    @Param({"text", "photo", "callback-query", "inline-query", "media-group"})
+    private String fixture;
+
+    private ObjectMapper mapper;
+    private byte[] update;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = JsonUtil.getObjectMapper();
+        update = Fixtures.load(fixture);
+    }
+
+    @Benchmark
+    public Update readUpdate() throws IOException {
+        return mapper.readValue(update, Update.class);
+    }
+
+    @Benchmark
+    public Update readUpdateOptimized() throws IOException {
+        return JsonUtil.getReader(Update.class).readValue(update);
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine;
+
+import io.sgr.telegram.bot.api.models.Update;
+
+import java.util.concurrent.CompletionStage;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A non-blocking variant of {@link BotUpdateProcessor}.
+ *
+ * @author SgrAlpha
+ */
+public interface AsyncBotUpdateProcessor {
+
+    /**
+     * Handle update asynchronously. This method should return as soon as possible, and should not block the calling
+     * thread.
+     *
+     * @param update The update to handle with.
+     *
+     * @return A completion stage which completes with whether or not the update has been handled successfully.
+     */
+    CompletionStage<Boolean> handleUpdate(@Nonnull Update update);
+
+}
@@ -25,22 +25,32 @@ import io.sgr.telegram.bot.api.BotApi;
 import io.sgr.telegram.bot.api.models.Update;
 import io.sgr.telegram.bot.api.models.WebhookInfo;
 import io.sgr.telegram.bot.api.models.http.GetUpdatesPayload;
+import io.sgr.telegram.bot.api.models.views.UpdateView;
 import io.sgr.telegram.bot.api.utils.JsonUtil;
+import io.sgr.telegram.bot.api.utils.UpdateStreamReader;
+import io.sgr.telegram.bot.engine.journal.UpdateJournal;
 import io.sgr.telegram.bot.engine.processors.NoOpBotUpdateProcessor;
 import io.sgr.telegram.bot.engine.utils.BackOff;
 import io.sgr.telegram.bot.engine.utils.ExponentialBackOff;
 import io.sgr.telegram.bot.engine.utils.SteadyBackOff;
 
+import okhttp3.ResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 /**
  * @author SgrAlpha
@@ -53,6 +63,10 @@ public class BotEngine implements Runnable {
     private static final BackOff DEFAULT_RETRY_BACK_OFF = ExponentialBackOff.newInstance();
     private static final BackOff DEFAULT_NO_UPDATE_BACK_OFF = SteadyBackOff.newInstance();
     private static final NoOpBotUpdateProcessor DEFAULT_BOT_UPDATE_PROCESSOR = NoOpBotUpdateProcessor.getDefault();
+    private static final int DEFAULT_MAX_IN_FLIGHT_UPDATES = 100;
+    private static final long DEFAULT_OFFSET_COMMIT_INTERVAL_IN_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    private static final int DEFAULT_JOURNAL_MAX_ATTEMPTS = 3;
+    private static final long DRAIN_CHECK_INTERVAL_IN_MILLIS = 100;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BotEngine.class);
 
@@ -63,10 +77,24 @@ public class BotEngine implements Runnable {
     private List<String> allowedUpdates = DEFAULT_ALLOWED_UPDATE_TYPE;
     private BackOff retryBackOff = DEFAULT_RETRY_BACK_OFF;
     private BackOff noUpdateBackOff = DEFAULT_NO_UPDATE_BACK_OFF;
+    private boolean pipelinedPolling = false;
+    private boolean streamingUpdates = false;
+    private int maxInFlightUpdates = DEFAULT_MAX_IN_FLIGHT_UPDATES;
+    private OffsetStore offsetStore;
+    private long offsetCommitIntervalInMillis = DEFAULT_OFFSET_COMMIT_INTERVAL_IN_MILLIS;
+    private UpdateJournal updateJournal;
+    private int journalMaxAttempts = DEFAULT_JOURNAL_MAX_ATTEMPTS;
 
-    private BotUpdateProcessor botUpdateProcessor;
+    private BotUpdateProcessor botUpdateProcessor = DEFAULT_BOT_UPDATE_PROCESSOR;
+    private AsyncBotUpdateProcessor asyncBotUpdateProcessor;
+    private UpdateDispatcher updateDispatcher;
+    private UpdateViewProcessor updateViewProcessor;
 
-    private Long offset = null;
+    private volatile Long offset = null;
+    // Only accessed by the thread which runs the engine.
+    private Long fetchOffset = null;
+    private Thread journalConsumerThread = null;
+    private CompletableFuture<List<Update>> prefetched = null;
     private volatile boolean stopped = false;
 
     /**
@@ -109,59 +137,362 @@ public class BotEngine implements Runnable {
             this.setStopped(true);
             return;
         }
+        final OffsetCommitter committer;
+        try {
+            committer = this.newOffsetCommitter();
+        } catch (RuntimeException e) {
+            LOGGER.error(String.format("Unable to load offset: %s", e.getMessage()), e);
+            this.setStopped(true);
+            return;
+        }
+        final UpdateJournal journal = this.updateJournal;
+        final JournalConsumer consumer = isNull(journal) ? null : this.startJournalConsumer(journal);
         LOGGER.info("Bot engine started.");
-        while (!this.needToStop()) {
-            final GetUpdatesPayload payload = new GetUpdatesPayload(this.offset, this.limit, this.timeout, this.allowedUpdates);
-            List<Update> received;
-            try {
-                received = this.botApi.getUpdates(payload).get(timeout, TimeUnit.SECONDS);
-                retryBackOff.reset();
-            } catch (InterruptedException | ExecutionException | TimeoutException e) {
-                if (this.needToStop()) {
+        final int maxInFlightUpdates = this.maxInFlightUpdates;
+        final Semaphore permits = new Semaphore(maxInFlightUpdates);
+        final OffsetTracker tracker = new OffsetTracker(this.offset);
+        this.fetchOffset = this.offset;
+        try {
+            while (!this.needToStop()) {
+                if (isNull(this.prefetched) && !this.drainInFlightUpdates(tracker, permits, maxInFlightUpdates)) {
                     break;
                 }
-                long wait = retryBackOff.getNextBackOffInMilli();
-                LOGGER.error(String.format("Hit %s(message:'%s') when getting updates, wait for %d milliseconds to retry.", e.getClass(), e.getMessage(), wait), e);
+                final int received;
                 try {
-                    TimeUnit.MILLISECONDS.sleep(wait);
-                } catch (InterruptedException e1) {
-                    LOGGER.debug("Interrupted when waiting to retry a interrupted / failed get update request.");
-                    this.stop();
-                    break;
+                    received = this.streamingUpdates || !isNull(this.updateViewProcessor) || !isNull(journal)
+                            ? this.pollUpdateStream(tracker, permits, committer) : this.pollUpdates(tracker, permits, committer);
+                    retryBackOff.reset();
+                } catch (InterruptedException | ExecutionException | TimeoutException | IOException e) {
+                    if (this.needToStop()) {
+                        break;
+                    }
+                    long wait = retryBackOff.getNextBackOffInMilli();
+                    LOGGER.error(String.format("Hit %s(message:'%s') when getting updates, wait for %d milliseconds to retry.", e.getClass(), e.getMessage(), wait), e);
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(wait);
+                    } catch (InterruptedException e1) {
+                        LOGGER.debug("Interrupted when waiting to retry a interrupted / failed get update request.");
+                        this.stop();
+                        break;
+                    }
+                    continue;
+                }
+                if (received == 0) {
+                    if (this.needToStop()) {
+                        break;
+                    }
+                    long wait = noUpdateBackOff.getNextBackOffInMilli();
+                    LOGGER.debug("No new update available, wait for {} milliseconds.", wait);
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(wait);
+                    } catch (InterruptedException e) {
+                        LOGGER.debug("Interrupted when waiting to get updates.");
+                        this.stop();
+                        break;
+                    }
+                    continue;
                 }
-                continue;
+                noUpdateBackOff.reset();
             }
-            if (received.isEmpty()) {
-                if (this.needToStop()) {
-                    break;
+        } finally {
+            // Runs even if the loop is broken by an unexpected exception, so the latest offset is still saved.
+            this.setStopped(true);
+            if (this.prefetched != null) {
+                this.prefetched.cancel(true);
+                this.prefetched = null;
+            }
+            awaitInFlightUpdates(permits, maxInFlightUpdates);
+            if (consumer != null) {
+                this.stopJournalConsumer(consumer);
+            }
+            if (committer != null) {
+                committer.close();
+            }
+        }
+        LOGGER.info("Bot engine stopped.");
+    }
+
+    /**
+     * @return The committer to save offsets with, NULL if no offset store been set.
+     */
+    private OffsetCommitter newOffsetCommitter() {
+        final OffsetStore store = this.offsetStore;
+        if (store == null) {
+            return null;
+        }
+        final Long stored = store.load();
+        if (stored != null && (this.offset == null || stored > this.offset)) {
+            this.offset = stored;
+        }
+        return new OffsetCommitter(store, stored, this.offsetCommitIntervalInMillis);
+    }
+
+    private JournalConsumer startJournalConsumer(final UpdateJournal journal) {
+        // Without a dispatcher or an async processor, updates are handled in the consumer thread one by one anyway.
+        final int maxInFlight = isNull(this.asyncBotUpdateProcessor) && isNull(this.updateDispatcher) ? 1 : this.maxInFlightUpdates;
+        final JournalConsumer consumer = new JournalConsumer(journal, this::handleUpdate, this.journalMaxAttempts,
+                ExponentialBackOff::newInstance, maxInFlight, this::stop);
+        this.journalConsumerThread = new Thread(consumer, "telegram-bot-journal-consumer");
+        this.journalConsumerThread.setDaemon(true);
+        this.journalConsumerThread.start();
+        return consumer;
+    }
+
+    private void stopJournalConsumer(final JournalConsumer consumer) {
+        consumer.stop();
+        try {
+            this.journalConsumerThread.join(TimeUnit.SECONDS.toMillis(timeout));
+            if (this.journalConsumerThread.isAlive()) {
+                LOGGER.warn("Gave up waiting for the journaled update being handled after {} seconds.", timeout);
+            }
+        } catch (InterruptedException e) {
+            LOGGER.debug("Interrupted when waiting for the journaled update being handled.");
+            Thread.currentThread().interrupt();
+        }
+        this.journalConsumerThread = null;
+    }
+
+    private int pollUpdates(final OffsetTracker tracker, final Semaphore permits, final OffsetCommitter committer)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        final CompletableFuture<List<Update>> pending = isNull(this.prefetched) ? this.getUpdates(this.fetchOffset) : this.prefetched;
+        this.prefetched = null;
+        final List<Update> received = pending.get(timeout, TimeUnit.SECONDS);
+        if (received.isEmpty()) {
+            return 0;
+        }
+        LOGGER.debug("Received {} new update(s)", received.size());
+        this.fetchOffset = getNextOffset(received).orElse(this.fetchOffset);
+        if (this.pipelinedPolling) {
+            // Fetch next batch while handling current one, offset is only committed after update been handled.
+            this.prefetched = this.getUpdates(this.fetchOffset);
+        }
+        for (final Update update : received) {
+            if (update != null && !this.dispatchUpdate(update, tracker, permits, committer)) {
+                break;
+            }
+        }
+        return received.size();
+    }
+
+    private int pollUpdateStream(final OffsetTracker tracker, final Semaphore permits, final OffsetCommitter committer)
+            throws InterruptedException, ExecutionException, TimeoutException, IOException {
+        final GetUpdatesPayload payload = new GetUpdatesPayload(this.fetchOffset, this.limit, this.timeout, this.allowedUpdates);
+        final ResponseBody body = this.botApi.getUpdatesAsStream(payload).get(timeout, TimeUnit.SECONDS);
+        int received = 0;
+        try (ResponseBody ignored = body; UpdateStreamReader reader = new UpdateStreamReader(body.byteStream(),
+                !isNull(this.updateJournal) || !isNull(this.updateViewProcessor))) {
+            if (!isNull(this.updateJournal)) {
+                return this.pollRawUpdates(reader, committer);
+            }
+            if (!isNull(this.updateViewProcessor)) {
+                return this.pollUpdateViews(reader, tracker, permits, committer);
+            }
+            Update update;
+            while ((update = reader.next()) != null) {
+                received++;
+                if (this.fetchOffset == null || update.getId() >= this.fetchOffset) {
+                    this.fetchOffset = update.getId() + 1;
                 }
-                long wait = noUpdateBackOff.getNextBackOffInMilli();
-                LOGGER.debug("No new update available, wait for {} milliseconds.", wait);
-                try {
-                    TimeUnit.MILLISECONDS.sleep(wait);
-                } catch (InterruptedException e) {
-                    LOGGER.debug("Interrupted when waiting to get updates.");
-                    this.stop();
+                if (!this.dispatchUpdate(update, tracker, permits, committer)) {
                     break;
                 }
-                continue;
             }
-            noUpdateBackOff.reset();
-            LOGGER.debug("Received {} new update(s)", received.size());
-            for (final Update update : received) {
-                if (update == null) {
-                    continue;
+        }
+        if (received > 0) {
+            LOGGER.debug("Received {} new update(s)", received);
+        }
+        return received;
+    }
+
+    private int pollRawUpdates(final UpdateStreamReader reader, final OffsetCommitter committer) throws IOException {
+        int received = 0;
+        byte[] raw;
+        while ((raw = reader.nextRaw()) != null) {
+            received++;
+            final long updateId = UpdateView.parse(raw).getId();
+            if (this.fetchOffset == null || updateId >= this.fetchOffset) {
+                this.fetchOffset = updateId + 1;
+            }
+            if (!this.journalUpdate(updateId, raw, committer)) {
+                break;
+            }
+        }
+        if (received > 0) {
+            LOGGER.debug("Journaled {} new update(s)", received);
+        }
+        return received;
+    }
+
+    private int pollUpdateViews(final UpdateStreamReader reader, final OffsetTracker tracker, final Semaphore permits,
+            final OffsetCommitter committer) throws IOException {
+        final UpdateViewProcessor processor = this.updateViewProcessor;
+        int received = 0;
+        UpdateView update;
+        while ((update = reader.nextView()) != null) {
+            received++;
+            if (this.fetchOffset == null || update.getId() >= this.fetchOffset) {
+                this.fetchOffset = update.getId() + 1;
+            }
+            final UpdateView view = update;
+            if (!this.dispatch(view.getId(), () -> CompletableFuture.completedFuture(processor.handleUpdate(view)), view::toString,
+                    tracker, permits, committer)) {
+                break;
+            }
+        }
+        if (received > 0) {
+            LOGGER.debug("Received {} new update(s)", received);
+        }
+        return received;
+    }
+
+    /**
+     * @return true if the engine should go on dispatching more updates.
+     */
+    private boolean dispatchUpdate(final Update update, final OffsetTracker tracker, final Semaphore permits,
+            final OffsetCommitter committer) {
+        return this.dispatch(update.getId(), () -> this.handleUpdate(update), () -> JsonUtil.toJson(update), tracker, permits, committer);
+    }
+
+    /**
+     * @return true if the engine should go on dispatching more updates.
+     */
+    private boolean dispatch(final long updateId, final Supplier<CompletionStage<Boolean>> handler, final Supplier<String> describer,
+            final OffsetTracker tracker, final Semaphore permits, final OffsetCommitter committer) {
+        if (tracker.isFailed()) {
+            return false;
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            LOGGER.debug("Interrupted when waiting for in-flight updates to be handled.");
+            Thread.currentThread().interrupt();
+            this.stop();
+            return false;
+        }
+        tracker.track(updateId);
+        CompletionStage<Boolean> result;
+        try {
+            result = Optional.ofNullable(handler.get()).orElse(CompletableFuture.completedFuture(false));
+        } catch (RuntimeException e) {
+            // Thrown by a synchronous processor or dispatcher, it is a failed update as well.
+            final CompletableFuture<Boolean> failure = new CompletableFuture<>();
+            failure.completeExceptionally(e);
+            result = failure;
+        }
+        result.whenComplete((success, e) -> {
+            try {
+                if (e == null && Boolean.TRUE.equals(success)) {
+                    synchronized (tracker) {
+                        // Updates might be handled out of order, only commit offset for the handled ones in a row.
+                        this.offset = tracker.complete(updateId);
+                        if (committer != null) {
+                            committer.commit(this.offset);
+                        }
+                    }
+                    return;
                 }
-                boolean success = this.botUpdateProcessor.handleUpdate(update);
-                if (!success) {
-                    LOGGER.error("Failed to handle update: {}", JsonUtil.toJson(update));
-                    this.stop();
-                    break;
+                if (e != null) {
+                    LOGGER.error(String.format("Hit %s(message:'%s') when handling update.", e.getClass(), e.getMessage()), e);
                 }
-                offset = update.getId() + 1;
+                LOGGER.error("Failed to handle update: {}", describer.get());
+                tracker.fail();
+                this.stop();
+            } finally {
+                // Released last, so whoever waits for in-flight updates sees the offset or the failure.
+                permits.release();
+            }
+        });
+        return true;
+    }
+
+    /**
+     * @return true if the update has been journaled, and the engine should go on fetching more updates.
+     */
+    private boolean journalUpdate(final long updateId, final byte[] raw, final OffsetCommitter committer) {
+        try {
+            this.updateJournal.append(raw);
+        } catch (RuntimeException e) {
+            LOGGER.error(String.format("Hit %s(message:'%s') when journaling update: %s", e.getClass(), e.getMessage(),
+                    new String(raw, StandardCharsets.UTF_8)), e);
+            this.stop();
+            return false;
+        }
+        // Once journaled, the update will be handled from the journal, so offset moves on right away.
+        if (this.offset == null || updateId >= this.offset) {
+            this.offset = updateId + 1;
+            if (committer != null) {
+                committer.commit(this.offset);
             }
         }
-        LOGGER.info("Bot engine stopped.");
+        return true;
+    }
+
+    private CompletionStage<Boolean> handleUpdate(final Update update) {
+        if (!isNull(this.asyncBotUpdateProcessor)) {
+            return this.asyncBotUpdateProcessor.handleUpdate(update);
+        }
+        if (!isNull(this.updateDispatcher)) {
+            return this.updateDispatcher.dispatch(update, this.botUpdateProcessor);
+        }
+        return CompletableFuture.completedFuture(this.botUpdateProcessor.handleUpdate(update));
+    }
+
+    /**
+     * Telegram considers all updates before the offset of a getUpdates request as confirmed, and never delivers them
+     * again, so updates still in flight have to be handled before asking for more. Otherwise a failed one is lost.
+     *
+     * @return true if all updates have been handled successfully, false if stopped or an update failed.
+     */
+    private boolean drainInFlightUpdates(final OffsetTracker tracker, final Semaphore permits, final int maxInFlightUpdates) {
+        try {
+            while (!permits.tryAcquire(maxInFlightUpdates, DRAIN_CHECK_INTERVAL_IN_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (this.needToStop() || tracker.isFailed()) {
+                    return false;
+                }
+            }
+        } catch (InterruptedException e) {
+            LOGGER.debug("Interrupted when waiting for in-flight updates to be handled.");
+            Thread.currentThread().interrupt();
+            this.stop();
+            return false;
+        }
+        permits.release(maxInFlightUpdates);
+        if (tracker.isFailed()) {
+            return false;
+        }
+        if (!isNull(this.offset)) {
+            // Only ask for updates after those handled, so nothing is confirmed to Telegram before that.
+            this.fetchOffset = this.offset;
+        }
+        return true;
+    }
+
+    private void awaitInFlightUpdates(final Semaphore permits, final int maxInFlightUpdates) {
+        try {
+            if (permits.tryAcquire(maxInFlightUpdates, timeout, TimeUnit.SECONDS)) {
+                permits.release(maxInFlightUpdates);
+                return;
+            }
+            LOGGER.warn("Gave up waiting for {} in-flight update(s) after {} seconds.", maxInFlightUpdates - permits.availablePermits(), timeout);
+        } catch (InterruptedException e) {
+            LOGGER.debug("Interrupted when waiting for in-flight updates to be handled.");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<List<Update>> getUpdates(final Long offset) {
+        final GetUpdatesPayload payload = new GetUpdatesPayload(offset, this.limit, this.timeout, this.allowedUpdates);
+        return this.botApi.getUpdates(payload);
+    }
+
+    private static Optional<Long> getNextOffset(final List<Update> updates) {
+        Long next = null;
+        for (final Update update : updates) {
+            if (update != null && (next == null || update.getId() >= next)) {
+                next = update.getId() + 1;
+            }
+        }
+        return Optional.ofNullable(next);
     }
 
     private boolean needToStop() {
@@ -177,6 +508,14 @@ public class BotEngine implements Runnable {
         noUpdateBackOff.reset();
     }
 
+    /**
+     * @return The identifier of the first update which has not been handled yet, or not been journaled yet if an
+     *         {@link UpdateJournal} been set, NULL if no update been handled.
+     */
+    public Long getOffset() {
+        return offset;
+    }
+
     private boolean isStopped() {
         return stopped;
     }
@@ -218,6 +557,35 @@ public class BotEngine implements Runnable {
         return this;
     }
 
+    /**
+     * Enable or disable pipelined polling. When enabled, the next getUpdates request is sent as soon as a batch of
+     * updates arrives, so it can be long polling while current batch is being handled. The engine only commits offset
+     * after an update been handled successfully, but be aware that Telegram considers updates of current batch as
+     * confirmed once the next request is sent, so they won't be delivered again if the engine stops on a failed one.
+     *
+     * @param pipelinedPolling Optional. Default to false.
+     *
+     * @return The bot engine.
+     */
+    public BotEngine setPipelinedPolling(final boolean pipelinedPolling) {
+        this.pipelinedPolling = pipelinedPolling;
+        return this;
+    }
+
+    /**
+     * Enable or disable streaming updates. When enabled, each update is parsed and dispatched as soon as it arrives,
+     * instead of after the whole batch been received and deserialized, so handling starts earlier and only one update
+     * of the batch is held in memory at a time. Pipelined polling does not apply to this mode.
+     *
+     * @param streamingUpdates Optional. Default to false.
+     *
+     * @return The bot engine.
+     */
+    public BotEngine setStreamingUpdates(final boolean streamingUpdates) {
+        this.streamingUpdates = streamingUpdates;
+        return this;
+    }
+
     /**
      * @param retryBackOff Optional. Default to {@link #DEFAULT_RETRY_BACK_OFF}
      *
@@ -248,4 +616,117 @@ public class BotEngine implements Runnable {
         return this;
     }
 
+    /**
+     * @param updateDispatcher Optional. Set to NULL will handle updates one by one in the thread which runs the engine.
+     *                         Use {@link io.sgr.telegram.bot.engine.dispatchers.ChatPartitionedUpdateDispatcher} to
+     *                         handle updates of different chats in parallel, or {@link
+     *                         io.sgr.telegram.bot.engine.dispatchers.VirtualThreadUpdateDispatcher} for handlers which
+     *                         mostly block, along with a larger {@link #setMaxInFlightUpdates(int)}.
+     *
+     * @return The bot engine.
+     */
+    public BotEngine setUpdateDispatcher(final UpdateDispatcher updateDispatcher) {
+        this.updateDispatcher = updateDispatcher;
+        return this;
+    }
+
+    /**
+     * @param asyncBotUpdateProcessor Optional. Once set, it takes the place of the {@link BotUpdateProcessor} and the
+     *                                {@link UpdateDispatcher}. Set to NULL to go back to them.
+     *
+     * @return The bot engine.
+     */
+    public BotEngine setAsyncBotUpdateProcessor(final AsyncBotUpdateProcessor asyncBotUpdateProcessor) {
+        this.asyncBotUpdateProcessor = asyncBotUpdateProcessor;
+        return this;
+    }
+
+    /**
+     * Once set, updates are streamed and handed to the processor as {@link UpdateView}s over their raw JSON, instead of
+     * being bound to {@link Update}s, which saves the allocations of the fields it never reads. Views are handled one
+     * by one in the thread which runs the engine, the {@link BotUpdateProcessor}, the {@link UpdateDispatcher} and the
+     * {@link AsyncBotUpdateProcessor} are not used. It does not apply when an {@link UpdateJournal} been set.
+     *
+     * @param updateViewProcessor Optional. Set to NULL to go back to handling bound updates.
+     *
+     * @return The bot engine.
+     */
+    public BotEngine setUpdateViewProcessor(final UpdateViewProcessor updateViewProcessor) {
+        this.updateViewProcessor = updateViewProcessor;
+        return this;
+    }
+
+    /**
+     * @param offsetStore Optional. Once set, the engine starts from the offset saved in it, and saves offsets to it
+     *                    after updates been handled. Set to NULL to keep offsets in memory only.
+     *
+     * @return The bot engine.
+     */
+    public BotEngine setOffsetStore(final OffsetStore offsetStore) {
+        this.offsetStore = offsetStore;
+        return this;
+    }
+
+    /**
+     * @param interval Optional. Offsets are saved to the {@link OffsetStore} in the background at most once per
+     *                 interval, set to 0 to save every offset right away. Set to a negative value will use {@link
+     *                 #DEFAULT_OFFSET_COMMIT_INTERVAL_IN_MILLIS}
+     * @param unit     The time unit of the interval.
+     *
+     * @return The bot engine.
+     */
+    public BotEngine setOffsetCommitInterval(final long interval, final TimeUnit unit) {
+        checkNotNull(unit, "Time unit should be specified");
+        this.offsetCommitIntervalInMillis = interval < 0 ? DEFAULT_OFFSET_COMMIT_INTERVAL_IN_MILLIS : unit.toMillis(interval);
+        return this;
+    }
+
+    /**
+     * Once set, updates are streamed and appended to the journal as soon as they are fetched, byte for byte as
+     * received, and handled from it in the background, so fetching is no longer held back by handling. Journaled
+     * updates go through the {@link UpdateDispatcher} or the {@link AsyncBotUpdateProcessor} if set, with up to {@link
+     * #setMaxInFlightUpdates(int)} of them in flight, otherwise they are handled one by one. An update which failed to
+     * be handled is retried up to {@link #setJournalMaxAttempts(int)} times, then parked in the dead letters of the
+     * journal instead of stopping the engine. Updates which have not been handled when the engine stops are handled
+     * after it starts again. The engine stops if the journal itself fails. Use an {@link OffsetStore} along with it,
+     * otherwise updates already journaled might be fetched again after a restart.
+     *
+     * @param updateJournal Optional. Set to NULL to handle updates right after they are fetched.
+     *
+     * @return The bot engine.
+     */
+    public BotEngine setUpdateJournal(final UpdateJournal updateJournal) {
+        this.updateJournal = updateJournal;
+        return this;
+    }
+
+    /**
+     * @param journalMaxAttempts Optional. The maximum number of attempts to handle a journaled update before parking it
+     *                           as a dead letter. Set to a non-positive value will use {@link
+     *                           #DEFAULT_JOURNAL_MAX_ATTEMPTS}
+     *
+     * @return The bot engine.
+     */
+    public BotEngine setJournalMaxAttempts(final int journalMaxAttempts) {
+        this.journalMaxAttempts = journalMaxAttempts <= 0 ? DEFAULT_JOURNAL_MAX_ATTEMPTS : journalMaxAttempts;
+        return this;
+    }
+
+    /**
+     * Updates of one batch are handled at the same time, but the next batch is only fetched after all of them been
+     * handled, as Telegram would otherwise consider the ones still in flight as confirmed and never deliver them again
+     * if they fail. Pipelined polling trades this guarantee for throughput.
+     *
+     * @param maxInFlightUpdates Optional. The maximum number of updates being handled at the same time by the {@link
+     *                           UpdateDispatcher} or the {@link AsyncBotUpdateProcessor}, the engine stops dispatching
+     *                           updates when the limit is reached. Set to a non-positive value will use {@link
+     *                           #DEFAULT_MAX_IN_FLIGHT_UPDATES}
+     *
+     * @return The bot engine.
+     */
+    public BotEngine setMaxInFlightUpdates(final int maxInFlightUpdates) {
+        this.maxInFlightUpdates = maxInFlightUpdates <= 0 ? DEFAULT_MAX_IN_FLIGHT_UPDATES : maxInFlightUpdates;
+        return this;
+    }
+
 }
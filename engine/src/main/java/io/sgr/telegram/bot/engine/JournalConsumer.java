@@ -0,0 +1,238 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.sgr.telegram.bot.api.models.Update;
+import io.sgr.telegram.bot.api.utils.JsonUtil;
+import io.sgr.telegram.bot.engine.journal.JournalEntry;
+import io.sgr.telegram.bot.engine.journal.UpdateJournal;
+import io.sgr.telegram.bot.engine.utils.BackOff;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Handles updates from an {@link UpdateJournal}, reading them in the order they been journaled, with up to the max
+ * in-flight updates being handled at the same time. A failed update is retried up to the max attempts, then parked as
+ * a dead letter, so one bad update never stops the others. Records are committed in order, so the journal never moves
+ * beyond an update which is still being handled, and updates after it might be handled again after a restart.
+ *
+ * @author SgrAlpha
+ */
+class JournalConsumer implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalConsumer.class);
+    private static final ObjectReader UPDATE_READER = JsonUtil.getReader(Update.class);
+    private static final long POLL_INTERVAL_IN_MILLIS = 100;
+
+    private final UpdateJournal journal;
+    private final Function<Update, CompletionStage<Boolean>> handler;
+    private final int maxAttempts;
+    private final Supplier<BackOff> retryBackOffs;
+    private final int maxInFlight;
+    private final Runnable onFailure;
+
+    // Records being handled in the order they been read, and those among them which are done.
+    private final Deque<JournalEntry> inFlight = new ArrayDeque<>();
+    private final Set<Long> done = new HashSet<>();
+
+    private volatile boolean stopped = false;
+    private volatile boolean failed = false;
+
+    /**
+     * @param journal       The journal to read updates from.
+     * @param handler       The function to handle an update with.
+     * @param maxAttempts   The maximum number of attempts to handle an update before parking it.
+     * @param retryBackOffs Creates the back off between attempts of each update.
+     * @param maxInFlight   The maximum number of updates being handled at the same time, including those waiting to be
+     *                      retried.
+     * @param onFailure     Called once if consuming has to stop because the journal failed.
+     */
+    JournalConsumer(final UpdateJournal journal, final Function<Update, CompletionStage<Boolean>> handler,
+            final int maxAttempts, final Supplier<BackOff> retryBackOffs, final int maxInFlight, final Runnable onFailure) {
+        this.journal = checkNotNull(journal, "Missing update journal.");
+        this.handler = checkNotNull(handler, "Missing update handler.");
+        checkArgument(maxAttempts > 0, "Max attempts should be greater than 0, but got %s", maxAttempts);
+        this.maxAttempts = maxAttempts;
+        this.retryBackOffs = checkNotNull(retryBackOffs, "Missing retry back off.");
+        checkArgument(maxInFlight > 0, "Max in-flight updates should be greater than 0, but got %s", maxInFlight);
+        this.maxInFlight = maxInFlight;
+        this.onFailure = checkNotNull(onFailure, "Missing failure callback.");
+    }
+
+    @Override public void run() {
+        final Semaphore permits = new Semaphore(this.maxInFlight);
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("telegram-bot-journal-retry-%d").setDaemon(true).build());
+        try {
+            while (!this.stopped) {
+                permits.acquire();
+                final JournalEntry entry;
+                try {
+                    entry = this.journal.next(POLL_INTERVAL_IN_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (RuntimeException e) {
+                    permits.release();
+                    throw e;
+                }
+                if (entry == null) {
+                    permits.release();
+                    continue;
+                }
+                synchronized (this) {
+                    this.inFlight.addLast(entry);
+                }
+                this.consume(entry, permits, scheduler);
+            }
+            // Let updates being handled finish, including their retries.
+            permits.acquire(this.maxInFlight);
+            if (!this.failed) {
+                // Updates stopped before been handled are left in the journal for the next run.
+                this.journal.rewind();
+            }
+        } catch (InterruptedException e) {
+            LOGGER.debug("Interrupted when waiting for journaled updates.");
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            this.fail(e);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void consume(final JournalEntry entry, final Semaphore permits, final ScheduledExecutorService scheduler) {
+        final Update update;
+        try {
+            update = UPDATE_READER.readValue(entry.getBytes());
+        } catch (IOException e) {
+            LOGGER.error(String.format("Unable to parse journaled update #%d, moving it to dead letters.", entry.getSequence()), e);
+            try {
+                this.journal.deadLetter(entry);
+                this.complete(entry);
+            } finally {
+                permits.release();
+            }
+            return;
+        }
+        this.attempt(entry, update, 1, this.retryBackOffs.get(), permits, scheduler);
+    }
+
+    private void attempt(final JournalEntry entry, final Update update, final int attempt, final BackOff backOff,
+            final Semaphore permits, final ScheduledExecutorService scheduler) {
+        CompletionStage<Boolean> result;
+        try {
+            result = this.handler.apply(update);
+        } catch (RuntimeException e) {
+            final CompletableFuture<Boolean> failure = new CompletableFuture<>();
+            failure.completeExceptionally(e);
+            result = failure;
+        }
+        if (result == null) {
+            result = CompletableFuture.completedFuture(false);
+        }
+        result.whenComplete((success, e) -> {
+            // The permit is held on until the update is done, or consuming stops.
+            boolean retrying = false;
+            try {
+                if (e == null && Boolean.TRUE.equals(success)) {
+                    this.complete(entry);
+                    return;
+                }
+                if (e != null) {
+                    final Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    LOGGER.error(String.format("Hit %s(message:'%s') when handling update.", cause.getClass(), cause.getMessage()), cause);
+                }
+                if (attempt >= this.maxAttempts) {
+                    LOGGER.error("Failed to handle update after {} attempt(s), moving it to dead letters: {}", this.maxAttempts, JsonUtil.toJson(update));
+                    this.journal.deadLetter(entry);
+                    this.complete(entry);
+                    return;
+                }
+                if (this.stopped) {
+                    return;
+                }
+                final long wait = backOff.getNextBackOffInMilli();
+                LOGGER.warn("Failed to handle update {} on attempt {}, wait for {} milliseconds to retry.", update.getId(), attempt, wait);
+                scheduler.schedule(() -> this.attempt(entry, update, attempt + 1, backOff, permits, scheduler), wait, TimeUnit.MILLISECONDS);
+                retrying = true;
+            } catch (RejectedExecutionException ex) {
+                LOGGER.debug("Consuming has been interrupted, update {} is left in the journal.", update.getId());
+            } catch (RuntimeException ex) {
+                this.fail(ex);
+            } finally {
+                if (!retrying) {
+                    permits.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * Marks the record as handled or parked, and commits the records before which all have been done.
+     */
+    private synchronized void complete(final JournalEntry entry) {
+        this.done.add(entry.getSequence());
+        JournalEntry last = null;
+        while (!this.inFlight.isEmpty() && this.done.remove(this.inFlight.peekFirst().getSequence())) {
+            last = this.inFlight.pollFirst();
+        }
+        if (last != null) {
+            this.journal.commit(last);
+        }
+    }
+
+    private void fail(final RuntimeException e) {
+        synchronized (this) {
+            if (this.failed) {
+                return;
+            }
+            this.failed = true;
+        }
+        this.stopped = true;
+        LOGGER.error(String.format("Hit %s(message:'%s') when consuming journaled updates, stop consuming.", e.getClass(), e.getMessage()), e);
+        this.onFailure.run();
+    }
+
+    /**
+     * Stop consuming, updates being handled will be finished first.
+     */
+    void stop() {
+        this.stopped = true;
+    }
+
+}
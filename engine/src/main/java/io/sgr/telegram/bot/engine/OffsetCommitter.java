@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves committed offsets to an {@link OffsetStore} in the background, at most once per interval, so saving does not
+ * add latency to handling updates. Only the latest offset is saved when several are committed within an interval.
+ *
+ * @author SgrAlpha
+ */
+class OffsetCommitter implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OffsetCommitter.class);
+
+    private final OffsetStore store;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile Long pending;
+    private Long saved;
+
+    /**
+     * @param store            The store to save offsets to.
+     * @param saved            The offset already saved, NULL if nothing saved yet.
+     * @param intervalInMillis The interval to save offsets, 0 to save every offset right away.
+     */
+    OffsetCommitter(final OffsetStore store, final Long saved, final long intervalInMillis) {
+        this.store = checkNotNull(store, "Missing offset store.");
+        this.saved = saved;
+        this.pending = saved;
+        if (intervalInMillis > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("telegram-bot-offset-committer-%d").setDaemon(true).build());
+            this.scheduler.scheduleWithFixedDelay(this::flush, intervalInMillis, intervalInMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * @param offset The offset to save, which should never go backward.
+     */
+    void commit(final Long offset) {
+        this.pending = offset;
+        if (this.scheduler == null) {
+            flush();
+        }
+    }
+
+    synchronized void flush() {
+        final Long offset = this.pending;
+        if (offset == null || offset.equals(this.saved)) {
+            return;
+        }
+        try {
+            this.store.save(offset);
+            this.saved = offset;
+        } catch (RuntimeException e) {
+            LOGGER.error(String.format("Failed to save offset %d: %s", offset, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Stop saving in the background, and save the latest offset.
+     */
+    @Override public void close() {
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+        }
+        flush();
+    }
+
+}
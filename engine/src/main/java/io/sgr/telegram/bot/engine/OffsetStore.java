@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine;
+
+/**
+ * Keeps the offset of {@link BotEngine} across restarts, so the engine resumes from where it stopped.
+ *
+ * @author SgrAlpha
+ */
+public interface OffsetStore {
+
+    /**
+     * @return The saved offset, NULL if nothing saved yet.
+     */
+    Long load();
+
+    /**
+     * @param offset The identifier of the first update which has not been handled yet.
+     */
+    void save(long offset);
+
+}
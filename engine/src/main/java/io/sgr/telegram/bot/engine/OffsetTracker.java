@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Keeps track of updates being handled, and works out the offset below which all updates have been handled.
+ *
+ * @author SgrAlpha
+ */
+class OffsetTracker {
+
+    private final Deque<Long> inFlight = new ArrayDeque<>();
+    private final Set<Long> completed = new HashSet<>();
+
+    private Long committed;
+    private boolean failed = false;
+
+    /**
+     * @param committed The offset which has already been committed, NULL if nothing committed yet.
+     */
+    OffsetTracker(final Long committed) {
+        this.committed = committed;
+    }
+
+    /**
+     * @param updateId The ID of an update which is about to be handled, should be greater than any tracked one.
+     */
+    synchronized void track(final long updateId) {
+        inFlight.addLast(updateId);
+    }
+
+    /**
+     * @param updateId The ID of an update which has been handled successfully.
+     *
+     * @return The offset below which all tracked updates have been handled.
+     */
+    synchronized Long complete(final long updateId) {
+        completed.add(updateId);
+        while (!inFlight.isEmpty() && completed.remove(inFlight.peekFirst())) {
+            committed = inFlight.pollFirst() + 1;
+        }
+        return committed;
+    }
+
+    /**
+     * Mark that one of the tracked updates failed to be handled, the committed offset will never go beyond it.
+     */
+    synchronized void fail() {
+        failed = true;
+    }
+
+    synchronized boolean isFailed() {
+        return failed;
+    }
+
+    synchronized Long getCommitted() {
+        return committed;
+    }
+
+    synchronized int getInFlightCount() {
+        return inFlight.size();
+    }
+
+}
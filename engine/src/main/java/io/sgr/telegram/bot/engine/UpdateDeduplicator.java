@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+
+/**
+ * Tells whether an update has been seen, so updates delivered again by Telegram can be dropped.
+ *
+ * <p>Seen update IDs are tracked with a bitmap of the most recent {@code windowSize} IDs below the highest seen one,
+ * the high-water mark, so checking an update takes constant time and no allocation. Updates too old to fall in the
+ * window are considered as seen, as Telegram hands out update IDs in increasing order. A deduplicator restored from a
+ * saved high-water mark considers all updates up to it as seen.
+ *
+ * @author SgrAlpha
+ */
+public class UpdateDeduplicator {
+
+    public static final int DEFAULT_WINDOW_SIZE = 4096;
+
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final long[] bits;
+    private final int windowSize;
+
+    private long highWaterMark;
+
+    public UpdateDeduplicator() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param windowSize The number of most recent update IDs to track, rounded up to a multiple of 64.
+     */
+    public UpdateDeduplicator(final int windowSize) {
+        this(windowSize, NONE);
+    }
+
+    /**
+     * @param windowSize    The number of most recent update IDs to track, rounded up to a multiple of 64.
+     * @param highWaterMark The saved high-water mark, all updates up to which are considered as seen.
+     */
+    public UpdateDeduplicator(final int windowSize, final long highWaterMark) {
+        checkArgument(windowSize > 0, "Window size should be greater than 0, but got " + windowSize);
+        this.bits = new long[(windowSize + Long.SIZE - 1) / Long.SIZE];
+        this.windowSize = this.bits.length * Long.SIZE;
+        this.highWaterMark = highWaterMark;
+        if (highWaterMark != NONE) {
+            Arrays.fill(this.bits, -1L);
+        }
+    }
+
+    /**
+     * Mark an update as seen.
+     *
+     * @param updateId The ID of the update.
+     *
+     * @return True if the update has not been seen before, false if it should be dropped.
+     */
+    public synchronized boolean markSeen(final long updateId) {
+        if (highWaterMark == NONE || updateId > highWaterMark) {
+            advanceTo(updateId);
+            set(updateId);
+            return true;
+        }
+        if (highWaterMark - updateId >= windowSize) {
+            return false;
+        }
+        if (isSet(updateId)) {
+            return false;
+        }
+        set(updateId);
+        return true;
+    }
+
+    /**
+     * Forget an update, e.g. it failed to be handled, so it is accepted when delivered again.
+     *
+     * @param updateId The ID of the update.
+     */
+    public synchronized void forget(final long updateId) {
+        if (highWaterMark != NONE && updateId <= highWaterMark && highWaterMark - updateId < windowSize) {
+            bits[wordIndex(updateId)] &= ~bitMask(updateId);
+        }
+    }
+
+    /**
+     * @return The number of most recent update IDs tracked.
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * @return The highest update ID seen, or {@link Long#MIN_VALUE} if nothing seen yet.
+     */
+    public synchronized long getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    private void advanceTo(final long updateId) {
+        if (highWaterMark == NONE || updateId - highWaterMark >= windowSize) {
+            Arrays.fill(bits, 0L);
+        } else {
+            // IDs between the old and the new high-water mark reuse bits of IDs dropped out of the window.
+            for (long id = highWaterMark + 1; id < updateId; id++) {
+                bits[wordIndex(id)] &= ~bitMask(id);
+            }
+        }
+        highWaterMark = updateId;
+    }
+
+    private boolean isSet(final long updateId) {
+        return (bits[wordIndex(updateId)] & bitMask(updateId)) != 0;
+    }
+
+    private void set(final long updateId) {
+        bits[wordIndex(updateId)] |= bitMask(updateId);
+    }
+
+    private int wordIndex(final long updateId) {
+        return (int) (Math.floorMod(updateId, (long) windowSize) >>> 6);
+    }
+
+    private static long bitMask(final long updateId) {
+        return 1L << (updateId & (Long.SIZE - 1));
+    }
+
+}
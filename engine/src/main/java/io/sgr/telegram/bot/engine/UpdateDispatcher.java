@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine;
+
+import io.sgr.telegram.bot.api.models.Update;
+
+import java.util.concurrent.CompletableFuture;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Decides where and when an update get handled by a {@link BotUpdateProcessor}.
+ *
+ * @author SgrAlpha
+ */
+public interface UpdateDispatcher {
+
+    /**
+     * Dispatch an update to the given processor. Implementations may block the caller when they are running out of
+     * capacity.
+     *
+     * @param update    The update to dispatch.
+     * @param processor The processor to handle the update with.
+     *
+     * @return A future which completes with whether or not the update has been handled successfully.
+     */
+    CompletableFuture<Boolean> dispatch(@Nonnull Update update, @Nonnull BotUpdateProcessor processor);
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.telegram.bot.engine;
+
+import io.sgr.telegram.bot.api.models.Message;
+import io.sgr.telegram.bot.api.models.Update;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Types of updates, by the optional field which is populated in an update.
+ *
+ * @author SgrAlpha
+ */
+public enum UpdateType {
+
+    MESSAGE("message"),
+    EDITED_MESSAGE("edited_message"),
+    CHANNEL_POST("channel_post"),
+    EDITED_CHANNEL_POST("edited_channel_post"),
+    INLINE_QUERY("inline_query"),
+    CHOSEN_INLINE_RESULT("chosen_inline_result"),
+    CALLBACK_QUERY("callback_query"),
+    POLL("poll"),
+    POLL_ANSWER("poll_answer"),
+    UNKNOWN(null);
+
+    private final String fieldName;
+
+    UpdateType(final String fieldName) {
+        this.fieldName = fieldName;
+    }
+
+    /**
+     * @param update The update to classify.
+     * @return The type of the update, or {@link #UNKNOWN} if none of the known fields is populated.
+     */
+    @Nonnull
+    public static UpdateType of(@Nonnull final Update update) {
+        if (update.getMessage() != null) {
+            return MESSAGE;
+        }
+        if (update.getEditedMessage() != null) {
+            return EDITED_MESSAGE;
+        }
+        if (update.getChannelPost() != null) {
+            return CHANNEL_POST;
+        }
+        if (update.getEditedChannelPost() != null) {
+            return EDITED_CHANNEL_POST;
+        }
+        if (update.getInlineQuery() != null) {
+            return INLINE_QUERY;
+        }
+        if (update.getChosenInlineResult() != null) {
+            return CHOSEN_INLINE_RESULT;
+        }
+        if (update.getCallbackQuery() != null) {
+            return CALLBACK_QUERY;
+        }
+        if (update.getPoll() != null) {
+            return POLL;
+        }
+        if (update.getPollAnswer() != null) {
+            return POLL_ANSWER;
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * @return The name of the field in updates, which can be used as allowed update types, NULL for {@link #UNKNOWN}.
+     */
+    @Nullable
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * @return true if updates of this type carry a {@link Message}.
+     */
+    public boolean hasMessage() {
+        return this == MESSAGE || this == EDITED_MESSAGE || this == CHANNEL_POST || this == EDITED_CHANNEL_POST;
+    }
+
+    /**
+     * @param update An update of this type.
+     * @return The message of the update, or NULL if updates of this type do not carry a message.
+     */
+    @Nullable
+    public Message getMessage(@Nonnull final Update update) {
+        switch (this) {
+            case MESSAGE:
+                return update.getMessage();
+            case EDITED_MESSAGE:
+                return update.getEditedMessage();
+            case CHANNEL_POST:
+                return update.getChannelPost();
+            case EDITED_CHANNEL_POST:
+                return update.getEditedChannelPost();
+            default:
+                return null;
+        }
+    }
+
+}
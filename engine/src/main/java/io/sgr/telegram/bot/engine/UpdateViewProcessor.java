@@ -0,0 +1,41 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine;
+
+import io.sgr.telegram.bot.api.models.views.UpdateView;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A variant of {@link BotUpdateProcessor} which handles updates as views over their raw JSON, so only the fields it
+ * reads are ever parsed.
+ *
+ * @author SgrAlpha
+ */
+public interface UpdateViewProcessor {
+
+    /**
+     * Handle update.
+     *
+     * @param update The view of the update to handle with, which should not be held after this method returns.
+     *
+     * @return Whether or not the update has been handled successfully.
+     */
+    boolean handleUpdate(@Nonnull UpdateView update);
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine.broadcast;
+
+/**
+ * Stores how far a broadcast has gone, so it can be resumed after a crash.
+ *
+ * @author SgrAlpha
+ */
+public interface BroadcastCheckpointStore {
+
+    /**
+     * @param broadcastId The ID of the broadcast.
+     *
+     * @return The number of leading chats which have already been handled, 0 if nothing saved yet.
+     */
+    long load(String broadcastId);
+
+    /**
+     * @param broadcastId The ID of the broadcast.
+     * @param position    The number of leading chats which have been handled.
+     */
+    void save(String broadcastId, long position);
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine.broadcast;
+
+/**
+ * Outcome of sending a broadcast message to one chat.
+ *
+ * @author SgrAlpha
+ */
+public enum BroadcastOutcome {
+
+    /**
+     * The message has been sent.
+     */
+    SENT,
+    /**
+     * The bot was blocked by the user, kicked from the group, or otherwise forbidden to send messages to the chat.
+     */
+    BLOCKED,
+    /**
+     * The group has been migrated to a supergroup, see {@link BroadcastReport#getMigrations()} for the new chat ID.
+     */
+    MIGRATED,
+    /**
+     * Telegram refused the request because of flood control.
+     */
+    RATE_LIMITED,
+    /**
+     * The message failed to be sent for any other reason.
+     */
+    FAILED
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine.broadcast;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summary of a broadcast. Only counts are kept for chats the message was sent to, while chat IDs are kept for all
+ * other outcomes, so they can be cleaned up or retried later.
+ *
+ * @author SgrAlpha
+ */
+public class BroadcastReport {
+
+    private final String broadcastId;
+    private final long startPosition;
+    private final long[] counts = new long[BroadcastOutcome.values().length];
+    private final Map<BroadcastOutcome, List<String>> chatIds = new EnumMap<>(BroadcastOutcome.class);
+    private final Map<String, Long> migrations = new HashMap<>();
+    private long endPosition;
+
+    BroadcastReport(final String broadcastId, final long startPosition) {
+        this.broadcastId = broadcastId;
+        this.startPosition = startPosition;
+        this.endPosition = startPosition;
+    }
+
+    synchronized void record(final String chatId, final BroadcastOutcome outcome, final Long migrateToChatId) {
+        counts[outcome.ordinal()]++;
+        if (outcome == BroadcastOutcome.SENT) {
+            return;
+        }
+        chatIds.computeIfAbsent(outcome, key -> new ArrayList<>()).add(chatId);
+        if (migrateToChatId != null) {
+            migrations.put(chatId, migrateToChatId);
+        }
+    }
+
+    synchronized void setEndPosition(final long endPosition) {
+        this.endPosition = endPosition;
+    }
+
+    /**
+     * @return The ID of the broadcast.
+     */
+    public String getBroadcastId() {
+        return broadcastId;
+    }
+
+    /**
+     * @return The number of leading chats which had already been handled before this run, and thus were skipped.
+     */
+    public long getStartPosition() {
+        return startPosition;
+    }
+
+    /**
+     * @return The number of leading chats which have been handled when this run finished.
+     */
+    public synchronized long getEndPosition() {
+        return endPosition;
+    }
+
+    /**
+     * @param outcome The outcome.
+     *
+     * @return The number of chats ended up with the given outcome in this run.
+     */
+    public synchronized long getCount(final BroadcastOutcome outcome) {
+        return counts[outcome.ordinal()];
+    }
+
+    /**
+     * @param outcome The outcome, should not be {@link BroadcastOutcome#SENT}, which chat IDs are not kept.
+     *
+     * @return The chats ended up with the given outcome in this run.
+     */
+    public synchronized List<String> getChatIds(final BroadcastOutcome outcome) {
+        final List<String> ids = chatIds.get(outcome);
+        return ids == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(ids));
+    }
+
+    /**
+     * @return The new chat IDs of groups which have been migrated to supergroups, keyed by the old chat IDs.
+     */
+    public synchronized Map<String, Long> getMigrations() {
+        return Collections.unmodifiableMap(new HashMap<>(migrations));
+    }
+
+    @Override public synchronized String toString() {
+        final StringBuilder builder = new StringBuilder("BroadcastReport{broadcastId='").append(broadcastId).append('\'')
+                .append(", startPosition=").append(startPosition)
+                .append(", endPosition=").append(endPosition);
+        for (BroadcastOutcome outcome : BroadcastOutcome.values()) {
+            builder.append(", ").append(outcome).append('=').append(counts[outcome.ordinal()]);
+        }
+        return builder.append('}').toString();
+    }
+
+}
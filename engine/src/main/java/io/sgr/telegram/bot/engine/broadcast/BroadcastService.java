@@ -0,0 +1,276 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine.broadcast;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Strings.isNullOrEmpty;
+
+import io.sgr.telegram.bot.api.BotApi;
+import io.sgr.telegram.bot.api.exceptions.ApiCallException;
+import io.sgr.telegram.bot.api.http.RateLimiter;
+import io.sgr.telegram.bot.api.models.Message;
+import io.sgr.telegram.bot.api.models.http.ApiErrorResponse;
+import io.sgr.telegram.bot.api.models.http.ResponseParameters;
+import io.sgr.telegram.bot.api.models.http.SendMessagePayload;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+/**
+ * Sends the same message to lots of chats.
+ *
+ * <p>The payload is serialized only once, at most {@link #setMaxConcurrency(int)} messages are in-flight at any time,
+ * and the number of leading chats which have been handled is saved to the {@link BroadcastCheckpointStore}
+ * periodically, so a broadcast interrupted by a crash resumes where it stopped when started again with the same ID and
+ * chat list. Messages in-flight when crashed might be sent again after resuming.
+ *
+ * <p>Bounded concurrency alone does not keep within Telegram's limits, so messages are also paced by the {@link
+ * RateLimiter} of the service, set it to NULL if the {@link BotApi} has been built with its own one. A message hitting
+ * HTTP 429 is only retried once by {@link BotApi#sendRawMessage(okhttp3.RequestBody)}, chats which still ended up
+ * {@link BroadcastOutcome#RATE_LIMITED} are reported, so they can be retried later.
+ *
+ * @author SgrAlpha
+ */
+public class BroadcastService {
+
+    private static final int DEFAULT_MAX_CONCURRENCY = 30;
+    private static final int DEFAULT_CHECKPOINT_INTERVAL = 1000;
+    private static final int HTTP_FORBIDDEN = 403;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BroadcastService.class);
+
+    private final BotApi botApi;
+
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+    private int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+    private BroadcastCheckpointStore checkpointStore = new InMemoryBroadcastCheckpointStore();
+    private RateLimiter rateLimiter = RateLimiter.newInstance();
+
+    /**
+     * @param botApi Telegram bot API client.
+     */
+    public BroadcastService(final BotApi botApi) {
+        this.botApi = checkNotNull(botApi, "Telegram bot API should be specified");
+    }
+
+    /**
+     * Send the message to all given chats, blocks until all of them been handled.
+     *
+     * @param broadcastId The ID of the broadcast, which is used to resume the broadcast.
+     * @param payload     The message to send, its chat ID will be replaced by the one of each chat.
+     * @param chatIds     The chats to send to, should be iterated in the same order when resuming the broadcast.
+     *
+     * @return The report of this run.
+     *
+     * @throws InterruptedException If interrupted while waiting for in-flight messages, the progress so far is saved.
+     */
+    public BroadcastReport broadcast(final String broadcastId, final SendMessagePayload payload, final Iterable<String> chatIds)
+            throws InterruptedException {
+        return broadcast(broadcastId, BroadcastTemplate.of(payload), chatIds);
+    }
+
+    /**
+     * Send the message to all given chats, blocks until all of them been handled.
+     *
+     * @param broadcastId The ID of the broadcast, which is used to resume the broadcast.
+     * @param template    The pre-serialized message to send.
+     * @param chatIds     The chats to send to, should be iterated in the same order when resuming the broadcast.
+     *
+     * @return The report of this run.
+     *
+     * @throws InterruptedException If interrupted while waiting for in-flight messages, the progress so far is saved.
+     */
+    public BroadcastReport broadcast(final String broadcastId, final BroadcastTemplate template, final Iterable<String> chatIds)
+            throws InterruptedException {
+        checkArgument(!isNullOrEmpty(broadcastId), "Broadcast ID should be provided.");
+        checkNotNull(template, "Message template should be provided.");
+        checkNotNull(chatIds, "Chat IDs should be provided.");
+        final int maxConcurrency = this.maxConcurrency;
+        final int checkpointInterval = this.checkpointInterval;
+        final BroadcastCheckpointStore checkpointStore = this.checkpointStore;
+        final RateLimiter rateLimiter = this.rateLimiter;
+
+        final long start = checkpointStore.load(broadcastId);
+        final BroadcastReport report = new BroadcastReport(broadcastId, start);
+        final Progress progress = new Progress(start);
+        final Semaphore permits = new Semaphore(maxConcurrency);
+        LOGGER.info("Broadcast '{}' started from position {}.", broadcastId, start);
+        long index = 0;
+        long checkpoint = start;
+        try {
+            for (final String chatId : chatIds) {
+                if (index < start) {
+                    index++;
+                    continue;
+                }
+                permits.acquire();
+                pace(rateLimiter, chatId);
+                final long position = index++;
+                send(template, chatId).whenComplete((message, e) -> {
+                    try {
+                        record(report, chatId, e);
+                    } finally {
+                        progress.complete(position);
+                        permits.release();
+                    }
+                });
+                final long committed = progress.getCommitted();
+                if (committed - checkpoint >= checkpointInterval) {
+                    checkpointStore.save(broadcastId, committed);
+                    checkpoint = committed;
+                }
+            }
+            permits.acquire(maxConcurrency);
+            permits.release(maxConcurrency);
+        } finally {
+            final long committed = progress.getCommitted();
+            checkpointStore.save(broadcastId, committed);
+            report.setEndPosition(committed);
+        }
+        LOGGER.info("Broadcast '{}' finished: {}", broadcastId, report);
+        return report;
+    }
+
+    private static void pace(final RateLimiter rateLimiter, final String chatId) throws InterruptedException {
+        if (rateLimiter == null) {
+            return;
+        }
+        // Wait for the turn of target chat first, then the global one, as the rate limiter expects.
+        TimeUnit.NANOSECONDS.sleep(rateLimiter.reserveChat(chatId));
+        TimeUnit.NANOSECONDS.sleep(rateLimiter.reserveGlobal());
+    }
+
+    private CompletableFuture<Message> send(final BroadcastTemplate template, final String chatId) {
+        try {
+            return botApi.sendRawMessage(template.newRequestBody(chatId));
+        } catch (RuntimeException e) {
+            final CompletableFuture<Message> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    private static void record(final BroadcastReport report, final String chatId, final Throwable e) {
+        if (e == null) {
+            report.record(chatId, BroadcastOutcome.SENT, null);
+            return;
+        }
+        final Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        final Optional<ApiErrorResponse> errorResponse = cause instanceof ApiCallException
+                ? ((ApiCallException) cause).getErrorResponse() : Optional.empty();
+        final Optional<ResponseParameters> parameters = errorResponse.flatMap(ApiErrorResponse::getParameters);
+        final Long migrateToChatId = parameters.map(ResponseParameters::getMigrateToChatId).orElse(null);
+        final int errorCode = errorResponse.flatMap(ApiErrorResponse::getErrorCode).orElse(0);
+        final BroadcastOutcome outcome;
+        if (migrateToChatId != null) {
+            outcome = BroadcastOutcome.MIGRATED;
+        } else if (errorCode == HTTP_TOO_MANY_REQUESTS || parameters.map(ResponseParameters::getRetryAfter).isPresent()) {
+            outcome = BroadcastOutcome.RATE_LIMITED;
+        } else if (errorCode == HTTP_FORBIDDEN) {
+            outcome = BroadcastOutcome.BLOCKED;
+        } else {
+            outcome = BroadcastOutcome.FAILED;
+        }
+        LOGGER.debug("Failed to send broadcast message to chat '{}': {}", chatId, cause.getMessage());
+        report.record(chatId, outcome, migrateToChatId);
+    }
+
+    /**
+     * @param maxConcurrency Max number of messages in-flight at any time.
+     *
+     * @return The broadcast service.
+     */
+    public BroadcastService setMaxConcurrency(final int maxConcurrency) {
+        checkArgument(maxConcurrency > 0, "Max concurrency should be greater than 0, but got " + maxConcurrency);
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /**
+     * @param checkpointInterval Save a checkpoint every time this many more chats have been handled.
+     *
+     * @return The broadcast service.
+     */
+    public BroadcastService setCheckpointInterval(final int checkpointInterval) {
+        checkArgument(checkpointInterval > 0, "Checkpoint interval should be greater than 0, but got " + checkpointInterval);
+        this.checkpointInterval = checkpointInterval;
+        return this;
+    }
+
+    /**
+     * @param checkpointStore Where to save checkpoints, by default they are kept in memory.
+     *
+     * @return The broadcast service.
+     */
+    public BroadcastService setCheckpointStore(final BroadcastCheckpointStore checkpointStore) {
+        this.checkpointStore = checkNotNull(checkpointStore, "Checkpoint store should be specified.");
+        return this;
+    }
+
+    /**
+     * @param rateLimiter Optional. Paces the messages, NULL to send them as fast as the max concurrency allows.
+     *
+     * @return The broadcast service.
+     */
+    public BroadcastService setRateLimiter(@Nullable final RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+        return this;
+    }
+
+    /**
+     * Works out the number of leading chats which have been handled, while messages are completed out of order.
+     */
+    private static class Progress {
+
+        private final Set<Long> completed = new HashSet<>();
+        private long committed;
+
+        Progress(final long committed) {
+            this.committed = committed;
+        }
+
+        synchronized void complete(final long position) {
+            if (position != committed) {
+                completed.add(position);
+                return;
+            }
+            committed++;
+            while (completed.remove(committed)) {
+                committed++;
+            }
+        }
+
+        synchronized long getCommitted() {
+            return committed;
+        }
+
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine.broadcast;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Strings.isNullOrEmpty;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.sgr.telegram.bot.api.utils.JsonUtil;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.IOException;
+
+/**
+ * A payload serialized only once, which can then be sent to any chat by prepending the chat ID to the shared bytes.
+ *
+ * @author SgrAlpha
+ */
+public class BroadcastTemplate {
+
+    private static final MediaType MEDIA_TYPE = MediaType.get("application/json; charset=UTF-8");
+    private static final String CHAT_ID_FIELD = "chat_id";
+    private static final byte[] PREFIX = ("{\"" + CHAT_ID_FIELD + "\":\"").getBytes(UTF_8);
+
+    // The serialized payload without chat ID, and without the leading '{', e.g. ,"text":"Hello"}
+    private final byte[] tail;
+
+    private BroadcastTemplate(final byte[] tail) {
+        this.tail = tail;
+    }
+
+    /**
+     * @param payload The payload to send, its chat ID, if any, will be replaced by the one of each chat.
+     *
+     * @return The template.
+     */
+    public static BroadcastTemplate of(final Object payload) {
+        checkNotNull(payload, "Payload should be provided.");
+        final JsonNode node = JsonUtil.getObjectMapper().valueToTree(payload);
+        checkArgument(node instanceof ObjectNode, "Payload should be serialized as a JSON object, but got " + node);
+        ((ObjectNode) node).remove(CHAT_ID_FIELD);
+        final byte[] bytes;
+        try {
+            bytes = JsonUtil.getObjectMapper().writeValueAsBytes(node);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+        if (node.size() == 0) {
+            return new BroadcastTemplate(new byte[] {'"', '}'});
+        }
+        // Replace the leading '{' with '",' which closes the chat ID and continues with the rest of fields.
+        final byte[] tail = new byte[bytes.length + 1];
+        tail[0] = '"';
+        tail[1] = ',';
+        System.arraycopy(bytes, 1, tail, 2, bytes.length - 1);
+        return new BroadcastTemplate(tail);
+    }
+
+    /**
+     * @param chatId The chat to send to.
+     *
+     * @return The request body for the given chat.
+     */
+    public ChatRequestBody newRequestBody(final String chatId) {
+        checkArgument(!isNullOrEmpty(chatId), "Chat ID should be provided.");
+        return new ChatRequestBody(chatId, JsonStringEncoder.getInstance().quoteAsUTF8(chatId), tail);
+    }
+
+    /**
+     * The request body of a template for one chat.
+     */
+    public static class ChatRequestBody extends RequestBody {
+
+        private final String chatId;
+        private final byte[] quotedChatId;
+        private final byte[] tail;
+
+        private ChatRequestBody(final String chatId, final byte[] quotedChatId, final byte[] tail) {
+            this.chatId = chatId;
+            this.quotedChatId = quotedChatId;
+            this.tail = tail;
+        }
+
+        /**
+         * @return The chat to send to, which also lets rate limiting work out the target chat of the request.
+         */
+        public String getChatId() {
+            return chatId;
+        }
+
+        @Override public MediaType contentType() {
+            return MEDIA_TYPE;
+        }
+
+        @Override public long contentLength() {
+            return PREFIX.length + quotedChatId.length + tail.length;
+        }
+
+        @Override public void writeTo(final BufferedSink sink) throws IOException {
+            sink.write(PREFIX).write(quotedChatId).write(tail);
+        }
+
+    }
+
+}
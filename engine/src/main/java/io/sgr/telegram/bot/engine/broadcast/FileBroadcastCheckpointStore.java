@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine.broadcast;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Strings.isNullOrEmpty;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Keeps one small file per broadcast in the given directory. Checkpoints are written to a temporary file first and
+ * then flushed to disk and moved in place, so a crash in the middle of saving never leaves a corrupted checkpoint
+ * behind.
+ *
+ * @author SgrAlpha
+ */
+public class FileBroadcastCheckpointStore implements BroadcastCheckpointStore {
+
+    private static final String CHECKPOINT_FILE_SUFFIX = ".checkpoint";
+
+    private final Path directory;
+
+    /**
+     * @param directory The directory to keep checkpoint files in, will be created if not exists.
+     */
+    public FileBroadcastCheckpointStore(final Path directory) {
+        this.directory = checkNotNull(directory, "Checkpoint directory should be specified.");
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override public long load(final String broadcastId) {
+        final Path file = toFile(broadcastId);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(file), UTF_8).trim());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override public void save(final String broadcastId, final long position) {
+        checkArgument(position >= 0, "Position should not be negative, but got " + position);
+        final Path file = toFile(broadcastId);
+        try {
+            final Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                final ByteBuffer buffer = ByteBuffer.wrap(Long.toString(position).getBytes(UTF_8));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                // Otherwise the move might reach the disk before the content does.
+                channel.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path toFile(final String broadcastId) {
+        checkArgument(!isNullOrEmpty(broadcastId), "Broadcast ID should be provided.");
+        checkArgument(broadcastId.matches("[A-Za-z0-9._-]+") && !broadcastId.startsWith("."),
+                "Broadcast ID should only contain letters, digits, '.', '_' or '-', but got " + broadcastId);
+        return directory.resolve(broadcastId + CHECKPOINT_FILE_SUFFIX);
+    }
+
+}
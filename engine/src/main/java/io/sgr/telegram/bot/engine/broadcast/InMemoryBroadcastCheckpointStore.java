@@ -0,0 +1,46 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine.broadcast;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Strings.isNullOrEmpty;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps checkpoints in memory, which only helps to resume a broadcast interrupted within the same process.
+ *
+ * @author SgrAlpha
+ */
+public class InMemoryBroadcastCheckpointStore implements BroadcastCheckpointStore {
+
+    private final Map<String, Long> checkpoints = new ConcurrentHashMap<>();
+
+    @Override public long load(final String broadcastId) {
+        checkArgument(!isNullOrEmpty(broadcastId), "Broadcast ID should be provided.");
+        return checkpoints.getOrDefault(broadcastId, 0L);
+    }
+
+    @Override public void save(final String broadcastId, final long position) {
+        checkArgument(!isNullOrEmpty(broadcastId), "Broadcast ID should be provided.");
+        checkArgument(position >= 0, "Position should not be negative, but got " + position);
+        checkpoints.put(broadcastId, position);
+    }
+
+}
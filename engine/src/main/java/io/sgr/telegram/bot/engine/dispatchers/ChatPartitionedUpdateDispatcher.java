@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine.dispatchers;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.sgr.telegram.bot.api.models.Update;
+import io.sgr.telegram.bot.engine.BotUpdateProcessor;
+import io.sgr.telegram.bot.engine.UpdateDispatcher;
+import io.sgr.telegram.bot.engine.utils.UpdateUtil;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+/**
+ * An update dispatcher which partitions updates by chat ID onto a fixed number of lanes. Each lane is backed by a
+ * single thread, so updates of the same chat are always handled in order, while updates of different chats can be
+ * handled in parallel. Each lane has a bounded queue, dispatching blocks when the queue of target lane is full.
+ *
+ * @author SgrAlpha
+ */
+public class ChatPartitionedUpdateDispatcher implements UpdateDispatcher {
+
+    public static final int DEFAULT_LANE_COUNT = Runtime.getRuntime().availableProcessors();
+    public static final int DEFAULT_LANE_QUEUE_CAPACITY = 100;
+
+    private final ThreadPoolExecutor[] lanes;
+
+    /**
+     * @param laneCount         The number of lanes, should be greater than 0.
+     * @param laneQueueCapacity The maximum number of updates waiting in each lane, should be greater than 0.
+     */
+    public ChatPartitionedUpdateDispatcher(final int laneCount, final int laneQueueCapacity) {
+        if (laneCount <= 0) {
+            throw new IllegalArgumentException(String.format("Lane count should be greater than 0, but got %d", laneCount));
+        }
+        if (laneQueueCapacity <= 0) {
+            throw new IllegalArgumentException(String.format("Lane queue capacity should be greater than 0, but got %d", laneQueueCapacity));
+        }
+        this.lanes = new ThreadPoolExecutor[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            this.lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(laneQueueCapacity),
+                    new ThreadFactoryBuilder().setNameFormat("bot-update-lane-" + i).setDaemon(true).build(),
+                    (task, executor) -> {
+                        if (executor.isShutdown()) {
+                            throw new RejectedExecutionException("Dispatcher has been shutdown.");
+                        }
+                        try {
+                            executor.getQueue().put(task);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException("Interrupted when waiting for lane capacity.", e);
+                        }
+                        // The lane may have been shut down while waiting, and its worker may already be gone.
+                        if (executor.isShutdown() && executor.getQueue().remove(task)) {
+                            throw new RejectedExecutionException("Dispatcher has been shutdown.");
+                        }
+                    });
+        }
+    }
+
+    public static ChatPartitionedUpdateDispatcher newInstance() {
+        return new ChatPartitionedUpdateDispatcher(DEFAULT_LANE_COUNT, DEFAULT_LANE_QUEUE_CAPACITY);
+    }
+
+    @Override public CompletableFuture<Boolean> dispatch(@Nonnull final Update update, @Nonnull final BotUpdateProcessor processor) {
+        checkNotNull(update, "Missing update!");
+        checkNotNull(processor, "Missing processor!");
+        final CompletableFuture<Boolean> future = new CompletableFuture<>();
+        try {
+            lanes[getLaneIndex(update)].execute(() -> {
+                try {
+                    future.complete(processor.handleUpdate(update));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private int getLaneIndex(final Update update) {
+        final Long chatId = UpdateUtil.getChatId(update);
+        return chatId == null ? 0 : Math.floorMod(Long.hashCode(chatId), lanes.length);
+    }
+
+    /**
+     * Stop accepting new updates, updates already dispatched will still be handled.
+     */
+    public void shutdown() {
+        for (final ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    public final int getLaneCount() {
+        return lanes.length;
+    }
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.telegram.bot.engine.dispatchers;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.sgr.telegram.bot.api.models.Update;
+import io.sgr.telegram.bot.engine.BotUpdateProcessor;
+import io.sgr.telegram.bot.engine.UpdateDispatcher;
+import io.sgr.telegram.bot.engine.utils.UpdateUtil;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+/**
+ * An update dispatcher which handles each update on its own virtual thread when the JVM supports them (Java 21 or
+ * later), so thousands of handlers blocking on I/O, like database lookups or waiting for Bot API calls, are cheap. On
+ * older JVMs it falls back to a bounded pool of platform threads.
+ *
+ * <p>Updates of the same chat are always handled in order, each one starts after the previous one of its chat has
+ * completed, while updates of different chats are handled concurrently. The number of updates being handled is capped,
+ * dispatching an update of a chat with nothing in flight blocks when the cap is reached. An update waiting for the
+ * previous one of its chat takes no capacity, it takes over the one of the previous update instead, so a busy chat
+ * never holds more than one. Updates waiting for their chat are only bounded by {@link
+ * io.sgr.telegram.bot.engine.BotEngine#setMaxInFlightUpdates(int)}, which also caps the updates being handled, raise it
+ * to make use of the concurrency.
+ *
+ * @author SgrAlpha
+ */
+public class VirtualThreadUpdateDispatcher implements UpdateDispatcher {
+
+    public static final int DEFAULT_MAX_CONCURRENCY = 10000;
+    public static final int DEFAULT_FALLBACK_POOL_SIZE = 16 * Runtime.getRuntime().availableProcessors();
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadUpdateDispatcher.class);
+
+    private final ExecutorService executor;
+    private final boolean virtual;
+    private final Semaphore permits;
+    private final Map<Long, CompletableFuture<Boolean>> chatTails = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile boolean shutdown = false;
+
+    /**
+     * @param maxConcurrency   The maximum number of updates being handled, should be greater than 0.
+     * @param fallbackPoolSize The number of platform threads to use when virtual threads are not supported, should be
+     *                         greater than 0.
+     */
+    public VirtualThreadUpdateDispatcher(final int maxConcurrency, final int fallbackPoolSize) {
+        this(maxConcurrency, fallbackPoolSize, true);
+    }
+
+    /**
+     * @param maxConcurrency     The maximum number of updates being handled, should be greater than 0.
+     * @param fallbackPoolSize   The number of platform threads to use when virtual threads are not used, should be
+     *                           greater than 0.
+     * @param useVirtualThreads  Whether or not to use virtual threads when the JVM supports them.
+     */
+    public VirtualThreadUpdateDispatcher(final int maxConcurrency, final int fallbackPoolSize, final boolean useVirtualThreads) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException(String.format("Max concurrency should be greater than 0, but got %d", maxConcurrency));
+        }
+        if (fallbackPoolSize <= 0) {
+            throw new IllegalArgumentException(String.format("Fallback pool size should be greater than 0, but got %d", fallbackPoolSize));
+        }
+        this.permits = new Semaphore(maxConcurrency);
+        final ExecutorService virtualExecutor = useVirtualThreads ? newVirtualThreadPerTaskExecutor() : null;
+        this.virtual = virtualExecutor != null;
+        if (this.virtual) {
+            this.executor = virtualExecutor;
+        } else {
+            final ThreadPoolExecutor pool = new ThreadPoolExecutor(fallbackPoolSize, fallbackPoolSize, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    new ThreadFactoryBuilder().setNameFormat("bot-update-worker-%d").setDaemon(true).build());
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+        }
+    }
+
+    public static VirtualThreadUpdateDispatcher newInstance() {
+        return new VirtualThreadUpdateDispatcher(DEFAULT_MAX_CONCURRENCY, DEFAULT_FALLBACK_POOL_SIZE);
+    }
+
+    /**
+     * @return An executor which starts a new virtual thread for each task, or NULL if the JVM does not support it.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            // Looked up by reflection, since the library still targets Java 8.
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            LOGGER.debug("Virtual threads are not supported, fall back to platform threads: {}", e.toString());
+            return null;
+        }
+    }
+
+    @Override public CompletableFuture<Boolean> dispatch(@Nonnull final Update update, @Nonnull final BotUpdateProcessor processor) {
+        checkNotNull(update, "Missing update!");
+        checkNotNull(processor, "Missing processor!");
+        final CompletableFuture<Boolean> future = new CompletableFuture<>();
+        if (this.shutdown) {
+            future.completeExceptionally(new RejectedExecutionException("Dispatcher has been shutdown."));
+            return future;
+        }
+        this.inFlight.incrementAndGet();
+        final Long chatId = UpdateUtil.getChatId(update);
+        // Completes with whether the permit of this update is handed over to the next one of its chat.
+        final CompletableFuture<Boolean> done = new CompletableFuture<>();
+        final CompletableFuture<Boolean> previous = chatId == null ? null : this.chatTails.put(chatId, done);
+        if (previous != null) {
+            previous.whenComplete((permitted, e) -> this.execute(update, processor, future, chatId, done, Boolean.TRUE.equals(permitted)));
+            return future;
+        }
+        try {
+            this.permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(new RejectedExecutionException("Interrupted when waiting for capacity.", e));
+            this.complete(chatId, done, false);
+            return future;
+        }
+        this.execute(update, processor, future, chatId, done, true);
+        return future;
+    }
+
+    private void execute(final Update update, final BotUpdateProcessor processor, final CompletableFuture<Boolean> future,
+            final Long chatId, final CompletableFuture<Boolean> done, final boolean permitted) {
+        try {
+            this.executor.execute(() -> {
+                try {
+                    future.complete(processor.handleUpdate(update));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    this.complete(chatId, done, permitted);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+            this.complete(chatId, done, permitted);
+        }
+    }
+
+    private void complete(final Long chatId, final CompletableFuture<Boolean> done, final boolean permitted) {
+        // Only remove the chat if no other update of it has been dispatched since, otherwise that one takes the permit.
+        final boolean last = chatId == null || this.chatTails.remove(chatId, done);
+        if (permitted && last) {
+            this.permits.release();
+        }
+        done.complete(permitted && !last);
+        if (this.inFlight.decrementAndGet() == 0 && this.shutdown) {
+            this.executor.shutdown();
+        }
+    }
+
+    /**
+     * Stop accepting new updates, updates already dispatched will still be handled.
+     */
+    public void shutdown() {
+        this.shutdown = true;
+        // Updates waiting for their chat still need the executor, it is shut down once they all have been handled.
+        if (this.inFlight.get() == 0) {
+            this.executor.shutdown();
+        }
+    }
+
+    /**
+     * @return true if updates are handled on virtual threads, false if on platform threads.
+     */
+    public boolean isVirtual() {
+        return this.virtual;
+    }
+
+    /**
+     * @return The number of chats which can still get an update handled before reaching the max concurrency.
+     */
+    public int getAvailableCapacity() {
+        return this.permits.availablePermits();
+    }
+
+}
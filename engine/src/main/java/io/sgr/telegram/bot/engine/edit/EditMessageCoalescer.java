@@ -0,0 +1,296 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine.edit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.sgr.telegram.bot.api.BotApi;
+import io.sgr.telegram.bot.api.http.Schedulers;
+import io.sgr.telegram.bot.api.models.Message;
+import io.sgr.telegram.bot.api.models.http.EditMessageCaptionPayload;
+import io.sgr.telegram.bot.api.models.http.EditMessageReplyMarkupPayload;
+import io.sgr.telegram.bot.api.models.http.EditMessageTextPayload;
+import io.sgr.telegram.bot.api.utils.JsonUtil;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Sits in front of the edit methods of {@link BotApi}, and collapses rapid edits of the same message into one call.
+ *
+ * <p>Edits of a message are sent at most once per {@link #setMinInterval(long, TimeUnit)}. Edits made while waiting
+ * replace each other, only the latest one is sent, and futures of all of them complete with the result of it. An edit
+ * which is the same as the one just sent is not sent again, which would be refused by Telegram as "message is not
+ * modified". Text, caption and reply markup edits of a message are coalesced separately.
+ *
+ * <p>Edits are sent on the given executor, as sending might block when the outbound queue of the {@link BotApi} is
+ * full. The scheduler only times them.
+ *
+ * @author SgrAlpha
+ */
+public class EditMessageCoalescer {
+
+    private static final long DEFAULT_MIN_INTERVAL_IN_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+    private final BotApi botApi;
+    private final Executor executor;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, Slot<?>> slots = new HashMap<>();
+
+    private volatile long minIntervalInNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MIN_INTERVAL_IN_MILLIS);
+
+    /**
+     * @param botApi   Telegram bot API client.
+     * @param executor The executor to send edits on, which should not be {@link Schedulers#getDefault()}, as it is the
+     *                 one to free up the outbound queue.
+     */
+    public EditMessageCoalescer(final BotApi botApi, final Executor executor) {
+        this(botApi, executor, Schedulers.getDefault());
+    }
+
+    /**
+     * @param botApi    Telegram bot API client.
+     * @param executor  The executor to send edits on, which should not be {@link Schedulers#getDefault()}, as it is
+     *                  the one to free up the outbound queue.
+     * @param scheduler The scheduler to delay edits, only short and non-blocking tasks run on it.
+     */
+    public EditMessageCoalescer(final BotApi botApi, final Executor executor, final ScheduledExecutorService scheduler) {
+        this.botApi = checkNotNull(botApi, "Telegram bot API should be specified");
+        this.executor = checkNotNull(executor, "Executor should be specified");
+        this.scheduler = checkNotNull(scheduler, "Scheduler should be specified");
+    }
+
+    /**
+     * @param payload The request payload.
+     *
+     * @return The result of the edit sent at last, which might be a later one of the same message.
+     *
+     * @see BotApi#editMessageText(EditMessageTextPayload)
+     */
+    public CompletableFuture<Message> editMessageText(final EditMessageTextPayload payload) {
+        checkNotNull(payload, "Payload should be provided.");
+        return submit(toKey("editMessageText", payload.getChatId(), payload.getMessageId(), payload.getInlineMessageId()),
+                payload, botApi::editMessageText);
+    }
+
+    /**
+     * @param payload The request payload.
+     *
+     * @return The result of the edit sent at last, which might be a later one of the same message.
+     *
+     * @see BotApi#editMessageCaption(EditMessageCaptionPayload)
+     */
+    public CompletableFuture<Message> editMessageCaption(final EditMessageCaptionPayload payload) {
+        checkNotNull(payload, "Payload should be provided.");
+        return submit(toKey("editMessageCaption", payload.getChatId(), payload.getMessageId(), payload.getInlineMessageId()),
+                payload, botApi::editMessageCaption);
+    }
+
+    /**
+     * @param payload The request payload.
+     *
+     * @return The result of the edit sent at last, which might be a later one of the same message.
+     *
+     * @see BotApi#editMessageReplyMarkup(EditMessageReplyMarkupPayload)
+     */
+    public CompletableFuture<Message> editMessageReplyMarkup(final EditMessageReplyMarkupPayload payload) {
+        checkNotNull(payload, "Payload should be provided.");
+        return submit(toKey("editMessageReplyMarkup", payload.getChatId(), payload.getMessageId(), payload.getInlineMessageId()),
+                payload, botApi::editMessageReplyMarkup);
+    }
+
+    /**
+     * @return The number of messages with edits waiting or in-flight.
+     */
+    public int getPendingCount() {
+        synchronized (slots) {
+            return slots.size();
+        }
+    }
+
+    private <P> CompletableFuture<Message> submit(final String key, final P payload, final Function<P, CompletableFuture<Message>> sender) {
+        final CompletableFuture<Message> future = new CompletableFuture<>();
+        synchronized (slots) {
+            @SuppressWarnings("unchecked")
+            final Slot<P> slot = (Slot<P>) slots.computeIfAbsent(key, k -> new Slot<>(sender));
+            slot.pending = payload;
+            slot.waiters.add(future);
+            if (!slot.scheduled && !slot.inFlight) {
+                slot.scheduled = true;
+                schedule(key, slot, slot.nextAllowedAt - System.nanoTime());
+            }
+        }
+        return future;
+    }
+
+    private <P> void flush(final String key, final Slot<P> slot) {
+        final P payload;
+        final List<CompletableFuture<Message>> waiters;
+        synchronized (slots) {
+            payload = slot.pending;
+            waiters = new ArrayList<>(slot.waiters);
+            slot.pending = null;
+            slot.waiters.clear();
+            slot.scheduled = false;
+            // Hold the slot while serializing outside of the lock, edits coming in meanwhile wait for the next flush.
+            slot.inFlight = true;
+        }
+        final String json = toJson(payload);
+        final Message lastResult;
+        synchronized (slots) {
+            lastResult = json != null && json.equals(slot.lastSentJson) ? slot.lastResult : null;
+            if (lastResult != null) {
+                // Same as the one just sent, Telegram would refuse it anyway.
+                slot.inFlight = false;
+                if (slot.pending == null) {
+                    slots.remove(key, slot);
+                } else {
+                    slot.scheduled = true;
+                    schedule(key, slot, slot.nextAllowedAt - System.nanoTime());
+                }
+            } else {
+                slot.nextAllowedAt = System.nanoTime() + minIntervalInNanos;
+            }
+        }
+        if (lastResult != null) {
+            waiters.forEach(waiter -> waiter.complete(lastResult));
+            return;
+        }
+        CompletableFuture<Message> call;
+        try {
+            call = Objects.requireNonNull(slot.sender.apply(payload), "API call returned no future");
+        } catch (RuntimeException e) {
+            call = new CompletableFuture<>();
+            call.completeExceptionally(e);
+        }
+        call.whenComplete((message, e) -> {
+            synchronized (slots) {
+                slot.inFlight = false;
+                slot.lastSentJson = e == null ? json : null;
+                slot.lastResult = e == null ? message : null;
+                if (slot.pending == null) {
+                    // Keep the slot until the next edit is allowed, so an edit coming in soon still waits for its turn.
+                    scheduler.schedule(() -> release(key, slot), Math.max(0, slot.nextAllowedAt - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } else {
+                    slot.scheduled = true;
+                    schedule(key, slot, slot.nextAllowedAt - System.nanoTime());
+                }
+            }
+            for (CompletableFuture<Message> waiter : waiters) {
+                if (e == null) {
+                    waiter.complete(message);
+                } else {
+                    waiter.completeExceptionally(e);
+                }
+            }
+        });
+    }
+
+    private void release(final String key, final Slot<?> slot) {
+        synchronized (slots) {
+            if (!slot.scheduled && !slot.inFlight) {
+                slots.remove(key, slot);
+            }
+        }
+    }
+
+    private <P> void schedule(final String key, final Slot<P> slot, final long delayInNanos) {
+        scheduler.schedule(() -> {
+            try {
+                executor.execute(() -> flush(key, slot));
+            } catch (RejectedExecutionException e) {
+                abandon(key, slot, e);
+            }
+        }, Math.max(0, delayInNanos), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Fails the edits waiting in the slot, as they can not be sent any more.
+     */
+    private void abandon(final String key, final Slot<?> slot, final Exception cause) {
+        final List<CompletableFuture<Message>> waiters;
+        synchronized (slots) {
+            waiters = new ArrayList<>(slot.waiters);
+            slot.pending = null;
+            slot.waiters.clear();
+            slot.scheduled = false;
+            if (!slot.inFlight) {
+                slots.remove(key, slot);
+            }
+        }
+        waiters.forEach(waiter -> waiter.completeExceptionally(cause));
+    }
+
+    private static String toKey(final String method, final String chatId, final Long messageId, final String inlineMessageId) {
+        return inlineMessageId == null ? method + ':' + chatId + '/' + messageId : method + ':' + inlineMessageId;
+    }
+
+    private static String toJson(final Object payload) {
+        try {
+            return JsonUtil.getWriter(payload.getClass()).writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param minInterval The minimum interval between two edits of the same message.
+     * @param unit        The time unit of the interval.
+     *
+     * @return The coalescer.
+     */
+    public EditMessageCoalescer setMinInterval(final long minInterval, final TimeUnit unit) {
+        checkArgument(minInterval >= 0, "Min interval should not be negative, but got " + minInterval);
+        checkNotNull(unit, "Time unit should be specified.");
+        this.minIntervalInNanos = unit.toNanos(minInterval);
+        return this;
+    }
+
+    /**
+     * Edits of one message, guarded by the lock of all slots.
+     */
+    private static class Slot<P> {
+
+        private final Function<P, CompletableFuture<Message>> sender;
+        private final List<CompletableFuture<Message>> waiters = new ArrayList<>();
+        private P pending;
+        private boolean scheduled;
+        private boolean inFlight;
+        private long nextAllowedAt = System.nanoTime();
+        private String lastSentJson;
+        private Message lastResult;
+
+        private Slot(final Function<P, CompletableFuture<Message>> sender) {
+            this.sender = sender;
+        }
+
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.telegram.bot.engine.handlers;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Strings.isNullOrEmpty;
+import static io.sgr.telegram.bot.engine.utils.CommandUtil.ARGUMENT_SEPARATOR;
+import static io.sgr.telegram.bot.engine.utils.CommandUtil.BOT_SEPARATOR;
+import static io.sgr.telegram.bot.engine.utils.CommandUtil.CMD_PREFIX;
+import static io.sgr.telegram.bot.engine.utils.CommandUtil.getCommandArgument;
+import static io.sgr.telegram.bot.engine.utils.CommandUtil.nextCommandEntity;
+import static io.sgr.telegram.bot.engine.utils.CommandUtil.skipCommandChars;
+
+import io.sgr.telegram.bot.api.models.Message;
+import io.sgr.telegram.bot.api.models.MessageEntity;
+
+import java.util.List;
+
+/**
+ * Routes commands to the {@link BotCommandHandler} registered with the same {@link BotCommandHandler#getCommandName()}.
+ *
+ * <p>Command names are kept in a trie of the characters allowed in commands, so a command is looked up in time linear
+ * to its length, right on the text, and nothing is allocated for commands which are not registered, or are sent to
+ * other bots. Command names are case insensitive.
+ *
+ * <p>Messages are routed by the "bot_command" entities Telegram marks in them, so commands anywhere in the text or
+ * caption are found, and every command of a message is handled. Only texts without entities are parsed as a whole.
+ *
+ * @author SgrAlpha
+ */
+public class CommandRouter {
+
+    private static final int ALPHABET_SIZE = 26 + 10 + 1;
+
+    private final String botUsername;
+    private final Node root = new Node();
+
+    /**
+     * @param botUsername The username of the bot, commands sent to other bots will be ignored.
+     */
+    public CommandRouter(final String botUsername) {
+        checkArgument(!isNullOrEmpty(botUsername), "Bot username should be specified.");
+        this.botUsername = botUsername.charAt(0) == BOT_SEPARATOR ? botUsername.substring(1) : botUsername;
+    }
+
+    /**
+     * @param handler The handler of a command.
+     *
+     * @return The router.
+     */
+    public synchronized CommandRouter register(final BotCommandHandler handler) {
+        checkNotNull(handler, "Command handler should be specified.");
+        final String name = handler.getCommandName();
+        checkArgument(!isNullOrEmpty(name) && skipCommandChars(name, 0) == name.length(),
+                "Command name should only contain latin letters, digits and underscores, but got '%s'", name);
+        Node node = this.root;
+        for (int i = 0; i < name.length(); i++) {
+            node = node.getOrAddChild(indexOf(name.charAt(i)));
+        }
+        checkArgument(node.handler == null, "Command '%s' has already been registered.", name);
+        node.handler = handler;
+        return this;
+    }
+
+    /**
+     * @param message The message which might have commands.
+     *
+     * @return true if at least one command of this bot in the message has been handled.
+     */
+    public boolean route(final Message message) {
+        if (message == null) {
+            return false;
+        }
+        if (message.getText() != null) {
+            final List<MessageEntity> entities = message.getEntities();
+            return entities == null ? this.route(message.getText(), message) : this.route(message.getText(), entities, message) > 0;
+        }
+        final List<MessageEntity> captionEntities = message.getCaptionEntities();
+        return message.getCaption() != null && captionEntities != null && this.route(message.getCaption(), captionEntities, message) > 0;
+    }
+
+    /**
+     * @param text     The text or caption of a message.
+     * @param entities The entities or caption entities of the message, commands are found by the "bot_command" ones.
+     * @param message  The message which the text comes from, to pass to the handlers.
+     *
+     * @return The number of commands of this bot which have been handled.
+     */
+    public int route(final String text, final List<MessageEntity> entities, final Message message) {
+        if (isNullOrEmpty(text) || entities == null) {
+            return 0;
+        }
+        int handled = 0;
+        for (int i = nextCommandEntity(text, entities, 0); i >= 0; ) {
+            final MessageEntity entity = entities.get(i);
+            final int start = entity.getOffset();
+            final int end = start + entity.getLength();
+            final int next = nextCommandEntity(text, entities, i + 1);
+            final BotCommandHandler handler = this.find(text, start + 1, end);
+            if (handler != null) {
+                handler.handle(getCommandArgument(text, end, next < 0 ? text.length() : entities.get(next).getOffset()), message);
+                handled++;
+            }
+            i = next;
+        }
+        return handled;
+    }
+
+    /**
+     * @param text    The text which might be a command, in the form of {@code /command[@bot_username][ argument]}.
+     * @param message The message which the text comes from, to pass to the handler.
+     *
+     * @return true if the text is a command of this bot, and has been handled.
+     */
+    public boolean route(final String text, final Message message) {
+        if (isNullOrEmpty(text) || text.charAt(0) != CMD_PREFIX) {
+            return false;
+        }
+        final int length = text.length();
+        final int nameEnd = skipCommandChars(text, 1);
+        final int end = nameEnd < length && text.charAt(nameEnd) == BOT_SEPARATOR ? skipCommandChars(text, nameEnd + 1) : nameEnd;
+        if (end < length && text.charAt(end) != ARGUMENT_SEPARATOR) {
+            return false;
+        }
+        final BotCommandHandler handler = this.find(text, 1, end);
+        if (handler == null) {
+            return false;
+        }
+        handler.handle(end < length ? text.substring(end + 1) : null, message);
+        return true;
+    }
+
+    /**
+     * @param text  The text which has the command.
+     * @param start The index of the first character of the command name, right after the "/".
+     * @param end   The index right after the command, including the optional bot username.
+     *
+     * @return The handler of the command, or NULL if the command is not registered, or is sent to another bot.
+     */
+    private BotCommandHandler find(final String text, final int start, final int end) {
+        Node node = this.root;
+        int i = start;
+        for (; i < end; i++) {
+            final int index = indexOf(text.charAt(i));
+            if (index < 0) {
+                break;
+            }
+            node = node.getChild(index);
+            if (node == null) {
+                return null;
+            }
+        }
+        if (i == start || node.handler == null) {
+            return null;
+        }
+        if (i < end) {
+            final int botLength = end - i - 1;
+            if (text.charAt(i) != BOT_SEPARATOR || botLength != this.botUsername.length()
+                    || !text.regionMatches(true, i + 1, this.botUsername, 0, botLength)) {
+                return null;
+            }
+        }
+        return node.handler;
+    }
+
+    /**
+     * @return The index of the character in the children of a node, or -1 if it is not allowed in commands.
+     */
+    private static int indexOf(final char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        if (c >= '0' && c <= '9') {
+            return 26 + c - '0';
+        }
+        return c == '_' ? ALPHABET_SIZE - 1 : -1;
+    }
+
+    private static class Node {
+
+        private volatile Node[] children;
+        private volatile BotCommandHandler handler;
+
+        private Node getChild(final int index) {
+            final Node[] children = this.children;
+            return children == null ? null : children[index];
+        }
+
+        private Node getOrAddChild(final int index) {
+            // Copy on write, so routing never needs to lock.
+            final Node[] children = this.children == null ? new Node[ALPHABET_SIZE] : this.children.clone();
+            if (children[index] == null) {
+                children[index] = new Node();
+                this.children = children;
+            }
+            return children[index];
+        }
+
+    }
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.telegram.bot.engine.journal;
+
+/**
+ * A record read from an {@link UpdateJournal}.
+ *
+ * @author SgrAlpha
+ */
+public class JournalEntry {
+
+    private final long sequence;
+    private final byte[] bytes;
+
+    JournalEntry(final long sequence, final byte[] bytes) {
+        this.sequence = sequence;
+        this.bytes = bytes;
+    }
+
+    /**
+     * @return The sequence number of the record in the journal.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return The bytes of the record.
+     */
+    public byte[] getBytes() {
+        return bytes.clone();
+    }
+
+}
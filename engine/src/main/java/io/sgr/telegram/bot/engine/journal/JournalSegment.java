@@ -0,0 +1,189 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.telegram.bot.engine.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * A memory-mapped file of a fixed size, holding records one after another. Each record is the length of its bytes,
+ * the CRC32 of its bytes, then the bytes, and a zero length marks the end of the records.
+ *
+ * @author SgrAlpha
+ */
+class JournalSegment implements Closeable {
+
+    static final String FILE_SUFFIX = ".seg";
+    static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    private final long baseSequence;
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    private int count;
+    private int writePosition;
+
+    private JournalSegment(final long baseSequence, final Path file, final FileChannel channel, final MappedByteBuffer buffer) {
+        this.baseSequence = baseSequence;
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * @param directory    The directory to create the segment in.
+     * @param baseSequence The sequence number of the first record in the segment.
+     * @param size         The size of the segment in bytes.
+     *
+     * @return A new empty segment.
+     *
+     * @throws IOException If failed to create the file.
+     */
+    static JournalSegment create(final Path directory, final long baseSequence, final int size) throws IOException {
+        final Path file = directory.resolve(getFileName(baseSequence));
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new JournalSegment(baseSequence, file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+
+    /**
+     * Opens an existing segment, a record torn by a crash and everything after it will be discarded.
+     *
+     * @param file The file of the segment.
+     *
+     * @return The segment.
+     *
+     * @throws IOException If failed to open the file.
+     */
+    static JournalSegment open(final Path file) throws IOException {
+        final String name = file.getFileName().toString();
+        final long baseSequence = Long.parseLong(name.substring(0, name.length() - FILE_SUFFIX.length()));
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final JournalSegment segment = new JournalSegment(baseSequence, file, channel,
+                channel.map(FileChannel.MapMode.READ_WRITE, 0, Files.size(file)));
+        int position = 0;
+        byte[] bytes;
+        while ((bytes = segment.read(position)) != null) {
+            segment.count++;
+            position += HEADER_SIZE + bytes.length;
+        }
+        segment.writePosition = position;
+        if (position + Integer.BYTES <= segment.buffer.capacity()) {
+            segment.buffer.putInt(position, 0);
+        }
+        return segment;
+    }
+
+    static boolean isSegmentFile(final Path file) {
+        final String name = file.getFileName().toString();
+        return name.endsWith(FILE_SUFFIX) && name.length() > FILE_SUFFIX.length()
+                && name.substring(0, name.length() - FILE_SUFFIX.length()).chars().allMatch(Character::isDigit);
+    }
+
+    private static String getFileName(final long baseSequence) {
+        return String.format("%020d%s", baseSequence, FILE_SUFFIX);
+    }
+
+    /**
+     * @param bytes The bytes of the record.
+     *
+     * @return false if there is no room for the record in this segment.
+     */
+    boolean append(final byte[] bytes) {
+        final int end = this.writePosition + HEADER_SIZE + bytes.length;
+        if (end > this.buffer.capacity()) {
+            return false;
+        }
+        // Write the payload first and the length last, so a reader never sees a partially written record.
+        final CRC32 crc = new CRC32();
+        crc.update(bytes);
+        final ByteBuffer target = this.buffer.duplicate();
+        target.position(this.writePosition + HEADER_SIZE);
+        target.put(bytes);
+        this.buffer.putInt(this.writePosition + Integer.BYTES, (int) crc.getValue());
+        if (end + Integer.BYTES <= this.buffer.capacity()) {
+            this.buffer.putInt(end, 0);
+        }
+        this.buffer.putInt(this.writePosition, bytes.length);
+        this.writePosition = end;
+        this.count++;
+        return true;
+    }
+
+    /**
+     * @param position The position of the record in the segment.
+     *
+     * @return The bytes of the record, or NULL if there is no valid record at the position.
+     */
+    byte[] read(final int position) {
+        if (position + HEADER_SIZE > this.buffer.capacity()) {
+            return null;
+        }
+        final int length = this.buffer.getInt(position);
+        if (length <= 0 || position + HEADER_SIZE + length > this.buffer.capacity()) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        final ByteBuffer source = this.buffer.duplicate();
+        source.position(position + HEADER_SIZE);
+        source.get(bytes);
+        final CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue() == this.buffer.getInt(position + Integer.BYTES) ? bytes : null;
+    }
+
+    void force() {
+        this.buffer.force();
+    }
+
+    long getBaseSequence() {
+        return this.baseSequence;
+    }
+
+    /**
+     * @return The sequence number of the record which will be appended next.
+     */
+    long getEndSequence() {
+        return this.baseSequence + this.count;
+    }
+
+    int getCount() {
+        return this.count;
+    }
+
+    @Override public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * Closes and deletes the segment.
+     *
+     * @throws IOException If failed to delete the file.
+     */
+    void delete() throws IOException {
+        this.close();
+        Files.deleteIfExists(this.file);
+    }
+
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.telegram.bot.engine.journal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import io.sgr.telegram.bot.engine.offsets.MappedFileOffsetStore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * An append-only journal of raw updates, kept in memory-mapped segment files under a directory, so updates can be
+ * fetched as fast as Telegram delivers them, and handled at their own pace from the journal.
+ *
+ * <p>Records are read in order with {@link #next(long, TimeUnit)}, and a record is only consumed once {@link
+ * #commit(JournalEntry)} been called for it. The position of the consumer is kept in a cursor file, so records which
+ * have not been committed will be read again after a restart. Records which could never be handled can be parked with
+ * {@link #deadLetter(JournalEntry)}, and put back with {@link #replayDeadLetters()} later. A new segment is started
+ * when the current one is full, and segments are deleted once all their records been consumed.
+ *
+ * <p>Records survive crashes of the process once appended, enable {@link #setSyncOnAppend(boolean)} to also survive
+ * crashes of the operating system, at the cost of flushing the segment to disk on every append.
+ *
+ * @author SgrAlpha
+ */
+public class UpdateJournal implements Closeable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    static final String CURSOR_FILE_NAME = "cursor";
+    static final String DEAD_LETTER_DIRECTORY_NAME = "dead-letter";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final TreeMap<Long, JournalSegment> segments = new TreeMap<>();
+    private final MappedFileOffsetStore cursor;
+
+    private JournalSegment writeSegment;
+    private JournalSegment readSegment;
+    private int readPosition;
+    private long readSequence;
+    private long committed;
+    private boolean syncOnAppend = false;
+    private UpdateJournal deadLetters;
+    private boolean closed = false;
+
+    /**
+     * @param directory The directory to keep the journal in, will be created if not exists.
+     */
+    public UpdateJournal(final Path directory) {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param directory   The directory to keep the journal in, will be created if not exists.
+     * @param segmentSize The size of each segment file in bytes, which also limits the size of a single record.
+     */
+    public UpdateJournal(final Path directory, final int segmentSize) {
+        checkNotNull(directory, "Journal directory should be specified.");
+        checkArgument(segmentSize > JournalSegment.HEADER_SIZE, "Segment size should be greater than %s bytes, but got %s",
+                JournalSegment.HEADER_SIZE, segmentSize);
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        final Long stored;
+        try {
+            Files.createDirectories(directory);
+            for (final Path file : listSegmentFiles(directory)) {
+                final JournalSegment segment = JournalSegment.open(file);
+                this.segments.put(segment.getBaseSequence(), segment);
+            }
+            this.cursor = new MappedFileOffsetStore(directory.resolve(CURSOR_FILE_NAME)).setSyncOnSave(false);
+            stored = this.cursor.load();
+            if (this.segments.isEmpty()) {
+                final long base = stored == null ? 0 : stored;
+                this.segments.put(base, JournalSegment.create(directory, base, segmentSize));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.writeSegment = this.segments.lastEntry().getValue();
+        final long first = this.segments.firstKey();
+        this.committed = Math.min(Math.max(stored == null ? first : stored, first), this.writeSegment.getEndSequence());
+        this.compact();
+        this.seek(this.committed);
+    }
+
+    private static List<Path> listSegmentFiles(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(Files::isRegularFile).filter(JournalSegment::isSegmentFile).sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * @param bytes The raw bytes of an update.
+     *
+     * @return The sequence number of the record in the journal.
+     */
+    public synchronized long append(final byte[] bytes) {
+        checkNotNull(bytes, "Record should be specified.");
+        checkArgument(bytes.length > 0, "Record should not be empty.");
+        checkArgument(JournalSegment.HEADER_SIZE + bytes.length <= this.segmentSize,
+                "Record of %s bytes does not fit into segments of %s bytes.", bytes.length, this.segmentSize);
+        checkState(!this.closed, "Journal has been closed.");
+        if (!this.writeSegment.append(bytes)) {
+            this.writeSegment.force();
+            final long base = this.writeSegment.getEndSequence();
+            try {
+                this.writeSegment = JournalSegment.create(this.directory, base, this.segmentSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.segments.put(base, this.writeSegment);
+            this.writeSegment.append(bytes);
+        }
+        if (this.syncOnAppend) {
+            this.writeSegment.force();
+        }
+        this.notifyAll();
+        return this.writeSegment.getEndSequence() - 1;
+    }
+
+    /**
+     * Reads the next record, waiting for one to be appended if there is none.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit    The time unit of the timeout.
+     *
+     * @return The next record, or NULL if no record been appended before timeout, or the journal has been closed.
+     *
+     * @throws InterruptedException If interrupted when waiting.
+     */
+    public synchronized JournalEntry next(final long timeout, final TimeUnit unit) throws InterruptedException {
+        checkNotNull(unit, "Time unit should be specified");
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!this.closed && this.readSequence >= this.writeSegment.getEndSequence()) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        if (this.closed) {
+            return null;
+        }
+        if (this.readSequence >= this.readSegment.getEndSequence()) {
+            this.readSegment = this.segments.higherEntry(this.readSegment.getBaseSequence()).getValue();
+            this.readPosition = 0;
+            this.readSequence = Math.max(this.readSequence, this.readSegment.getBaseSequence());
+        }
+        final byte[] bytes = this.readSegment.read(this.readPosition);
+        this.readPosition += JournalSegment.HEADER_SIZE + bytes.length;
+        return new JournalEntry(this.readSequence++, bytes);
+    }
+
+    /**
+     * Marks the record and all records before it as consumed, segments whose records have all been consumed will be
+     * deleted.
+     *
+     * @param entry The record which has been handled, or parked as a dead letter.
+     */
+    public synchronized void commit(final JournalEntry entry) {
+        checkNotNull(entry, "Entry should be specified.");
+        checkState(!this.closed, "Journal has been closed.");
+        if (entry.getSequence() < this.committed) {
+            return;
+        }
+        this.committed = entry.getSequence() + 1;
+        this.cursor.save(this.committed);
+        this.compact();
+    }
+
+    /**
+     * Moves the position of {@link #next(long, TimeUnit)} back to the first record which has not been committed, so
+     * records already read but not committed will be read again.
+     */
+    public synchronized void rewind() {
+        checkState(!this.closed, "Journal has been closed.");
+        this.seek(this.committed);
+    }
+
+    /**
+     * Parks the record in the dead letter journal, it still needs to be committed in this journal.
+     *
+     * @param entry The record which could not be handled.
+     */
+    public synchronized void deadLetter(final JournalEntry entry) {
+        checkNotNull(entry, "Entry should be specified.");
+        this.getDeadLetters().append(entry.getBytes());
+    }
+
+    /**
+     * Appends all dead letters back to this journal, so they will be handled again.
+     *
+     * @return The number of records been replayed.
+     */
+    public synchronized int replayDeadLetters() {
+        final UpdateJournal deadLetters = this.getDeadLetters();
+        int replayed = 0;
+        try {
+            JournalEntry entry;
+            while ((entry = deadLetters.next(0, TimeUnit.MILLISECONDS)) != null) {
+                this.append(entry.getBytes());
+                deadLetters.commit(entry);
+                replayed++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return replayed;
+    }
+
+    /**
+     * @return The journal which keeps dead letters, in a sub directory of this journal.
+     */
+    public synchronized UpdateJournal getDeadLetters() {
+        checkState(!this.closed, "Journal has been closed.");
+        if (this.deadLetters == null) {
+            this.deadLetters = new UpdateJournal(this.directory.resolve(DEAD_LETTER_DIRECTORY_NAME), this.segmentSize);
+        }
+        return this.deadLetters;
+    }
+
+    /**
+     * @return The number of records which have not been committed yet.
+     */
+    public synchronized long getPendingCount() {
+        return this.writeSegment.getEndSequence() - this.committed;
+    }
+
+    /**
+     * @return The number of segment files in use.
+     */
+    public synchronized int getSegmentCount() {
+        return this.segments.size();
+    }
+
+    /**
+     * @param syncOnAppend Whether or not to flush the segment to disk on every append. Default to false.
+     *
+     * @return The journal.
+     */
+    public synchronized UpdateJournal setSyncOnAppend(final boolean syncOnAppend) {
+        this.syncOnAppend = syncOnAppend;
+        return this;
+    }
+
+    @Override public synchronized void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.notifyAll();
+        final List<Closeable> closeables = new ArrayList<>(this.segments.values());
+        closeables.add(this.cursor);
+        if (this.deadLetters != null) {
+            closeables.add(this.deadLetters);
+        }
+        IOException failure = null;
+        for (final Closeable closeable : closeables) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                failure = failure == null ? e : failure;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void seek(final long sequence) {
+        this.readSegment = this.segments.floorEntry(sequence).getValue();
+        this.readPosition = 0;
+        for (long i = this.readSegment.getBaseSequence(); i < sequence; i++) {
+            this.readPosition += JournalSegment.HEADER_SIZE + this.readSegment.read(this.readPosition).length;
+        }
+        this.readSequence = sequence;
+    }
+
+    private void compact() {
+        while (this.segments.size() > 1) {
+            final Map.Entry<Long, JournalSegment> oldest = this.segments.firstEntry();
+            if (oldest.getValue().getEndSequence() > this.committed) {
+                return;
+            }
+            this.segments.remove(oldest.getKey());
+            try {
+                oldest.getValue().delete();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine.offsets;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Strings.isNullOrEmpty;
+
+import io.sgr.telegram.bot.engine.OffsetStore;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+/**
+ * Keeps offsets of bots in a database table, which is expected to be created ahead, e.g.
+ *
+ * <pre>
+ * CREATE TABLE telegram_bot_offsets (
+ *     bot_id        VARCHAR(64) PRIMARY KEY,
+ *     update_offset BIGINT      NOT NULL
+ * );
+ * </pre>
+ *
+ * @author SgrAlpha
+ */
+public class JdbcOffsetStore implements OffsetStore {
+
+    public static final String DEFAULT_TABLE_NAME = "telegram_bot_offsets";
+
+    private final DataSource dataSource;
+    private final String botId;
+    private final String selectSql;
+    private final String updateSql;
+    private final String insertSql;
+
+    /**
+     * @param dataSource The data source.
+     * @param botId      The ID of the bot, which tells offsets of different bots apart, e.g. the user ID of the bot.
+     */
+    public JdbcOffsetStore(final DataSource dataSource, final String botId) {
+        this(dataSource, botId, DEFAULT_TABLE_NAME);
+    }
+
+    /**
+     * @param dataSource The data source.
+     * @param botId      The ID of the bot, which tells offsets of different bots apart, e.g. the user ID of the bot.
+     * @param tableName  The name of the table to keep offsets in.
+     */
+    public JdbcOffsetStore(final DataSource dataSource, final String botId, final String tableName) {
+        this.dataSource = checkNotNull(dataSource, "Data source should be specified.");
+        checkArgument(!isNullOrEmpty(botId), "Bot ID should be provided.");
+        this.botId = botId;
+        checkArgument(!isNullOrEmpty(tableName) && tableName.matches("[A-Za-z_][A-Za-z0-9_.]*"),
+                "Table name should only contain letters, digits, '_' or '.', but got " + tableName);
+        this.selectSql = "SELECT update_offset FROM " + tableName + " WHERE bot_id = ?";
+        this.updateSql = "UPDATE " + tableName + " SET update_offset = ? WHERE bot_id = ?";
+        this.insertSql = "INSERT INTO " + tableName + " (bot_id, update_offset) VALUES (?, ?)";
+    }
+
+    @Override public Long load() {
+        try (Connection conn = dataSource.getConnection(); PreparedStatement stmt = conn.prepareStatement(selectSql)) {
+            stmt.setString(1, botId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : null;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(String.format("Failed to load offset of bot '%s': %s", botId, e.getMessage()), e);
+        }
+    }
+
+    @Override public void save(final long offset) {
+        try (Connection conn = dataSource.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(updateSql)) {
+                stmt.setLong(1, offset);
+                stmt.setString(2, botId);
+                if (stmt.executeUpdate() > 0) {
+                    return;
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(insertSql)) {
+                stmt.setString(1, botId);
+                stmt.setLong(2, offset);
+                stmt.executeUpdate();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(String.format("Failed to save offset %d of bot '%s': %s", offset, botId, e.getMessage()), e);
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine.offsets;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.sgr.telegram.bot.engine.OffsetStore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Keeps the offset in a small memory-mapped file, so saving an offset is only a few memory writes, plus flushing the
+ * page to disk if {@link #setSyncOnSave(boolean)} is enabled, which is the default.
+ *
+ * <p>The file holds two slots which are written in turn, each with a sequence number and a checksum, so a save torn by
+ * a crash never corrupts the previous offset.
+ *
+ * @author SgrAlpha
+ */
+public class MappedFileOffsetStore implements OffsetStore, Closeable {
+
+    private static final long MAGIC = 0x5467426f744f6666L;
+    private static final int SLOT_SIZE = 3 * Long.BYTES;
+    private static final int FILE_SIZE = 2 * SLOT_SIZE;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    private volatile boolean syncOnSave = true;
+    private long sequence;
+
+    /**
+     * @param file The file to keep the offset in, will be created if not exists.
+     */
+    public MappedFileOffsetStore(final Path file) {
+        checkNotNull(file, "Offset file should be specified.");
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.sequence = Math.max(0, Math.max(readSequence(0), readSequence(1)));
+    }
+
+    @Override public synchronized Long load() {
+        final long first = readSequence(0);
+        final long second = readSequence(1);
+        if (first < 0 && second < 0) {
+            return null;
+        }
+        return this.buffer.getLong((first > second ? 0 : 1) * SLOT_SIZE + Long.BYTES);
+    }
+
+    @Override public synchronized void save(final long offset) {
+        final long sequence = this.sequence + 1;
+        final int position = (int) (sequence & 1) * SLOT_SIZE;
+        this.buffer.putLong(position, sequence);
+        this.buffer.putLong(position + Long.BYTES, offset);
+        this.buffer.putLong(position + 2 * Long.BYTES, checksum(sequence, offset));
+        if (this.syncOnSave) {
+            this.buffer.force();
+        }
+        this.sequence = sequence;
+    }
+
+    /**
+     * @param syncOnSave Whether or not to flush the file to disk on every save. Without it, saved offsets survive
+     *                   crashes of the process, but not of the operating system.
+     *
+     * @return The store.
+     */
+    public MappedFileOffsetStore setSyncOnSave(final boolean syncOnSave) {
+        this.syncOnSave = syncOnSave;
+        return this;
+    }
+
+    @Override public synchronized void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * @return The sequence number of the slot, or -1 if the slot is empty or corrupted.
+     */
+    private long readSequence(final int slot) {
+        final int position = slot * SLOT_SIZE;
+        final long sequence = this.buffer.getLong(position);
+        final long offset = this.buffer.getLong(position + Long.BYTES);
+        final long checksum = this.buffer.getLong(position + 2 * Long.BYTES);
+        return sequence > 0 && checksum == checksum(sequence, offset) ? sequence : -1;
+    }
+
+    private static long checksum(final long sequence, final long offset) {
+        return Long.rotateLeft(sequence, 17) ^ offset ^ MAGIC;
+    }
+
+}
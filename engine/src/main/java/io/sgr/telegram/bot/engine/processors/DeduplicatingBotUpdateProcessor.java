@@ -0,0 +1,197 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine.processors;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.sgr.telegram.bot.api.models.Update;
+import io.sgr.telegram.bot.engine.BotUpdateProcessor;
+import io.sgr.telegram.bot.engine.UpdateDeduplicator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
+import javax.annotation.Nonnull;
+
+/**
+ * An update processor which drops updates already seen, and hands the others over to the given processor. Updates
+ * failed to be handled are forgotten, so they can be handled again when delivered again.
+ *
+ * <p>To survive restarts, save the high-water mark reported to {@link #setHighWaterMarkListener(LongConsumer, int)},
+ * and restore the deduplicator with it by {@link UpdateDeduplicator#UpdateDeduplicator(int, long)}. The reported
+ * high-water mark is the update ID up to which all accepted updates have been handled, so updates still being handled,
+ * or failed and waiting to be delivered again, are not lost after a restart. A failed update holds the high-water mark
+ * back only until it falls out of the window of the deduplicator, after which it would be dropped as too old anyway.
+ *
+ * @author SgrAlpha
+ */
+public class DeduplicatingBotUpdateProcessor implements BotUpdateProcessor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeduplicatingBotUpdateProcessor.class);
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final BotUpdateProcessor processor;
+    private final UpdateDeduplicator deduplicator;
+    private final AtomicInteger accepted = new AtomicInteger();
+    // Accepted updates not handled yet, a ring of bits over the window of the deduplicator, guarded by itself.
+    private final long[] unhandled;
+    private final int windowSize;
+
+    private long maxAccepted = NONE;
+    private long maxHandled = NONE;
+    private long lowestUnhandled = NONE;
+
+    private volatile LongConsumer highWaterMarkListener;
+    private volatile int highWaterMarkInterval = 1;
+
+    /**
+     * @param processor    The processor to handle updates not seen before.
+     * @param deduplicator The deduplicator.
+     */
+    public DeduplicatingBotUpdateProcessor(@Nonnull final BotUpdateProcessor processor, @Nonnull final UpdateDeduplicator deduplicator) {
+        this.processor = checkNotNull(processor, "Missing processor.");
+        this.deduplicator = checkNotNull(deduplicator, "Missing deduplicator.");
+        this.windowSize = deduplicator.getWindowSize();
+        this.unhandled = new long[this.windowSize / Long.SIZE];
+    }
+
+    @Override public boolean handleUpdate(@Nonnull final Update update) {
+        if (!deduplicator.markSeen(update.getId())) {
+            LOGGER.debug("Dropped duplicated update {}.", update.getId());
+            return true;
+        }
+        accept(update.getId());
+        final boolean handled;
+        try {
+            handled = processor.handleUpdate(update);
+        } catch (RuntimeException e) {
+            deduplicator.forget(update.getId());
+            throw e;
+        }
+        if (!handled) {
+            deduplicator.forget(update.getId());
+            return false;
+        }
+        final long highWaterMark = complete(update.getId());
+        final LongConsumer listener = this.highWaterMarkListener;
+        if (listener != null && accepted.incrementAndGet() % highWaterMarkInterval == 0) {
+            listener.accept(highWaterMark);
+        }
+        return true;
+    }
+
+    /**
+     * @param updateId The ID of an update which is about to be handled.
+     */
+    private void accept(final long updateId) {
+        synchronized (unhandled) {
+            if (maxAccepted == NONE || updateId > maxAccepted) {
+                slideTo(updateId);
+            } else if (maxAccepted - updateId >= windowSize) {
+                return;
+            }
+            unhandled[wordIndex(updateId)] |= bitMask(updateId);
+            if (lowestUnhandled == NONE || updateId < lowestUnhandled) {
+                lowestUnhandled = updateId;
+            }
+        }
+    }
+
+    /**
+     * @param updateId The ID of an update which has been handled successfully.
+     *
+     * @return The update ID up to which all accepted updates have been handled.
+     */
+    private long complete(final long updateId) {
+        synchronized (unhandled) {
+            // Failed updates stay unhandled, until they are delivered again and handled, or fall out of the window.
+            if (maxAccepted - updateId < windowSize) {
+                unhandled[wordIndex(updateId)] &= ~bitMask(updateId);
+            }
+            maxHandled = Math.max(maxHandled, updateId);
+            if (updateId == lowestUnhandled) {
+                lowestUnhandled = findUnhandled(updateId + 1);
+            }
+            return lowestUnhandled == NONE ? maxHandled : Math.min(maxHandled, lowestUnhandled - 1);
+        }
+    }
+
+    private void slideTo(final long updateId) {
+        if (lowestUnhandled != NONE && updateId - lowestUnhandled >= windowSize) {
+            // Updates falling out of the window would be dropped as too old if delivered again.
+            final long outOfWindow = updateId - windowSize;
+            LOGGER.warn("Unhandled update(s) from {} to {} fell out of the window, high-water mark moves past them.",
+                    lowestUnhandled, outOfWindow);
+            if (updateId - maxAccepted >= windowSize) {
+                Arrays.fill(unhandled, 0L);
+            } else {
+                for (long id = lowestUnhandled; id <= outOfWindow; id++) {
+                    unhandled[wordIndex(id)] &= ~bitMask(id);
+                }
+            }
+            maxAccepted = updateId;
+            lowestUnhandled = findUnhandled(outOfWindow + 1);
+            return;
+        }
+        maxAccepted = updateId;
+    }
+
+    /**
+     * @return The lowest unhandled update ID from the given one, or {@link #NONE} if there is none.
+     */
+    private long findUnhandled(final long from) {
+        long id = from;
+        while (id <= maxAccepted) {
+            final long word = unhandled[wordIndex(id)] >>> (id & (Long.SIZE - 1));
+            if (word != 0) {
+                id += Long.numberOfTrailingZeros(word);
+                return id <= maxAccepted ? id : NONE;
+            }
+            id += Long.SIZE - (id & (Long.SIZE - 1));
+        }
+        return NONE;
+    }
+
+    private int wordIndex(final long updateId) {
+        return (int) (Math.floorMod(updateId, (long) windowSize) >>> 6);
+    }
+
+    private static long bitMask(final long updateId) {
+        return 1L << (updateId & (Long.SIZE - 1));
+    }
+
+    /**
+     * @param listener Receives the update ID up to which all accepted updates have been handled, which can be saved to
+     *                 restore the deduplicator later.
+     * @param interval Report the high-water mark every time this many more updates have been handled.
+     *
+     * @return The processor.
+     */
+    public DeduplicatingBotUpdateProcessor setHighWaterMarkListener(final LongConsumer listener, final int interval) {
+        checkArgument(interval > 0, "Interval should be greater than 0, but got " + interval);
+        this.highWaterMarkInterval = interval;
+        this.highWaterMarkListener = listener;
+        return this;
+    }
+
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.telegram.bot.engine.processors;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.sgr.telegram.bot.api.models.CallbackQuery;
+import io.sgr.telegram.bot.api.models.Message;
+import io.sgr.telegram.bot.api.models.Update;
+import io.sgr.telegram.bot.engine.BotUpdateProcessor;
+import io.sgr.telegram.bot.engine.UpdateType;
+import io.sgr.telegram.bot.engine.handlers.BotCallbackHandler;
+import io.sgr.telegram.bot.engine.handlers.BotMessageHandler;
+import io.sgr.telegram.bot.engine.handlers.CommandRouter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+/**
+ * An update processor which classifies each update once by its {@link UpdateType}, and routes it to the handlers
+ * registered for the type:
+ * <ul>
+ * <li>Commands in messages go to the {@link CommandRouter}, other messages go to the {@link BotMessageHandler}s.</li>
+ * <li>Callback queries go to the {@link BotCallbackHandler} registered with the longest prefix of their data.</li>
+ * <li>Updates of all types also go to the {@link BotUpdateProcessor}s registered for the type.</li>
+ * </ul>
+ * Updates which no handler takes go to the fallback processor, if there is one. Handlers are kept in arrays indexed by
+ * the type, which are copied on registration, so routing never needs to lock.
+ *
+ * @author SgrAlpha
+ */
+public class UpdateRouter implements BotUpdateProcessor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UpdateRouter.class);
+    private static final int TYPE_COUNT = UpdateType.values().length;
+
+    private volatile CommandRouter commandRouter;
+    private volatile BotMessageHandler[][] messageHandlers = new BotMessageHandler[TYPE_COUNT][0];
+    private volatile BotUpdateProcessor[][] processors = new BotUpdateProcessor[TYPE_COUNT][0];
+    private final PrefixNode callbackHandlers = new PrefixNode();
+    private volatile BotUpdateProcessor fallback;
+
+    @Override public boolean handleUpdate(@Nonnull final Update update) {
+        final UpdateType type = UpdateType.of(update);
+        try {
+            boolean handled = false;
+            if (type.hasMessage()) {
+                handled = this.routeMessage(type, type.getMessage(update));
+            } else if (type == UpdateType.CALLBACK_QUERY) {
+                handled = this.routeCallbackQuery(update.getCallbackQuery());
+            }
+            boolean success = true;
+            for (final BotUpdateProcessor processor : this.processors[type.ordinal()]) {
+                success &= processor.handleUpdate(update);
+                handled = true;
+            }
+            if (handled) {
+                return success;
+            }
+            final BotUpdateProcessor fallback = this.fallback;
+            return fallback == null || fallback.handleUpdate(update);
+        } catch (RuntimeException e) {
+            LOGGER.error(String.format("Hit %s(message:'%s') when handling %s update %d.", e.getClass(), e.getMessage(), type, update.getId()), e);
+            return false;
+        }
+    }
+
+    private boolean routeMessage(final UpdateType type, final Message message) {
+        final CommandRouter commandRouter = this.commandRouter;
+        if (type == UpdateType.MESSAGE && commandRouter != null && commandRouter.route(message)) {
+            return true;
+        }
+        final BotMessageHandler[] handlers = this.messageHandlers[type.ordinal()];
+        for (final BotMessageHandler handler : handlers) {
+            handler.handle(message);
+        }
+        return handlers.length > 0;
+    }
+
+    private boolean routeCallbackQuery(final CallbackQuery query) {
+        final BotCallbackHandler handler = this.callbackHandlers.findLongestPrefix(query.getData());
+        if (handler == null) {
+            return false;
+        }
+        handler.handle(query);
+        return true;
+    }
+
+    /**
+     * @param commandRouter Optional. The router of commands in new messages, messages which are commands of the bot
+     *                      will not go to the {@link BotMessageHandler}s. Set to NULL to treat commands as messages.
+     *
+     * @return The update router.
+     */
+    public UpdateRouter setCommandRouter(final CommandRouter commandRouter) {
+        this.commandRouter = commandRouter;
+        return this;
+    }
+
+    /**
+     * @param handler The handler of new messages.
+     *
+     * @return The update router.
+     */
+    public UpdateRouter addMessageHandler(final BotMessageHandler handler) {
+        return this.addMessageHandler(UpdateType.MESSAGE, handler);
+    }
+
+    /**
+     * @param type    The type of updates which carry a message.
+     * @param handler The handler of the messages.
+     *
+     * @return The update router.
+     */
+    public synchronized UpdateRouter addMessageHandler(final UpdateType type, final BotMessageHandler handler) {
+        checkNotNull(type, "Update type should be specified.");
+        checkArgument(type.hasMessage(), "Updates of type %s do not carry messages.", type);
+        checkNotNull(handler, "Message handler should be specified.");
+        final BotMessageHandler[][] handlers = this.messageHandlers.clone();
+        handlers[type.ordinal()] = append(handlers[type.ordinal()], handler);
+        this.messageHandlers = handlers;
+        return this;
+    }
+
+    /**
+     * @param handler The handler of all callback queries which no other handler takes.
+     *
+     * @return The update router.
+     */
+    public UpdateRouter addCallbackHandler(final BotCallbackHandler handler) {
+        return this.addCallbackHandler("", handler);
+    }
+
+    /**
+     * @param prefix  The prefix of callback data, a callback query goes to the handler with the longest matching
+     *                prefix.
+     * @param handler The handler of the callback queries.
+     *
+     * @return The update router.
+     */
+    public synchronized UpdateRouter addCallbackHandler(final String prefix, final BotCallbackHandler handler) {
+        checkNotNull(prefix, "Callback data prefix should be specified.");
+        checkNotNull(handler, "Callback handler should be specified.");
+        PrefixNode node = this.callbackHandlers;
+        for (int i = 0; i < prefix.length(); i++) {
+            node = node.getOrAddChild(prefix.charAt(i));
+        }
+        checkArgument(node.handler == null, "A handler has already been registered with prefix '%s'", prefix);
+        node.handler = handler;
+        return this;
+    }
+
+    /**
+     * @param type      The type of updates.
+     * @param processor The processor of all updates of the type, no matter they have been handled by other handlers
+     *                  or not.
+     *
+     * @return The update router.
+     */
+    public synchronized UpdateRouter addUpdateProcessor(final UpdateType type, final BotUpdateProcessor processor) {
+        checkNotNull(type, "Update type should be specified.");
+        checkNotNull(processor, "Update processor should be specified.");
+        final BotUpdateProcessor[][] processors = this.processors.clone();
+        processors[type.ordinal()] = append(processors[type.ordinal()], processor);
+        this.processors = processors;
+        return this;
+    }
+
+    /**
+     * @param fallback Optional. The processor of updates which no other handler takes. Set to NULL to ignore them.
+     *
+     * @return The update router.
+     */
+    public UpdateRouter setFallback(final BotUpdateProcessor fallback) {
+        this.fallback = fallback;
+        return this;
+    }
+
+    private static <T> T[] append(final T[] array, final T element) {
+        final T[] copy = Arrays.copyOf(array, array.length + 1);
+        copy[array.length] = element;
+        return copy;
+    }
+
+    /**
+     * A node of the trie of callback data prefixes, children are kept in an array sorted by their characters.
+     */
+    private static class PrefixNode {
+
+        private static final PrefixNode[] NO_CHILDREN = new PrefixNode[0];
+
+        private final char key;
+        private volatile PrefixNode[] children = NO_CHILDREN;
+        private volatile BotCallbackHandler handler;
+
+        private PrefixNode() {
+            this('\0');
+        }
+
+        private PrefixNode(final char key) {
+            this.key = key;
+        }
+
+        private BotCallbackHandler findLongestPrefix(final String data) {
+            PrefixNode node = this;
+            BotCallbackHandler found = node.handler;
+            if (data == null) {
+                return found;
+            }
+            for (int i = 0; i < data.length(); i++) {
+                node = node.getChild(data.charAt(i));
+                if (node == null) {
+                    break;
+                }
+                if (node.handler != null) {
+                    found = node.handler;
+                }
+            }
+            return found;
+        }
+
+        private PrefixNode getChild(final char c) {
+            final PrefixNode[] children = this.children;
+            final int index = indexOf(children, c);
+            return index < 0 ? null : children[index];
+        }
+
+        private PrefixNode getOrAddChild(final char c) {
+            final PrefixNode[] children = this.children;
+            final int index = indexOf(children, c);
+            if (index >= 0) {
+                return children[index];
+            }
+            final int insertAt = -index - 1;
+            final PrefixNode[] copy = new PrefixNode[children.length + 1];
+            System.arraycopy(children, 0, copy, 0, insertAt);
+            copy[insertAt] = new PrefixNode(c);
+            System.arraycopy(children, insertAt, copy, insertAt + 1, children.length - insertAt);
+            this.children = copy;
+            return copy[insertAt];
+        }
+
+        /**
+         * @return The index of the child with the character, or (-(insertion point) - 1) if there is none.
+         */
+        private static int indexOf(final PrefixNode[] children, final char c) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                final int middle = (low + high) >>> 1;
+                final char key = children[middle].key;
+                if (key < c) {
+                    low = middle + 1;
+                } else if (key > c) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+
+    }
+
+}
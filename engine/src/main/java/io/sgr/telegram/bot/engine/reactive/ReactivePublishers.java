@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine.reactive;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.sgr.telegram.bot.api.models.Update;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Optional;
+
+/**
+ * Adapts {@link UpdatePublisher} to the publisher interface of Reactive Streams, {@code org.reactivestreams.Publisher}
+ * or {@code java.util.concurrent.Flow.Publisher}. The interfaces are bound by reflection, since the library still
+ * targets Java 8 and does not depend on any Reactive Streams library, so it works with whichever one is on the class
+ * path.
+ *
+ * @author SgrAlpha
+ */
+public final class ReactivePublishers {
+
+    private ReactivePublishers() {
+    }
+
+    /**
+     * @param publisher     The publisher to adapt.
+     * @param publisherType The publisher interface, e.g. {@code org.reactivestreams.Publisher.class}.
+     * @param <P>           The type of the publisher interface.
+     *
+     * @return A publisher of updates, which subscribes its subscribers to the given publisher.
+     *
+     * @throws IllegalArgumentException If the given type does not look like the publisher interface of Reactive Streams.
+     */
+    public static <P> P toPublisher(final UpdatePublisher publisher, final Class<P> publisherType) {
+        checkNotNull(publisher, "Publisher should be specified");
+        checkNotNull(publisherType, "Publisher type should be specified");
+        final Class<?> subscriberType = getMethod(publisherType, "subscribe", 1).getParameterTypes()[0];
+        final Method onSubscribe = getMethod(subscriberType, "onSubscribe", 1);
+        final Method onNext = getMethod(subscriberType, "onNext", 1);
+        final Method onError = getMethod(subscriberType, "onError", 1);
+        final Method onComplete = getMethod(subscriberType, "onComplete", 0);
+        final Class<?> subscriptionType = onSubscribe.getParameterTypes()[0];
+        getMethod(subscriptionType, "request", 1);
+        getMethod(subscriptionType, "cancel", 0);
+        return newProxy(publisherType, (method, args) -> {
+            final Object subscriber = checkNotNull(args[0], "Subscriber should be specified");
+            publisher.subscribe(new UpdateSubscriber() {
+                @Override public void onSubscribe(final UpdateSubscription subscription) {
+                    invoke(onSubscribe, subscriber, newProxy(subscriptionType, (subscriptionMethod, subscriptionArgs) -> {
+                        if ("request".equals(subscriptionMethod.getName())) {
+                            subscription.request((Long) subscriptionArgs[0]);
+                        } else {
+                            subscription.cancel();
+                        }
+                    }));
+                }
+
+                @Override public void onNext(final Update update) {
+                    invoke(onNext, subscriber, update);
+                }
+
+                @Override public void onError(final Throwable error) {
+                    invoke(onError, subscriber, error);
+                }
+
+                @Override public void onComplete() {
+                    invoke(onComplete, subscriber);
+                }
+            });
+        });
+    }
+
+    private static Method getMethod(final Class<?> type, final String name, final int parameterCount) {
+        if (type.isInterface()) {
+            for (final Method method : type.getMethods()) {
+                if (method.getName().equals(name) && method.getParameterTypes().length == parameterCount) {
+                    return method;
+                }
+            }
+        }
+        throw new IllegalArgumentException(String.format("%s is not an interface of Reactive Streams, missing method %s",
+                type.getName(), name));
+    }
+
+    private static <T> T newProxy(final Class<T> type, final Handler handler) {
+        final ClassLoader classLoader = Optional.ofNullable(type.getClassLoader()).orElse(ReactivePublishers.class.getClassLoader());
+        final InvocationHandler invocationHandler = (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return type.getName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+                }
+            }
+            handler.handle(method, args);
+            return null;
+        };
+        return type.cast(Proxy.newProxyInstance(classLoader, new Class<?>[] {type}, invocationHandler));
+    }
+
+    private static void invoke(final Method method, final Object target, final Object... args) {
+        try {
+            method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new UndeclaredThrowableException(cause);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Handles calls of a proxied interface method, all of which return nothing.
+     */
+    private interface Handler {
+
+        void handle(Method method, Object[] args);
+
+    }
+
+}
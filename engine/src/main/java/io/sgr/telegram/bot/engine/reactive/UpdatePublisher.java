@@ -0,0 +1,257 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.telegram.bot.engine.reactive;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.Objects.isNull;
+
+import io.sgr.telegram.bot.api.BotApi;
+import io.sgr.telegram.bot.api.models.Update;
+import io.sgr.telegram.bot.api.models.http.GetUpdatesPayload;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Publishes updates fetched with getUpdates, driven by the demand of the subscriber: a getUpdates request is only sent
+ * when the subscriber has requested more updates than been delivered, with the limit set to the outstanding demand, so
+ * fetching pauses while the subscriber is busy, instead of piling updates up in memory.
+ *
+ * <p>It follows the rules of Reactive Streams with {@link UpdateSubscriber} and {@link UpdateSubscription}, which
+ * carry exactly the same signals as {@code Subscriber<Update>} and {@code Subscription}. Use {@link
+ * ReactivePublishers#toPublisher(UpdatePublisher, Class)} to get an {@code org.reactivestreams.Publisher<Update>} or a
+ * {@code java.util.concurrent.Flow.Publisher<Update>} of it.
+ *
+ * <p>Only one subscriber is served at a time, another one can subscribe after the previous one been cancelled or
+ * terminated, and continues from the first update which has not been delivered. Telegram considers an update as
+ * confirmed once it has been delivered to the subscriber and the next getUpdates request is sent. The stream never
+ * completes on its own, it ends with an error if a getUpdates request fails.
+ *
+ * @author SgrAlpha
+ */
+public class UpdatePublisher {
+
+    private static final int MAX_GET_UPDATES_LIMIT = 100;
+    private static final int DEFAULT_GET_UPDATES_TIMEOUT_IN_SEC = (int) TimeUnit.MINUTES.toSeconds(1);
+
+    private final BotApi botApi;
+    private final AtomicReference<Subscription> active = new AtomicReference<>();
+
+    private volatile Long offset = null;
+    private volatile int timeout = DEFAULT_GET_UPDATES_TIMEOUT_IN_SEC;
+    private volatile List<String> allowedUpdates = null;
+
+    /**
+     * @param botApi Telegram bot API client.
+     */
+    public UpdatePublisher(final BotApi botApi) {
+        this.botApi = checkNotNull(botApi, "Telegram bot API should be specified");
+    }
+
+    /**
+     * @param subscriber The subscriber to publish updates to.
+     */
+    public void subscribe(final UpdateSubscriber subscriber) {
+        checkNotNull(subscriber, "Subscriber should be specified");
+        final Subscription subscription = new Subscription(subscriber);
+        if (!this.active.compareAndSet(null, subscription)) {
+            subscriber.onSubscribe(new UpdateSubscription() {
+                @Override public void request(final long n) {
+                }
+
+                @Override public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("Only one subscriber is allowed at a time."));
+            return;
+        }
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * @return The identifier of the first update which has not been delivered yet, NULL if no update been delivered.
+     */
+    public Long getOffset() {
+        return this.offset;
+    }
+
+    /**
+     * @param offset Optional. The identifier of the first update to fetch, NULL to start from the first update which
+     *               has not been confirmed.
+     *
+     * @return The publisher.
+     */
+    public UpdatePublisher setOffset(final Long offset) {
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * @param timeout Optional. Timeout in seconds for long polling, should be greater than 0. Set to non-positive value
+     *                will use {@link #DEFAULT_GET_UPDATES_TIMEOUT_IN_SEC}
+     *
+     * @return The publisher.
+     */
+    public UpdatePublisher setGetUpdatesTimeoutInSec(final int timeout) {
+        this.timeout = timeout <= 0 ? DEFAULT_GET_UPDATES_TIMEOUT_IN_SEC : timeout;
+        return this;
+    }
+
+    /**
+     * @param allowedUpdates Optional. List the types of updates you want your bot to receive. Set to NULL will use
+     *                       Telegram's default, which will accept all types.
+     *
+     * @return The publisher.
+     */
+    public UpdatePublisher setAllowedUpdateTypes(final String... allowedUpdates) {
+        this.allowedUpdates = isNull(allowedUpdates) ? Collections.emptyList() : Arrays.asList(allowedUpdates);
+        return this;
+    }
+
+    private class Subscription implements UpdateSubscription {
+
+        private final UpdateSubscriber subscriber;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final Queue<Update> fetched = new ConcurrentLinkedQueue<>();
+
+        private volatile boolean cancelled = false;
+        private volatile boolean fetching = false;
+        private volatile Throwable error = null;
+        private volatile CompletableFuture<List<Update>> pending = null;
+        private boolean terminated = false;
+
+        private Subscription(final UpdateSubscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override public void request(final long n) {
+            if (n <= 0) {
+                this.error = new IllegalArgumentException(String.format("Requested number should be greater than 0, but got %d", n));
+            } else {
+                this.requested.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            this.drain();
+        }
+
+        @Override public void cancel() {
+            this.cancelled = true;
+            final CompletableFuture<List<Update>> pending = this.pending;
+            if (pending != null) {
+                pending.cancel(true);
+            }
+            this.drain();
+        }
+
+        /**
+         * Delivers fetched updates and sends getUpdates requests. Only one thread runs the loop at a time, others just
+         * ask it to run one more round, so signals never overlap, and requesting from {@link UpdateSubscriber#onNext}
+         * never recurses.
+         */
+        private void drain() {
+            if (this.wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (!this.terminated) {
+                    this.emit();
+                }
+                missed = this.wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void emit() {
+            while (!this.cancelled && this.error == null && this.requested.get() > 0) {
+                final Update update = this.fetched.poll();
+                if (update == null) {
+                    break;
+                }
+                this.requested.getAndUpdate(current -> current == Long.MAX_VALUE ? current : current - 1);
+                final Long offset = UpdatePublisher.this.offset;
+                if (offset == null || update.getId() >= offset) {
+                    UpdatePublisher.this.offset = update.getId() + 1;
+                }
+                this.subscriber.onNext(update);
+            }
+            if (this.cancelled) {
+                this.terminate();
+                return;
+            }
+            if (this.error != null) {
+                this.terminate();
+                this.subscriber.onError(this.error);
+                return;
+            }
+            if (!this.fetching && this.fetched.isEmpty() && this.requested.get() > 0) {
+                this.fetch((int) Math.min(this.requested.get(), MAX_GET_UPDATES_LIMIT));
+            }
+        }
+
+        private void fetch(final int limit) {
+            this.fetching = true;
+            final GetUpdatesPayload payload = new GetUpdatesPayload(UpdatePublisher.this.offset, limit,
+                    UpdatePublisher.this.timeout, UpdatePublisher.this.allowedUpdates);
+            final CompletableFuture<List<Update>> pending;
+            try {
+                pending = UpdatePublisher.this.botApi.getUpdates(payload);
+            } catch (RuntimeException e) {
+                this.error = e;
+                this.fetching = false;
+                this.drain();
+                return;
+            }
+            this.pending = pending;
+            if (this.cancelled) {
+                // Cancelled before the request could be seen, never leave it running behind the next subscriber.
+                pending.cancel(true);
+            }
+            pending.whenComplete((updates, e) -> {
+                if (e != null) {
+                    if (!this.cancelled) {
+                        this.error = e;
+                    }
+                } else if (updates != null) {
+                    for (final Update update : updates) {
+                        if (update != null) {
+                            this.fetched.add(update);
+                        }
+                    }
+                }
+                this.pending = null;
+                this.fetching = false;
+                this.drain();
+            });
+        }
+
+        private void terminate() {
+            this.terminated = true;
+            this.fetched.clear();
+            UpdatePublisher.this.active.compareAndSet(this, null);
+        }
+
+    }
+
+}
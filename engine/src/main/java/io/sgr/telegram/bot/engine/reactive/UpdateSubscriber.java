@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.telegram.bot.engine.reactive;
+
+import io.sgr.telegram.bot.api.models.Update;
+
+/**
+ * Receives updates from an {@link UpdatePublisher}, with the same signals and rules as a Reactive Streams {@code
+ * Subscriber<Update>}: no update is sent before it been requested through the {@link UpdateSubscription}, and signals
+ * never overlap.
+ *
+ * @author SgrAlpha
+ */
+public interface UpdateSubscriber {
+
+    /**
+     * @param subscription The subscription to request updates with, or cancel.
+     */
+    void onSubscribe(UpdateSubscription subscription);
+
+    /**
+     * @param update The next update.
+     */
+    void onNext(Update update);
+
+    /**
+     * Failed to fetch updates, no more signal will be sent.
+     *
+     * @param error The error.
+     */
+    void onError(Throwable error);
+
+    /**
+     * No more update will be sent.
+     */
+    void onComplete();
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.telegram.bot.engine.reactive;
+
+/**
+ * The link between an {@link UpdatePublisher} and an {@link UpdateSubscriber}, with the same rules as a Reactive
+ * Streams {@code Subscription}.
+ *
+ * @author SgrAlpha
+ */
+public interface UpdateSubscription {
+
+    /**
+     * @param n The number of more updates the subscriber is ready to receive, should be greater than 0. Requesting
+     *          {@link Long#MAX_VALUE} means there is no limit.
+     */
+    void request(long n);
+
+    /**
+     * Stop sending updates, updates already fetched but not sent will be fetched again by the next subscriber.
+     */
+    void cancel();
+
+}
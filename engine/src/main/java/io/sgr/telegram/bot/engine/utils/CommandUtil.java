@@ -19,36 +19,149 @@ package io.sgr.telegram.bot.engine.utils;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
 
+import io.sgr.telegram.bot.api.models.MessageEntity;
 import io.sgr.telegram.bot.engine.Command;
 
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class CommandUtil {
 
-    private static final String CMD_PREFIX = "/";
-    private static final Pattern CMD_PATTERN = Pattern.compile("^\\w+(@\\w+(bot))?$");
+    public static final char CMD_PREFIX = '/';
+    public static final char BOT_SEPARATOR = '@';
+    public static final char ARGUMENT_SEPARATOR = ' ';
+    public static final String BOT_COMMAND_ENTITY_TYPE = "bot_command";
+
+    private static final String BOT_SUFFIX = "bot";
 
     /**
      * @param text The text to parse command from
      * @return An instance of command
      */
     public static Command parseCommandFromText(final String text) {
-        if (isNullOrEmpty(text) || !text.startsWith(CMD_PREFIX)) {
+        if (isNullOrEmpty(text) || text.charAt(0) != CMD_PREFIX) {
             return null;
         }
-        String[] tmp = text.split(" ", 2);
-        String argument = tmp.length > 1 ? tmp[1] : null;
-        String cmdToBot = tmp[0].replaceFirst(CMD_PREFIX, "");
-        if (!CMD_PATTERN.matcher(cmdToBot).matches()) {
+        final int nameEnd = skipCommandChars(text, 1);
+        if (nameEnd == 1) {
             return null;
         }
-        tmp = cmdToBot.split("@", 2);
-        final String type = tmp[0];
-        if (isNullOrEmpty(type)) {
+        int end = nameEnd;
+        String toBot = null;
+        if (end < text.length() && text.charAt(end) == BOT_SEPARATOR) {
+            end = skipCommandChars(text, nameEnd + 1);
+            // Bot usernames always end with "bot", with at least one character before it.
+            if (end - (nameEnd + 1) <= BOT_SUFFIX.length() || !text.startsWith(BOT_SUFFIX, end - BOT_SUFFIX.length())) {
+                return null;
+            }
+            toBot = text.substring(nameEnd + 1, end);
+        }
+        if (end < text.length() && text.charAt(end) != ARGUMENT_SEPARATOR) {
             return null;
         }
-        final String toBot = tmp.length > 1 ? tmp[1] : null;
-        return new Command(type, toBot, argument);
+        final String argument = end < text.length() ? text.substring(end + 1) : null;
+        return new Command(text.substring(1, nameEnd), toBot, argument);
+    }
+
+    /**
+     * Parses commands from the "bot_command" entities Telegram marks in a message, so commands anywhere in the text are
+     * found, and several commands in one message are supported. The argument of a command is the text after it, till
+     * the next command or the end of the text.
+     *
+     * @param text     The text or caption of a message.
+     * @param entities The entities or caption entities of the message.
+     * @return The commands in the order they appear in the text, or an empty list if there is none.
+     */
+    public static List<Command> parseCommandsFromEntities(final String text, final List<MessageEntity> entities) {
+        if (isNullOrEmpty(text) || entities == null) {
+            return Collections.emptyList();
+        }
+        List<Command> commands = null;
+        for (int i = nextCommandEntity(text, entities, 0); i >= 0; ) {
+            final MessageEntity entity = entities.get(i);
+            final int start = entity.getOffset();
+            final int end = start + entity.getLength();
+            final int next = nextCommandEntity(text, entities, i + 1);
+            final int nameEnd = skipCommandChars(text, start + 1);
+            if (nameEnd > start + 1 && (nameEnd == end || text.charAt(nameEnd) == BOT_SEPARATOR)) {
+                final String toBot = nameEnd < end ? text.substring(nameEnd + 1, end) : null;
+                final String argument = getCommandArgument(text, end, next < 0 ? text.length() : entities.get(next).getOffset());
+                if (commands == null) {
+                    commands = new ArrayList<>();
+                }
+                commands.add(new Command(text.substring(start + 1, nameEnd), toBot, argument));
+            }
+            i = next;
+        }
+        return commands == null ? Collections.emptyList() : commands;
+    }
+
+    /**
+     * @param text     The text or caption of a message.
+     * @param entities The entities or caption entities of the message.
+     * @param from     The index of the entity to start from.
+     * @return The index of the first valid "bot_command" entity from the given index, or -1 if there is none.
+     */
+    public static int nextCommandEntity(final String text, final List<MessageEntity> entities, final int from) {
+        for (int i = from; i < entities.size(); i++) {
+            final MessageEntity entity = entities.get(i);
+            if (!BOT_COMMAND_ENTITY_TYPE.equals(entity.getType())) {
+                continue;
+            }
+            final int start = entity.getOffset();
+            final int end = start + entity.getLength();
+            // Offsets and lengths are in UTF-16 code units, which are exactly the indexes of Java strings.
+            if (start >= 0 && end > start && end <= text.length() && text.charAt(start) == CMD_PREFIX) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param text       The text which has the command.
+     * @param commandEnd The index right after the command.
+     * @param limit      The index where the argument should end, which is the start of the next command or the length
+     *                   of the text.
+     * @return The argument of the command, or NULL if the command is at the end of the text.
+     */
+    public static String getCommandArgument(final String text, final int commandEnd, final int limit) {
+        if (commandEnd >= text.length()) {
+            return null;
+        }
+        final int start = Character.isWhitespace(text.charAt(commandEnd)) ? commandEnd + 1 : commandEnd;
+        int end = Math.max(start, limit);
+        if (limit < text.length()) {
+            // Whitespaces before the next command only separate the commands.
+            while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+                end--;
+            }
+        }
+        return text.substring(start, end);
+    }
+
+    /**
+     * @param text The text to scan.
+     * @param from The index to start from.
+     * @return The index of the first character from the given index which is not allowed in commands, or the length of
+     *         the text if there is none.
+     */
+    public static int skipCommandChars(final String text, final int from) {
+        int i = from;
+        while (i < text.length() && isCommandChar(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @param c The character to check.
+     * @return true if the character is allowed in commands and bot usernames, which are latin letters, digits and
+     *         underscores.
+     */
+    public static boolean isCommandChar(final char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
     }
 
 }
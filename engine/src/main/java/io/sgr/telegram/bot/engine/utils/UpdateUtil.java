@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine.utils;
+
+import io.sgr.telegram.bot.api.models.CallbackQuery;
+import io.sgr.telegram.bot.api.models.Message;
+import io.sgr.telegram.bot.api.models.Update;
+import io.sgr.telegram.bot.api.models.User;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * @author SgrAlpha
+ */
+public class UpdateUtil {
+
+    /**
+     * Find out which chat the given update belongs to. For updates without a chat, like inline queries, the ID of the
+     * sender will be used since it equals to the ID of the private chat between the bot and the sender.
+     *
+     * @param update The update to find chat ID from.
+     * @return The chat ID, or NULL if the update does not belong to any chat, for example a poll update.
+     */
+    @Nullable
+    public static Long getChatId(@Nonnull final Update update) {
+        Message message = update.getMessage();
+        if (message == null) {
+            message = update.getEditedMessage();
+        }
+        if (message == null) {
+            message = update.getChannelPost();
+        }
+        if (message == null) {
+            message = update.getEditedChannelPost();
+        }
+        if (message != null && message.getChat() != null) {
+            return message.getChat().getId();
+        }
+        final CallbackQuery callbackQuery = update.getCallbackQuery();
+        if (callbackQuery != null) {
+            if (callbackQuery.getMessage() != null && callbackQuery.getMessage().getChat() != null) {
+                return callbackQuery.getMessage().getChat().getId();
+            }
+            return getUserId(callbackQuery.getFrom());
+        }
+        if (update.getInlineQuery() != null) {
+            return getUserId(update.getInlineQuery().getFrom());
+        }
+        if (update.getChosenInlineResult() != null) {
+            return getUserId(update.getChosenInlineResult().getFrom());
+        }
+        if (update.getPollAnswer() != null) {
+            return getUserId(update.getPollAnswer().getUser());
+        }
+        return null;
+    }
+
+    private static Long getUserId(final User user) {
+        return user == null ? null : user.getId();
+    }
+
+}
@@ -0,0 +1,453 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine;
+
+import static io.sgr.telegram.bot.engine.TestUpdates.newUpdate;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.sgr.telegram.bot.api.BotApi;
+import io.sgr.telegram.bot.api.models.Update;
+import io.sgr.telegram.bot.api.models.WebhookInfo;
+import io.sgr.telegram.bot.api.models.http.GetUpdatesPayload;
+import io.sgr.telegram.bot.api.utils.JsonUtil;
+import io.sgr.telegram.bot.engine.journal.JournalEntry;
+import io.sgr.telegram.bot.engine.journal.UpdateJournal;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author SgrAlpha
+ */
+public class BotEngineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testPipelinedPolling() {
+        final BotApi botApi = mock(BotApi.class);
+        when(botApi.getWebhookInfo()).thenReturn(CompletableFuture.completedFuture(mock(WebhookInfo.class)));
+        final List<Long> requestedOffsets = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger calls = new AtomicInteger();
+        when(botApi.getUpdates(any(GetUpdatesPayload.class))).thenAnswer(invocation -> {
+            requestedOffsets.add(invocation.<GetUpdatesPayload>getArgument(0).getOffset());
+            switch (calls.getAndIncrement()) {
+                case 0:
+                    return CompletableFuture.completedFuture(Arrays.asList(newUpdate(1), newUpdate(2)));
+                case 1:
+                    return CompletableFuture.completedFuture(Collections.singletonList(newUpdate(3)));
+                default:
+                    return new CompletableFuture<>();
+            }
+        });
+        final BotEngine engine = new BotEngine(botApi).setPipelinedPolling(true);
+        final List<Integer> callsWhenHandling = new ArrayList<>();
+        engine.setBotUpdateProcessor(update -> {
+            callsWhenHandling.add(calls.get());
+            if (update.getId() == 3) {
+                engine.stop();
+            }
+            return true;
+        });
+        engine.start();
+
+        // The next batch should already be requested before the first update been handled.
+        assertEquals(Arrays.asList(2, 2, 3), callsWhenHandling);
+        assertEquals(3, requestedOffsets.size());
+        assertNull(requestedOffsets.get(0));
+        assertEquals(Long.valueOf(3), requestedOffsets.get(1));
+        assertEquals(Long.valueOf(4), requestedOffsets.get(2));
+    }
+
+    @Test
+    public void testDispatchedUpdatesCommittedInOrder() {
+        final BotApi botApi = mock(BotApi.class);
+        when(botApi.getWebhookInfo()).thenReturn(CompletableFuture.completedFuture(mock(WebhookInfo.class)));
+        final List<Long> requestedOffsets = Collections.synchronizedList(new ArrayList<>());
+        when(botApi.getUpdates(any(GetUpdatesPayload.class))).thenAnswer(invocation -> {
+            requestedOffsets.add(invocation.<GetUpdatesPayload>getArgument(0).getOffset());
+            return CompletableFuture.completedFuture(Arrays.asList(newUpdate(1), newUpdate(2), newUpdate(3)));
+        });
+        final List<Long> handled = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch lastHandled = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        final BotEngine engine = new BotEngine(botApi)
+                .setGetUpdatesTimeoutInSec(1)
+                .setUpdateDispatcher((update, processor) -> CompletableFuture.supplyAsync(() -> processor.handleUpdate(update), executor))
+                .setBotUpdateProcessor(update -> {
+                    handled.add(update.getId());
+                    if (update.getId() == 3) {
+                        lastHandled.countDown();
+                        return true;
+                    }
+                    if (update.getId() == 2) {
+                        // Fail only after all updates been dispatched.
+                        try {
+                            lastHandled.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return false;
+                    }
+                    return true;
+                });
+        engine.start();
+        executor.shutdown();
+
+        assertEquals(3, handled.size());
+        // Update 2 was still in flight, so no more updates should be asked for, which would confirm it to Telegram.
+        assertEquals(1, requestedOffsets.size());
+        // Update 3 has been handled, but offset should not go beyond the failed update 2.
+        assertEquals(Long.valueOf(2), engine.getOffset());
+    }
+
+    @Test
+    public void testNextBatchFetchedAfterInFlightUpdatesHandled() throws Exception {
+        final BotApi botApi = mock(BotApi.class);
+        when(botApi.getWebhookInfo()).thenReturn(CompletableFuture.completedFuture(mock(WebhookInfo.class)));
+        final List<Long> requestedOffsets = Collections.synchronizedList(new ArrayList<>());
+        when(botApi.getUpdates(any(GetUpdatesPayload.class))).thenAnswer(invocation -> {
+            requestedOffsets.add(invocation.<GetUpdatesPayload>getArgument(0).getOffset());
+            return requestedOffsets.size() == 1
+                    ? CompletableFuture.completedFuture(Arrays.asList(newUpdate(1), newUpdate(2)))
+                    : new CompletableFuture<>();
+        });
+        final Map<Long, CompletableFuture<Boolean>> results = new ConcurrentHashMap<>();
+        final BotEngine engine = new BotEngine(botApi).setGetUpdatesTimeoutInSec(1);
+        engine.setAsyncBotUpdateProcessor(update -> results.computeIfAbsent(update.getId(), id -> new CompletableFuture<>()));
+        final Thread thread = new Thread(engine);
+        thread.start();
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (results.size() < 2 && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        results.get(1L).complete(true);
+        TimeUnit.MILLISECONDS.sleep(300);
+        // Update 2 is still in flight.
+        assertEquals(1, requestedOffsets.size());
+        results.get(2L).complete(true);
+        while (requestedOffsets.size() < 2 && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        engine.stop();
+        thread.join();
+        assertEquals(Long.valueOf(3), requestedOffsets.get(1));
+    }
+
+    @Test
+    public void testAsyncProcessorCompletedOutOfOrder() {
+        final BotApi botApi = mockBotApi(Arrays.asList(newUpdate(1), newUpdate(2), newUpdate(3)));
+        final Map<Long, CompletableFuture<Boolean>> results = new ConcurrentHashMap<>();
+        final BotEngine engine = new BotEngine(botApi)
+                .setGetUpdatesTimeoutInSec(1)
+                .setMaxInFlightUpdates(3);
+        engine.setAsyncBotUpdateProcessor(update -> {
+            final CompletableFuture<Boolean> result = new CompletableFuture<>();
+            results.put(update.getId(), result);
+            if (results.size() == 3) {
+                results.get(3L).complete(true);
+                results.get(1L).complete(true);
+                engine.stop();
+            }
+            return result;
+        });
+        engine.start();
+
+        // Update 2 is still in-flight, so offset should stop at it.
+        assertEquals(Long.valueOf(2), engine.getOffset());
+        results.get(2L).complete(true);
+        assertEquals(Long.valueOf(4), engine.getOffset());
+    }
+
+    @Test
+    public void testStreamingUpdates() {
+        final BotApi botApi = mock(BotApi.class);
+        when(botApi.getWebhookInfo()).thenReturn(CompletableFuture.completedFuture(mock(WebhookInfo.class)));
+        final List<Long> requestedOffsets = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger calls = new AtomicInteger();
+        when(botApi.getUpdatesAsStream(any(GetUpdatesPayload.class))).thenAnswer(invocation -> {
+            requestedOffsets.add(invocation.<GetUpdatesPayload>getArgument(0).getOffset());
+            switch (calls.getAndIncrement()) {
+                case 0:
+                    return CompletableFuture.completedFuture(ResponseBody.create(MediaType.get("application/json"),
+                            "{\"ok\":true,\"result\":[{\"update_id\":1},{\"update_id\":2}]}"));
+                case 1:
+                    return CompletableFuture.completedFuture(ResponseBody.create(MediaType.get("application/json"),
+                            "{\"ok\":true,\"result\":[{\"update_id\":3}]}"));
+                default:
+                    return new CompletableFuture<>();
+            }
+        });
+        final List<Long> handled = new ArrayList<>();
+        final BotEngine engine = new BotEngine(botApi).setStreamingUpdates(true);
+        engine.setBotUpdateProcessor(update -> {
+            handled.add(update.getId());
+            if (update.getId() == 3) {
+                engine.stop();
+            }
+            return true;
+        });
+        engine.start();
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), handled);
+        assertEquals(Long.valueOf(4), engine.getOffset());
+        assertEquals(2, requestedOffsets.size());
+        assertNull(requestedOffsets.get(0));
+        assertEquals(Long.valueOf(3), requestedOffsets.get(1));
+    }
+
+    @Test
+    public void testUpdateViewProcessor() {
+        final BotApi botApi = mock(BotApi.class);
+        when(botApi.getWebhookInfo()).thenReturn(CompletableFuture.completedFuture(mock(WebhookInfo.class)));
+        when(botApi.getUpdatesAsStream(any(GetUpdatesPayload.class))).thenReturn(CompletableFuture.completedFuture(
+                ResponseBody.create(MediaType.get("application/json"), "{\"ok\":true,\"result\":[{\"update_id\":1,\"message\":"
+                        + "{\"message_id\":5,\"date\":0,\"chat\":{\"id\":9,\"type\":\"private\"},\"text\":\"hi\"}},{\"update_id\":2}]}")));
+        final List<String> handled = new ArrayList<>();
+        final BotEngine engine = new BotEngine(botApi);
+        engine.setBotUpdateProcessor(update -> {
+            throw new AssertionError("Bound updates should not be handled");
+        });
+        engine.setUpdateViewProcessor(update -> {
+            handled.add(update.getId() + ":" + (update.getMessage() == null ? null : update.getMessage().getChatId()));
+            if (update.getId() == 2) {
+                engine.stop();
+            }
+            return true;
+        });
+        engine.start();
+
+        assertEquals(Arrays.asList("1:9", "2:null"), handled);
+        assertEquals(Long.valueOf(3), engine.getOffset());
+    }
+
+    @Test
+    public void testResumeFromOffsetStore() {
+        final BotApi botApi = mock(BotApi.class);
+        when(botApi.getWebhookInfo()).thenReturn(CompletableFuture.completedFuture(mock(WebhookInfo.class)));
+        final List<Long> requestedOffsets = Collections.synchronizedList(new ArrayList<>());
+        when(botApi.getUpdates(any(GetUpdatesPayload.class))).thenAnswer(invocation -> {
+            requestedOffsets.add(invocation.<GetUpdatesPayload>getArgument(0).getOffset());
+            return requestedOffsets.size() == 1
+                    ? CompletableFuture.completedFuture(Arrays.asList(newUpdate(5), newUpdate(6)))
+                    : new CompletableFuture<>();
+        });
+        final List<Long> saved = Collections.synchronizedList(new ArrayList<>());
+        final OffsetStore store = new OffsetStore() {
+            @Override public Long load() {
+                return 5L;
+            }
+
+            @Override public void save(final long offset) {
+                saved.add(offset);
+            }
+        };
+        final BotEngine engine = new BotEngine(botApi).setOffsetStore(store).setOffsetCommitInterval(1, TimeUnit.HOURS);
+        engine.setBotUpdateProcessor(update -> {
+            if (update.getId() == 6) {
+                engine.stop();
+            }
+            return true;
+        });
+        engine.start();
+
+        assertEquals(Long.valueOf(5), requestedOffsets.get(0));
+        // Offsets committed within the interval are saved once, when the engine stops.
+        assertEquals(Collections.singletonList(7L), saved);
+    }
+
+    @Test
+    public void testSaveOffsetWhenProcessorThrows() {
+        final BotApi botApi = mockBotApi(Arrays.asList(newUpdate(5), newUpdate(6), newUpdate(7)));
+        final List<Long> saved = Collections.synchronizedList(new ArrayList<>());
+        final OffsetStore store = new OffsetStore() {
+            @Override public Long load() {
+                return null;
+            }
+
+            @Override public void save(final long offset) {
+                saved.add(offset);
+            }
+        };
+        final BotEngine engine = new BotEngine(botApi).setOffsetStore(store).setOffsetCommitInterval(1, TimeUnit.HOURS);
+        engine.setBotUpdateProcessor(update -> {
+            if (update.getId() == 6) {
+                throw new IllegalStateException("Broken processor");
+            }
+            return true;
+        });
+        // The exception stops the engine like a failed update, instead of escaping from it.
+        engine.start();
+
+        assertEquals(Long.valueOf(6), engine.getOffset());
+        assertEquals(Collections.singletonList(6L), saved);
+    }
+
+    @Test
+    public void testParkFailedJournaledUpdate() throws Exception {
+        final BotApi botApi = mockStreamingBotApi("{\"update_id\":1}", "{\"update_id\":2}", "{\"update_id\":3}");
+        final List<Long> handled = Collections.synchronizedList(new ArrayList<>());
+        try (UpdateJournal journal = new UpdateJournal(folder.getRoot().toPath())) {
+            final BotEngine engine = new BotEngine(botApi)
+                    .setGetUpdatesTimeoutInSec(1)
+                    .setUpdateJournal(journal)
+                    .setJournalMaxAttempts(2);
+            engine.setBotUpdateProcessor(update -> {
+                handled.add(update.getId());
+                if (update.getId() == 3) {
+                    engine.stop();
+                }
+                return update.getId() != 2;
+            });
+            engine.start();
+
+            // Update 2 is retried, then parked instead of stopping the engine.
+            assertEquals(Arrays.asList(1L, 2L, 2L, 3L), handled);
+            assertEquals(Long.valueOf(4), engine.getOffset());
+            assertEquals(0, journal.getPendingCount());
+            final JournalEntry parked = journal.getDeadLetters().next(0, TimeUnit.MILLISECONDS);
+            assertEquals(2L, JsonUtil.getReader(Update.class).<Update>readValue(parked.getBytes()).getId());
+        }
+    }
+
+    @Test
+    public void testJournalRawUpdates() throws Exception {
+        final String first = "{ \"update_id\" : 1, \"unknown\" : [ 1 ] }";
+        final BotApi botApi = mockStreamingBotApi(first, "{\"update_id\":2}");
+        try (UpdateJournal journal = new UpdateJournal(folder.getRoot().toPath())) {
+            final BotEngine engine = new BotEngine(botApi).setGetUpdatesTimeoutInSec(1).setUpdateJournal(journal);
+            final CountDownLatch blocked = new CountDownLatch(1);
+            engine.setBotUpdateProcessor(update -> {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            });
+            final Thread thread = new Thread(engine);
+            thread.start();
+            // Update 1 is held by the consumer, so update 2 is left in the journal as it was received.
+            final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            while (journal.getPendingCount() < 2 && System.currentTimeMillis() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            journal.rewind();
+            assertEquals(first, new String(journal.next(0, TimeUnit.MILLISECONDS).getBytes(), StandardCharsets.UTF_8));
+            engine.stop();
+            blocked.countDown();
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testJournaledUpdatesDispatchedConcurrently() throws Exception {
+        final BotApi botApi = mockStreamingBotApi("{\"update_id\":1}", "{\"update_id\":2}", "{\"update_id\":3}");
+        final Map<Long, CompletableFuture<Boolean>> results = new ConcurrentHashMap<>();
+        try (UpdateJournal journal = new UpdateJournal(folder.getRoot().toPath())) {
+            final BotEngine engine = new BotEngine(botApi).setGetUpdatesTimeoutInSec(1).setUpdateJournal(journal).setMaxInFlightUpdates(2);
+            engine.setAsyncBotUpdateProcessor(update -> results.computeIfAbsent(update.getId(), id -> new CompletableFuture<>()));
+            final Thread thread = new Thread(engine);
+            thread.start();
+            final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            while (results.size() < 2 && System.currentTimeMillis() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            // Two updates are in flight at the same time, the third one waits for a permit.
+            TimeUnit.MILLISECONDS.sleep(100);
+            assertEquals(2, results.size());
+            results.get(2L).complete(true);
+            while (results.size() < 3 && System.currentTimeMillis() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            results.get(3L).complete(true);
+            // Update 1 is still in flight, so nothing can be committed.
+            assertEquals(3, journal.getPendingCount());
+            results.get(1L).complete(true);
+            assertEquals(0, journal.getPendingCount());
+            engine.stop();
+            thread.join();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testStopOnJournalFailure() throws Exception {
+        final BotApi botApi = mockStreamingBotApi("{\"update_id\":1}");
+        final UpdateJournal journal = new UpdateJournal(folder.getRoot().toPath());
+        final BotEngine engine = new BotEngine(botApi).setGetUpdatesTimeoutInSec(1).setUpdateJournal(journal);
+        final List<Long> handled = Collections.synchronizedList(new ArrayList<>());
+        engine.setBotUpdateProcessor(update -> {
+            handled.add(update.getId());
+            try {
+                // The update can not be committed any more.
+                journal.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        });
+        // The engine would keep polling if the consumer died quietly.
+        engine.start();
+
+        assertEquals(Collections.singletonList(1L), handled);
+    }
+
+    private static BotApi mockBotApi(final List<Update> firstBatch) {
+        final BotApi botApi = mock(BotApi.class);
+        when(botApi.getWebhookInfo()).thenReturn(CompletableFuture.completedFuture(mock(WebhookInfo.class)));
+        final AtomicInteger calls = new AtomicInteger();
+        when(botApi.getUpdates(any(GetUpdatesPayload.class))).thenAnswer(invocation ->
+                calls.getAndIncrement() == 0 ? CompletableFuture.completedFuture(firstBatch) : new CompletableFuture<>());
+        return botApi;
+    }
+
+    private static BotApi mockStreamingBotApi(final String... firstBatch) {
+        final BotApi botApi = mock(BotApi.class);
+        when(botApi.getWebhookInfo()).thenReturn(CompletableFuture.completedFuture(mock(WebhookInfo.class)));
+        final AtomicInteger calls = new AtomicInteger();
+        when(botApi.getUpdatesAsStream(any(GetUpdatesPayload.class))).thenAnswer(invocation -> calls.getAndIncrement() == 0
+                ? CompletableFuture.completedFuture(ResponseBody.create(MediaType.get("application/json"),
+                        "{\"ok\":true,\"result\":[" + String.join(",", firstBatch) + "]}"))
+                : new CompletableFuture<>());
+        return botApi;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class OffsetTrackerTest {
+
+    @Test
+    public void testCommitContiguousPrefix() {
+        final OffsetTracker tracker = new OffsetTracker(null);
+        assertNull(tracker.getCommitted());
+        tracker.track(10);
+        tracker.track(11);
+        tracker.track(13);
+        assertEquals(3, tracker.getInFlightCount());
+
+        assertNull(tracker.complete(11));
+        assertNull(tracker.complete(13));
+        assertEquals(Long.valueOf(14), tracker.complete(10));
+        assertEquals(0, tracker.getInFlightCount());
+
+        tracker.track(14);
+        tracker.track(15);
+        assertEquals(Long.valueOf(15), tracker.complete(14));
+        assertEquals(Long.valueOf(15), tracker.getCommitted());
+    }
+
+    @Test
+    public void testFail() {
+        final OffsetTracker tracker = new OffsetTracker(5L);
+        assertFalse(tracker.isFailed());
+        tracker.track(5);
+        tracker.track(6);
+        tracker.fail();
+        assertTrue(tracker.isFailed());
+        assertEquals(Long.valueOf(5), tracker.complete(6));
+    }
+
+}
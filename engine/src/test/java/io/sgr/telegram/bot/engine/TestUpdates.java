@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.sgr.telegram.bot.api.models.Chat;
+import io.sgr.telegram.bot.api.models.Message;
+import io.sgr.telegram.bot.api.models.Update;
+
+/**
+ * Updates shared by tests of the engine.
+ *
+ * @author SgrAlpha
+ */
+public final class TestUpdates {
+
+    private TestUpdates() {
+    }
+
+    /**
+     * @param id The ID of the update.
+     *
+     * @return An update with nothing but the ID.
+     */
+    public static Update newUpdate(final long id) {
+        return new Update(id, null, null, null, null, null, null, null, null, null);
+    }
+
+    /**
+     * @param id     The ID of the update.
+     * @param chatId The ID of the chat the message of the update belongs to.
+     *
+     * @return An update of a message in the chat.
+     */
+    public static Update newUpdate(final long id, final long chatId) {
+        final Chat chat = mock(Chat.class);
+        when(chat.getId()).thenReturn(chatId);
+        final Message message = mock(Message.class);
+        when(message.getChat()).thenReturn(chat);
+        return new Update(id, message, null, null, null, null, null, null, null, null);
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine;
+
+import static io.sgr.telegram.bot.engine.TestUpdates.newUpdate;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.sgr.telegram.bot.engine.processors.DeduplicatingBotUpdateProcessor;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author SgrAlpha
+ */
+public class UpdateDeduplicatorTest {
+
+    @Test
+    public void testMarkSeen() {
+        final UpdateDeduplicator deduplicator = new UpdateDeduplicator(64);
+        assertEquals(Long.MIN_VALUE, deduplicator.getHighWaterMark());
+        assertTrue(deduplicator.markSeen(100));
+        assertFalse(deduplicator.markSeen(100));
+        // Out of order but still in the window.
+        assertTrue(deduplicator.markSeen(90));
+        assertTrue(deduplicator.markSeen(99));
+        assertFalse(deduplicator.markSeen(90));
+        assertEquals(100, deduplicator.getHighWaterMark());
+        // Slide the window, bits of IDs dropped out of the window get reused.
+        assertTrue(deduplicator.markSeen(154));
+        assertTrue(deduplicator.markSeen(100 + 64 - 10 - 1));
+        assertFalse(deduplicator.markSeen(99));
+        assertFalse(deduplicator.markSeen(100));
+        // Too old to be tracked.
+        assertFalse(deduplicator.markSeen(90));
+        // Jump far ahead.
+        assertTrue(deduplicator.markSeen(10_000));
+        assertTrue(deduplicator.markSeen(9_999));
+        assertFalse(deduplicator.markSeen(154));
+    }
+
+    @Test
+    public void testForget() {
+        final UpdateDeduplicator deduplicator = new UpdateDeduplicator(128);
+        assertTrue(deduplicator.markSeen(1));
+        deduplicator.forget(1);
+        assertTrue(deduplicator.markSeen(1));
+        assertFalse(deduplicator.markSeen(1));
+    }
+
+    @Test
+    public void testRestoreFromHighWaterMark() {
+        final UpdateDeduplicator deduplicator = new UpdateDeduplicator(100, 500);
+        assertFalse(deduplicator.markSeen(500));
+        assertFalse(deduplicator.markSeen(450));
+        assertTrue(deduplicator.markSeen(501));
+        assertTrue(deduplicator.markSeen(600));
+        assertTrue(deduplicator.markSeen(550));
+    }
+
+    @Test
+    public void testDeduplicatingProcessor() {
+        final List<Long> handled = new ArrayList<>();
+        final List<Long> highWaterMarks = new ArrayList<>();
+        final DeduplicatingBotUpdateProcessor processor = new DeduplicatingBotUpdateProcessor(update -> {
+            handled.add(update.getId());
+            return update.getId() != 2 || handled.size() > 2;
+        }, new UpdateDeduplicator()).setHighWaterMarkListener(highWaterMarks::add, 2);
+        for (long id : new long[] {1, 2, 1, 2, 3}) {
+            processor.handleUpdate(newUpdate(id));
+        }
+        // Update 2 failed at first, so it is handled again when delivered again.
+        assertEquals(Arrays.asList(1L, 2L, 2L, 3L), handled);
+        assertEquals(Arrays.asList(2L), highWaterMarks);
+    }
+
+    @Test
+    public void testHighWaterMarkStopsAtUnhandledUpdate() {
+        final List<Long> highWaterMarks = new ArrayList<>();
+        final List<Long> handled = new ArrayList<>();
+        final DeduplicatingBotUpdateProcessor processor = new DeduplicatingBotUpdateProcessor(update -> {
+            handled.add(update.getId());
+            return update.getId() != 2 || handled.size() > 3;
+        }, new UpdateDeduplicator()).setHighWaterMarkListener(highWaterMarks::add, 1);
+        for (long id : new long[] {1, 2, 3, 4, 2}) {
+            processor.handleUpdate(newUpdate(id));
+        }
+        // Update 2 failed at first, so the high-water mark stays below it until it is handled.
+        assertEquals(Arrays.asList(1L, 1L, 1L, 4L), highWaterMarks);
+    }
+
+    @Test
+    public void testHighWaterMarkMovesPastFailedUpdateOutOfWindow() {
+        final List<Long> highWaterMarks = new ArrayList<>();
+        final DeduplicatingBotUpdateProcessor processor = new DeduplicatingBotUpdateProcessor(update -> update.getId() != 2,
+                new UpdateDeduplicator(64)).setHighWaterMarkListener(highWaterMarks::add, 1);
+        for (long id = 1; id <= 70; id++) {
+            processor.handleUpdate(newUpdate(id));
+        }
+        // Held back at 1 until update 66 pushes update 2 out of the window of 64 updates.
+        assertEquals(Long.valueOf(1), highWaterMarks.get(highWaterMarks.size() - 6));
+        assertEquals(Long.valueOf(66), highWaterMarks.get(highWaterMarks.size() - 5));
+        assertEquals(Long.valueOf(70), highWaterMarks.get(highWaterMarks.size() - 1));
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine.broadcast;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.sgr.telegram.bot.api.BotApi;
+import io.sgr.telegram.bot.api.exceptions.ApiCallException;
+import io.sgr.telegram.bot.api.models.Message;
+import io.sgr.telegram.bot.api.models.http.ApiErrorResponse;
+import io.sgr.telegram.bot.api.models.http.ResponseParameters;
+import io.sgr.telegram.bot.api.models.http.SendMessagePayload;
+import io.sgr.telegram.bot.api.utils.JsonUtil;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author SgrAlpha
+ */
+public class BroadcastServiceTest {
+
+    private static final List<String> CHAT_IDS = Arrays.asList("1", "2", "3", "4", "5");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testTemplate() throws IOException {
+        final SendMessagePayload payload = new SendMessagePayload("placeholder", "Hello \"world\"", null, null, true, null, null);
+        final RequestBody body = BroadcastTemplate.of(payload).newRequestBody("@channel\"");
+        final Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        assertEquals(body.contentLength(), buffer.size());
+        final JsonNode node = JsonUtil.getObjectMapper().readTree(buffer.readByteArray());
+        assertEquals("@channel\"", node.get("chat_id").asText());
+        assertEquals("Hello \"world\"", node.get("text").asText());
+        assertTrue(node.get("disable_notification").asBoolean());
+        assertEquals(3, node.size());
+    }
+
+    @Test
+    public void testBroadcast() throws InterruptedException {
+        final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        final BotApi botApi = mockBotApi(sent);
+        final BroadcastCheckpointStore store = new InMemoryBroadcastCheckpointStore();
+        final BroadcastService service = new BroadcastService(botApi).setMaxConcurrency(2).setCheckpointStore(store);
+
+        final BroadcastReport report = service.broadcast("test", new SendMessagePayload(0, "Hello"), CHAT_IDS);
+        assertEquals(CHAT_IDS, sent);
+        assertEquals(0, report.getStartPosition());
+        assertEquals(5, report.getEndPosition());
+        assertEquals(5, store.load("test"));
+        assertEquals(2, report.getCount(BroadcastOutcome.SENT));
+        assertEquals(Collections.singletonList("2"), report.getChatIds(BroadcastOutcome.BLOCKED));
+        assertEquals(Collections.singletonList("3"), report.getChatIds(BroadcastOutcome.MIGRATED));
+        assertEquals(Long.valueOf(-1003), report.getMigrations().get("3"));
+        assertEquals(Collections.singletonList("4"), report.getChatIds(BroadcastOutcome.RATE_LIMITED));
+        assertTrue(report.getChatIds(BroadcastOutcome.FAILED).isEmpty());
+
+        // Nothing left to send when run again.
+        final BroadcastReport rerun = service.broadcast("test", new SendMessagePayload(0, "Hello"), CHAT_IDS);
+        assertEquals(5, sent.size());
+        assertEquals(5, rerun.getStartPosition());
+        assertEquals(0, rerun.getCount(BroadcastOutcome.SENT));
+    }
+
+    @Test
+    public void testResumeFromCheckpoint() throws InterruptedException {
+        final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        final BroadcastCheckpointStore store = new FileBroadcastCheckpointStore(folder.getRoot().toPath());
+        store.save("test", 3);
+        assertEquals(3, new FileBroadcastCheckpointStore(folder.getRoot().toPath()).load("test"));
+
+        final BroadcastReport report = new BroadcastService(mockBotApi(sent)).setCheckpointStore(store)
+                .broadcast("test", new SendMessagePayload(0, "Hello"), CHAT_IDS);
+        assertEquals(Arrays.asList("4", "5"), sent);
+        assertEquals(3, report.getStartPosition());
+        assertEquals(5, report.getEndPosition());
+        assertEquals(5, store.load("test"));
+        assertEquals(0, store.load("another"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBroadcastIdForFileStore() {
+        new FileBroadcastCheckpointStore(folder.getRoot().toPath()).save("../test", 1);
+    }
+
+    private static BotApi mockBotApi(final List<String> sent) {
+        final BotApi botApi = mock(BotApi.class);
+        when(botApi.sendRawMessage(any(RequestBody.class))).thenAnswer(invocation -> {
+            final Buffer buffer = new Buffer();
+            invocation.<RequestBody>getArgument(0).writeTo(buffer);
+            final String chatId = JsonUtil.getObjectMapper().readTree(buffer.readString(UTF_8)).get("chat_id").asText();
+            sent.add(chatId);
+            final CompletableFuture<Message> future = new CompletableFuture<>();
+            switch (chatId) {
+                case "2":
+                    future.completeExceptionally(newApiCallException(403, null));
+                    break;
+                case "3":
+                    future.completeExceptionally(newApiCallException(400, new ResponseParameters(-1003L, null)));
+                    break;
+                case "4":
+                    future.completeExceptionally(newApiCallException(429, new ResponseParameters(null, 5)));
+                    break;
+                default:
+                    future.complete(mock(Message.class));
+                    break;
+            }
+            return future;
+        });
+        return botApi;
+    }
+
+    private static ApiCallException newApiCallException(final int errorCode, final ResponseParameters parameters) {
+        return new ApiCallException(new ApiErrorResponse(false, errorCode, "Something is wrong", parameters));
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine.dispatchers;
+
+import static io.sgr.telegram.bot.engine.TestUpdates.newUpdate;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class ChatPartitionedUpdateDispatcherTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLaneCount() {
+        new ChatPartitionedUpdateDispatcher(0, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLaneQueueCapacity() {
+        new ChatPartitionedUpdateDispatcher(1, 0);
+    }
+
+    @Test
+    public void testOrderedWithinChat() throws ExecutionException, InterruptedException {
+        final ChatPartitionedUpdateDispatcher dispatcher = new ChatPartitionedUpdateDispatcher(4, 2);
+        final Map<Long, List<Long>> handled = new ConcurrentHashMap<>();
+        final List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (long id = 1; id <= 200; id++) {
+            results.add(dispatcher.dispatch(newUpdate(id, id % 5), update -> {
+                final long chatId = update.getMessage().getChat().getId();
+                handled.computeIfAbsent(chatId, key -> new CopyOnWriteArrayList<>()).add(update.getId());
+                return true;
+            }));
+        }
+        for (final CompletableFuture<Boolean> result : results) {
+            assertTrue(result.get());
+        }
+        assertEquals(5, handled.size());
+        handled.forEach((chatId, ids) -> {
+            assertEquals(40, ids.size());
+            for (int i = 1; i < ids.size(); i++) {
+                assertTrue(ids.get(i - 1) < ids.get(i));
+            }
+        });
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void testParallelAcrossChats() throws ExecutionException, InterruptedException {
+        final ChatPartitionedUpdateDispatcher dispatcher = new ChatPartitionedUpdateDispatcher(2, 1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final CompletableFuture<Boolean> blocked = dispatcher.dispatch(newUpdate(1, 0), update -> {
+            try {
+                return latch.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        });
+        final CompletableFuture<Boolean> other = dispatcher.dispatch(newUpdate(2, 1), update -> {
+            latch.countDown();
+            return true;
+        });
+        assertTrue(other.get());
+        assertTrue(blocked.get());
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void testFailedHandling() throws InterruptedException {
+        final ChatPartitionedUpdateDispatcher dispatcher = new ChatPartitionedUpdateDispatcher(1, 1);
+        final CompletableFuture<Boolean> result = dispatcher.dispatch(newUpdate(1, 0), update -> {
+            throw new IllegalStateException();
+        });
+        try {
+            result.get();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertTrue(result.isCompletedExceptionally());
+        dispatcher.shutdown();
+        assertTrue(dispatcher.dispatch(newUpdate(2, 0), update -> true).isCompletedExceptionally());
+    }
+
+    @Test
+    public void testShutdownWhileWaitingForCapacity() throws InterruptedException {
+        final ChatPartitionedUpdateDispatcher dispatcher = new ChatPartitionedUpdateDispatcher(1, 1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        dispatcher.dispatch(newUpdate(1, 0), update -> {
+            started.countDown();
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        dispatcher.dispatch(newUpdate(2, 0), update -> true);
+        final CompletableFuture<CompletableFuture<Boolean>> waiting = CompletableFuture.supplyAsync(() -> dispatcher.dispatch(newUpdate(3, 0), update -> true));
+        Thread.sleep(200L);
+        dispatcher.shutdown();
+        release.countDown();
+        final CompletableFuture<Boolean> result = waiting.join();
+        try {
+            assertTrue(result.get(10, TimeUnit.SECONDS));
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        } catch (TimeoutException e) {
+            fail("Update accepted after shutdown was never handled");
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.telegram.bot.engine.dispatchers;
+
+import static io.sgr.telegram.bot.engine.TestUpdates.newUpdate;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class VirtualThreadUpdateDispatcherTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxConcurrency() {
+        new VirtualThreadUpdateDispatcher(0, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidFallbackPoolSize() {
+        new VirtualThreadUpdateDispatcher(1, 0);
+    }
+
+    @Test
+    public void testDetectVirtualThreads() {
+        boolean supported;
+        try {
+            Thread.class.getMethod("ofVirtual");
+            supported = true;
+        } catch (NoSuchMethodException e) {
+            supported = false;
+        }
+        assertEquals(supported, VirtualThreadUpdateDispatcher.newInstance().isVirtual());
+        assertFalse(new VirtualThreadUpdateDispatcher(1, 1, false).isVirtual());
+    }
+
+    @Test
+    public void testOrderedWithinChat() throws ExecutionException, InterruptedException {
+        final VirtualThreadUpdateDispatcher dispatcher = new VirtualThreadUpdateDispatcher(50, 8);
+        final Map<Long, List<Long>> handled = new ConcurrentHashMap<>();
+        final Map<Long, AtomicInteger> runningPerChat = new ConcurrentHashMap<>();
+        final List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (long id = 1; id <= 200; id++) {
+            results.add(dispatcher.dispatch(newUpdate(id, id % 5), update -> {
+                final long chatId = update.getMessage().getChat().getId();
+                final boolean alone = runningPerChat.computeIfAbsent(chatId, key -> new AtomicInteger()).incrementAndGet() == 1;
+                handled.computeIfAbsent(chatId, key -> new CopyOnWriteArrayList<>()).add(update.getId());
+                runningPerChat.get(chatId).decrementAndGet();
+                return alone;
+            }));
+        }
+        for (final CompletableFuture<Boolean> result : results) {
+            assertTrue(result.get());
+        }
+        assertEquals(5, handled.size());
+        handled.forEach((chatId, ids) -> {
+            assertEquals(40, ids.size());
+            for (int i = 1; i < ids.size(); i++) {
+                assertTrue(ids.get(i - 1) < ids.get(i));
+            }
+        });
+        assertEquals(50, dispatcher.getAvailableCapacity());
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void testParallelAcrossChats() throws ExecutionException, InterruptedException {
+        final VirtualThreadUpdateDispatcher dispatcher = new VirtualThreadUpdateDispatcher(10, 2);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final CompletableFuture<Boolean> blocked = dispatcher.dispatch(newUpdate(1, 0), update -> {
+            try {
+                return latch.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        });
+        final CompletableFuture<Boolean> other = dispatcher.dispatch(newUpdate(2, 1), update -> {
+            latch.countDown();
+            return true;
+        });
+        assertTrue(other.get());
+        assertTrue(blocked.get());
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void testBlockWhenMaxConcurrencyReached() throws Exception {
+        final VirtualThreadUpdateDispatcher dispatcher = new VirtualThreadUpdateDispatcher(1, 2);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CompletableFuture<Boolean> first = dispatcher.dispatch(newUpdate(1, 0), update -> {
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        });
+        assertEquals(0, dispatcher.getAvailableCapacity());
+        final CompletableFuture<CompletableFuture<Boolean>> second = CompletableFuture.supplyAsync(() -> dispatcher.dispatch(newUpdate(2, 1), update -> true));
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertFalse(second.isDone());
+        release.countDown();
+        assertTrue(first.get());
+        assertTrue(second.get(10, TimeUnit.SECONDS).get());
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void testBusyChatHoldsOnePermit() throws Exception {
+        final VirtualThreadUpdateDispatcher dispatcher = new VirtualThreadUpdateDispatcher(2, 2);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<CompletableFuture<Boolean>> busy = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            busy.add(dispatcher.dispatch(newUpdate(id, 0), update -> {
+                try {
+                    return release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }));
+        }
+        // Updates waiting for their chat take over the permit of the previous one.
+        assertEquals(1, dispatcher.getAvailableCapacity());
+        final CompletableFuture<CompletableFuture<Boolean>> other = CompletableFuture.supplyAsync(() -> dispatcher.dispatch(newUpdate(6, 1), update -> true));
+        assertTrue(other.get(10, TimeUnit.SECONDS).get(10, TimeUnit.SECONDS));
+        release.countDown();
+        for (final CompletableFuture<Boolean> result : busy) {
+            assertTrue(result.get(10, TimeUnit.SECONDS));
+        }
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void testFailedHandling() throws InterruptedException, ExecutionException {
+        final VirtualThreadUpdateDispatcher dispatcher = new VirtualThreadUpdateDispatcher(1, 1);
+        final CompletableFuture<Boolean> result = dispatcher.dispatch(newUpdate(1, 0), update -> {
+            throw new IllegalStateException();
+        });
+        try {
+            result.get();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertTrue(result.isCompletedExceptionally());
+        // Following updates of the same chat are still handled.
+        assertTrue(dispatcher.dispatch(newUpdate(2, 0), update -> true).get());
+        dispatcher.shutdown();
+        assertTrue(dispatcher.dispatch(newUpdate(3, 0), update -> true).isCompletedExceptionally());
+    }
+
+    @Test
+    public void testHandleDispatchedUpdatesAfterShutdown() throws Exception {
+        final VirtualThreadUpdateDispatcher dispatcher = new VirtualThreadUpdateDispatcher(10, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CompletableFuture<Boolean> first = dispatcher.dispatch(newUpdate(1, 0), update -> {
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        });
+        final CompletableFuture<Boolean> second = dispatcher.dispatch(newUpdate(2, 0), update -> true);
+        dispatcher.shutdown();
+        release.countDown();
+        assertTrue(first.get(10, TimeUnit.SECONDS));
+        assertTrue(second.get(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine.edit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.sgr.telegram.bot.api.BotApi;
+import io.sgr.telegram.bot.api.models.Message;
+import io.sgr.telegram.bot.api.models.http.EditMessageTextPayload;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author SgrAlpha
+ */
+public class EditMessageCoalescerTest {
+
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<CompletableFuture<Message>> calls = new LinkedBlockingQueue<>();
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService executor;
+    private EditMessageCoalescer coalescer;
+
+    private final CountDownLatch unblocked = new CountDownLatch(1);
+
+    @Before
+    public void setUp() {
+        final BotApi botApi = mock(BotApi.class);
+        when(botApi.editMessageText(any(EditMessageTextPayload.class))).thenAnswer(invocation -> {
+            final EditMessageTextPayload payload = invocation.getArgument(0);
+            if (payload.getText().equals("blocked")) {
+                // Like submitting to a full outbound queue.
+                unblocked.await();
+            }
+            sent.add(payload.getText());
+            final CompletableFuture<Message> call = new CompletableFuture<>();
+            calls.add(call);
+            return call;
+        });
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        executor = Executors.newCachedThreadPool();
+        coalescer = new EditMessageCoalescer(botApi, executor, scheduler).setMinInterval(0, TimeUnit.MILLISECONDS);
+    }
+
+    @After
+    public void tearDown() {
+        unblocked.countDown();
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testBlockedSendDoesNotHoldScheduler() throws Exception {
+        coalescer.editMessageText(newPayload(1, "blocked"));
+        final CompletableFuture<Message> other = coalescer.editMessageText(newPayload(2, "50%"));
+        // Sent while the first edit is still blocked.
+        calls.poll(10, TimeUnit.SECONDS).complete(mock(Message.class));
+        other.get(10, TimeUnit.SECONDS);
+        assertEquals(Collections.singletonList("50%"), sent);
+        unblocked.countDown();
+        calls.poll(10, TimeUnit.SECONDS).complete(mock(Message.class));
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void testFailEditsWhenExecutorShutDown() throws Exception {
+        executor.shutdown();
+        coalescer.editMessageText(newPayload(1, "10%")).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testCoalesceEdits() throws Exception {
+        final CompletableFuture<Message> first = coalescer.editMessageText(newPayload(1, "10%"));
+        final CompletableFuture<Message> firstCall = calls.poll(10, TimeUnit.SECONDS);
+        final CompletableFuture<Message> second = coalescer.editMessageText(newPayload(1, "20%"));
+        final CompletableFuture<Message> third = coalescer.editMessageText(newPayload(1, "30%"));
+        final CompletableFuture<Message> other = coalescer.editMessageText(newPayload(2, "50%"));
+
+        final Message firstResult = mock(Message.class);
+        firstCall.complete(firstResult);
+        assertSame(firstResult, first.get(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 2; i++) {
+            calls.poll(10, TimeUnit.SECONDS).complete(mock(Message.class));
+        }
+        assertSame(second.get(10, TimeUnit.SECONDS), third.get(10, TimeUnit.SECONDS));
+        other.get(10, TimeUnit.SECONDS);
+        assertEquals(3, sent.size());
+        assertTrue(sent.containsAll(Arrays.asList("10%", "30%", "50%")));
+    }
+
+    @Test
+    public void testSkipUnmodifiedEdit() throws Exception {
+        final CompletableFuture<Message> first = coalescer.editMessageText(newPayload(1, "100%"));
+        final CompletableFuture<Message> firstCall = calls.poll(10, TimeUnit.SECONDS);
+        final CompletableFuture<Message> second = coalescer.editMessageText(newPayload(1, "100%"));
+        final Message result = mock(Message.class);
+        firstCall.complete(result);
+        assertSame(result, first.get(10, TimeUnit.SECONDS));
+        assertSame(result, second.get(10, TimeUnit.SECONDS));
+        assertEquals(1, sent.size());
+    }
+
+    @Test
+    public void testMinInterval() throws Exception {
+        coalescer.setMinInterval(300, TimeUnit.MILLISECONDS);
+        coalescer.editMessageText(newPayload(1, "10%"));
+        calls.poll(10, TimeUnit.SECONDS).complete(mock(Message.class));
+        final long start = System.nanoTime();
+        final CompletableFuture<Message> second = coalescer.editMessageText(newPayload(1, "20%"));
+        calls.poll(10, TimeUnit.SECONDS).complete(mock(Message.class));
+        second.get(10, TimeUnit.SECONDS);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    private static EditMessageTextPayload newPayload(final long messageId, final String text) {
+        return new EditMessageTextPayload(123L, messageId, text, null, null, null);
+    }
+
+}
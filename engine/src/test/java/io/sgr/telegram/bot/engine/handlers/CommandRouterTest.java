@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.telegram.bot.engine.handlers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.sgr.telegram.bot.api.models.Message;
+import io.sgr.telegram.bot.api.models.MessageEntity;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author SgrAlpha
+ */
+public class CommandRouterTest {
+
+    @Test
+    public void testRoute() {
+        final RecordingHandler hello = new RecordingHandler("hello");
+        final RecordingHandler help = new RecordingHandler("help");
+        final CommandRouter router = new CommandRouter("@enl_jarvis_bot").register(hello).register(help);
+        final Message message = mock(Message.class);
+        when(message.getText()).thenReturn("/hello Jarvis");
+        when(message.getEntities()).thenReturn(null);
+
+        assertTrue(router.route(message));
+        assertEquals("Jarvis", hello.arguments.get(0));
+        assertSame(message, hello.messages.get(0));
+
+        assertTrue(router.route("/help", null));
+        assertNull(help.arguments.get(0));
+        assertTrue(router.route("/HELP@Enl_Jarvis_Bot ", null));
+        assertEquals("", help.arguments.get(1));
+        assertTrue(router.route("/help@enl_jarvis_bot a b", null));
+        assertEquals("a b", help.arguments.get(2));
+        assertEquals(1, hello.arguments.size());
+    }
+
+    @Test
+    public void testIgnoreUnknownOrMalformedCommands() {
+        final RecordingHandler hello = new RecordingHandler("hello");
+        final CommandRouter router = new CommandRouter("enl_jarvis_bot").register(hello);
+        assertFalse(router.route((Message) null));
+        assertFalse(router.route(mock(Message.class)));
+        assertFalse(router.route("hello", null));
+        assertFalse(router.route("/", null));
+        assertFalse(router.route("/hell", null));
+        assertFalse(router.route("/hello_world", null));
+        assertFalse(router.route("/hello/world", null));
+        assertFalse(router.route("/hello@", null));
+        assertFalse(router.route("/hello@other_bot", null));
+        assertFalse(router.route("/hello@enl_jarvis_bot2", null));
+        assertTrue(hello.arguments.isEmpty());
+    }
+
+    @Test
+    public void testRouteByEntities() {
+        final RecordingHandler hello = new RecordingHandler("hello");
+        final RecordingHandler help = new RecordingHandler("help");
+        final CommandRouter router = new CommandRouter("enl_jarvis_bot").register(hello).register(help);
+        final Message message = mock(Message.class);
+        final String text = "Hi \uD83D\uDC4B /hello Jarvis /help@other_bot /help@enl_jarvis_bot me";
+        when(message.getText()).thenReturn(text);
+        when(message.getEntities()).thenReturn(Arrays.asList(
+                commandEntity(text, "/hello"),
+                new MessageEntity("bold", 0, 2, null, null, null),
+                commandEntity(text, "/help@other_bot"),
+                commandEntity(text, "/help@enl_jarvis_bot")));
+
+        assertTrue(router.route(message));
+        assertEquals(Collections.singletonList("Jarvis"), hello.arguments);
+        assertEquals(Collections.singletonList("me"), help.arguments);
+    }
+
+    @Test
+    public void testRouteByCaptionEntities() {
+        final RecordingHandler hello = new RecordingHandler("hello");
+        final CommandRouter router = new CommandRouter("enl_jarvis_bot").register(hello);
+        final Message message = mock(Message.class);
+        when(message.getCaption()).thenReturn("/hello");
+        when(message.getCaptionEntities()).thenReturn(Collections.singletonList(new MessageEntity("bot_command", 0, 6, null, null, null)));
+
+        assertTrue(router.route(message));
+        assertEquals(Collections.singletonList(null), hello.arguments);
+        // Without entities, commands in captions are not recognized.
+        when(message.getCaptionEntities()).thenReturn(null);
+        assertFalse(router.route(message));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRegisterDuplicatedCommand() {
+        new CommandRouter("enl_jarvis_bot").register(new RecordingHandler("hello")).register(new RecordingHandler("Hello"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRegisterInvalidCommand() {
+        new CommandRouter("enl_jarvis_bot").register(new RecordingHandler("hello world"));
+    }
+
+    private static MessageEntity commandEntity(final String text, final String command) {
+        return new MessageEntity("bot_command", text.indexOf(command), command.length(), null, null, null);
+    }
+
+    private static class RecordingHandler implements BotCommandHandler {
+
+        private final String name;
+        private final List<String> arguments = new ArrayList<>();
+        private final List<Message> messages = new ArrayList<>();
+
+        private RecordingHandler(final String name) {
+            this.name = name;
+        }
+
+        @Override public String getCommandName() {
+            return name;
+        }
+
+        @Override public void handle(final String argument, final Message oriMsg) {
+            arguments.add(argument);
+            messages.add(oriMsg);
+        }
+
+    }
+
+}
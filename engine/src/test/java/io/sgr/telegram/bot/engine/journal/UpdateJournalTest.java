@@ -0,0 +1,205 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.telegram.bot.engine.journal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * @author SgrAlpha
+ */
+public class UpdateJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAppendAndRead() throws Exception {
+        try (UpdateJournal journal = new UpdateJournal(folder.getRoot().toPath())) {
+            assertNull(journal.next(10, TimeUnit.MILLISECONDS));
+            assertEquals(0, journal.append(bytes("a")));
+            assertEquals(1, journal.append(bytes("bb")));
+            final JournalEntry first = journal.next(0, TimeUnit.MILLISECONDS);
+            assertEquals(0, first.getSequence());
+            assertArrayEquals(bytes("a"), first.getBytes());
+            final JournalEntry second = journal.next(0, TimeUnit.MILLISECONDS);
+            assertEquals(1, second.getSequence());
+            assertArrayEquals(bytes("bb"), second.getBytes());
+            assertNull(journal.next(0, TimeUnit.MILLISECONDS));
+            assertEquals(2, journal.getPendingCount());
+            journal.commit(second);
+            assertEquals(0, journal.getPendingCount());
+        }
+    }
+
+    @Test
+    public void testResumeFromCursor() throws Exception {
+        final Path directory = folder.getRoot().toPath();
+        try (UpdateJournal journal = new UpdateJournal(directory)) {
+            journal.append(bytes("a"));
+            journal.append(bytes("b"));
+            journal.append(bytes("c"));
+            journal.commit(journal.next(0, TimeUnit.MILLISECONDS));
+            // Read but not committed, should be read again after reopen.
+            journal.next(0, TimeUnit.MILLISECONDS);
+        }
+        try (UpdateJournal journal = new UpdateJournal(directory)) {
+            assertEquals(2, journal.getPendingCount());
+            assertArrayEquals(bytes("b"), journal.next(0, TimeUnit.MILLISECONDS).getBytes());
+            journal.rewind();
+            assertArrayEquals(bytes("b"), journal.next(0, TimeUnit.MILLISECONDS).getBytes());
+            assertArrayEquals(bytes("c"), journal.next(0, TimeUnit.MILLISECONDS).getBytes());
+            assertEquals(3, journal.append(bytes("d")));
+        }
+    }
+
+    @Test
+    public void testRollOverAndCompact() throws Exception {
+        final Path directory = folder.getRoot().toPath();
+        // Room for 2 records of 8 bytes each per segment.
+        try (UpdateJournal journal = new UpdateJournal(directory, 2 * (JournalSegment.HEADER_SIZE + 8))) {
+            for (int i = 0; i < 5; i++) {
+                journal.append(bytes("record-" + i));
+            }
+            assertEquals(3, journal.getSegmentCount());
+            assertEquals(3, countSegmentFiles(directory));
+            for (int i = 0; i < 3; i++) {
+                final JournalEntry entry = journal.next(0, TimeUnit.MILLISECONDS);
+                assertArrayEquals(bytes("record-" + i), entry.getBytes());
+                journal.commit(entry);
+            }
+            assertEquals(2, journal.getSegmentCount());
+            assertEquals(2, countSegmentFiles(directory));
+        }
+        try (UpdateJournal journal = new UpdateJournal(directory, 2 * (JournalSegment.HEADER_SIZE + 8))) {
+            final JournalEntry entry = journal.next(0, TimeUnit.MILLISECONDS);
+            assertEquals(3, entry.getSequence());
+            assertArrayEquals(bytes("record-3"), entry.getBytes());
+        }
+    }
+
+    @Test
+    public void testDiscardTornRecord() throws Exception {
+        final Path directory = folder.getRoot().toPath();
+        try (UpdateJournal journal = new UpdateJournal(directory, 1024)) {
+            journal.append(bytes("a"));
+            journal.append(bytes("b"));
+        }
+        final Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(JournalSegment::isSegmentFile).findFirst().orElseThrow(IllegalStateException::new);
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // Corrupt the payload of the second record.
+            channel.write(ByteBuffer.wrap(bytes("x")), JournalSegment.HEADER_SIZE + 1 + JournalSegment.HEADER_SIZE);
+        }
+        try (UpdateJournal journal = new UpdateJournal(directory, 1024)) {
+            assertEquals(1, journal.getPendingCount());
+            assertEquals(1, journal.append(bytes("c")));
+            assertArrayEquals(bytes("a"), journal.next(0, TimeUnit.MILLISECONDS).getBytes());
+            assertArrayEquals(bytes("c"), journal.next(0, TimeUnit.MILLISECONDS).getBytes());
+        }
+    }
+
+    @Test
+    public void testDeadLetters() throws Exception {
+        try (UpdateJournal journal = new UpdateJournal(folder.getRoot().toPath())) {
+            journal.append(bytes("bad"));
+            final JournalEntry entry = journal.next(0, TimeUnit.MILLISECONDS);
+            journal.deadLetter(entry);
+            journal.commit(entry);
+            assertEquals(0, journal.getPendingCount());
+            assertEquals(1, journal.getDeadLetters().getPendingCount());
+
+            assertEquals(1, journal.replayDeadLetters());
+            assertEquals(0, journal.getDeadLetters().getPendingCount());
+            final JournalEntry replayed = journal.next(0, TimeUnit.MILLISECONDS);
+            assertEquals(1, replayed.getSequence());
+            assertArrayEquals(bytes("bad"), replayed.getBytes());
+        }
+    }
+
+    @Test
+    public void testWaitForAppend() throws Exception {
+        try (UpdateJournal journal = new UpdateJournal(folder.getRoot().toPath())) {
+            final Thread appender = new Thread(() -> {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                journal.append(bytes("late"));
+            });
+            appender.start();
+            final JournalEntry entry = journal.next(10, TimeUnit.SECONDS);
+            assertArrayEquals(bytes("late"), entry.getBytes());
+            appender.join();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRecordTooLarge() throws IOException {
+        try (UpdateJournal journal = new UpdateJournal(folder.getRoot().toPath(), 16)) {
+            journal.append(new byte[16]);
+        }
+    }
+
+    @Test
+    public void testCloseWakesUpReader() throws Exception {
+        final UpdateJournal journal = new UpdateJournal(folder.getRoot().toPath());
+        final Thread closer = new Thread(() -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(50);
+                journal.close();
+            } catch (InterruptedException | IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        closer.start();
+        final long start = System.nanoTime();
+        assertNull(journal.next(10, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        closer.join();
+    }
+
+    private static long countSegmentFiles(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(JournalSegment::isSegmentFile).count();
+        }
+    }
+
+    private static byte[] bytes(final String text) {
+        return text.getBytes(UTF_8);
+    }
+
+}
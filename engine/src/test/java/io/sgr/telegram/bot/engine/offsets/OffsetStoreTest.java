@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.engine.offsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+/**
+ * @author SgrAlpha
+ */
+public class OffsetStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testMappedFileOffsetStore() throws IOException {
+        final Path file = folder.getRoot().toPath().resolve("offset");
+        try (MappedFileOffsetStore store = new MappedFileOffsetStore(file)) {
+            assertNull(store.load());
+            store.save(100);
+            assertEquals(Long.valueOf(100), store.load());
+            store.save(101);
+            store.save(102);
+            assertEquals(Long.valueOf(102), store.load());
+        }
+        try (MappedFileOffsetStore store = new MappedFileOffsetStore(file).setSyncOnSave(false)) {
+            assertEquals(Long.valueOf(102), store.load());
+            store.save(103);
+        }
+        // Corrupt the slot written last, the previous offset should be picked up.
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(8);
+            raf.writeLong(999);
+        }
+        try (MappedFileOffsetStore store = new MappedFileOffsetStore(file)) {
+            assertEquals(Long.valueOf(102), store.load());
+            store.save(104);
+            assertEquals(Long.valueOf(104), store.load());
+        }
+    }
+
+    @Test
+    public void testJdbcOffsetStore() throws SQLException {
+        final DataSource dataSource = mock(DataSource.class);
+        final Connection conn = mock(Connection.class);
+        final PreparedStatement select = mock(PreparedStatement.class);
+        final PreparedStatement update = mock(PreparedStatement.class);
+        final PreparedStatement insert = mock(PreparedStatement.class);
+        final ResultSet rs = mock(ResultSet.class);
+        when(dataSource.getConnection()).thenReturn(conn);
+        when(conn.prepareStatement(anyString())).thenAnswer(invocation -> {
+            final String sql = invocation.getArgument(0);
+            return sql.startsWith("SELECT") ? select : sql.startsWith("UPDATE") ? update : insert;
+        });
+        when(select.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(false, true);
+        when(rs.getLong(1)).thenReturn(42L);
+        when(update.executeUpdate()).thenReturn(0, 1);
+
+        final JdbcOffsetStore store = new JdbcOffsetStore(dataSource, "bot");
+        assertNull(store.load());
+        store.save(42);
+        verify(insert).setString(1, "bot");
+        verify(insert).setLong(2, 42);
+        verify(insert).executeUpdate();
+        assertEquals(Long.valueOf(42), store.load());
+        store.save(43);
+        verify(update).setLong(1, 43);
+        verify(insert, never()).setLong(2, 43);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTableName() {
+        new JdbcOffsetStore(mock(DataSource.class), "bot", "offsets; DROP TABLE users");
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.telegram.bot.engine.processors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.sgr.telegram.bot.api.models.CallbackQuery;
+import io.sgr.telegram.bot.api.models.Message;
+import io.sgr.telegram.bot.api.models.Poll;
+import io.sgr.telegram.bot.api.models.Update;
+import io.sgr.telegram.bot.engine.UpdateType;
+import io.sgr.telegram.bot.engine.handlers.BotCommandHandler;
+import io.sgr.telegram.bot.engine.handlers.CommandRouter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author SgrAlpha
+ */
+public class UpdateRouterTest {
+
+    @Test
+    public void testRouteMessages() {
+        final List<String> routed = new ArrayList<>();
+        final UpdateRouter router = new UpdateRouter()
+                .setCommandRouter(new CommandRouter("enl_jarvis_bot").register(new BotCommandHandler() {
+                    @Override public String getCommandName() {
+                        return "hello";
+                    }
+
+                    @Override public void handle(final String argument, final Message oriMsg) {
+                        routed.add("command:" + argument);
+                    }
+                }))
+                .addMessageHandler(message -> routed.add("message:" + message.getText()))
+                .addMessageHandler(UpdateType.EDITED_MESSAGE, message -> routed.add("edited:" + message.getText()));
+
+        assertTrue(router.handleUpdate(new Update(1, newMessage("/hello Jarvis"), null, null, null, null, null, null, null, null)));
+        assertTrue(router.handleUpdate(new Update(2, newMessage("Hi"), null, null, null, null, null, null, null, null)));
+        assertTrue(router.handleUpdate(new Update(3, null, newMessage("/hello"), null, null, null, null, null, null, null)));
+        assertEquals(Arrays.asList("command:Jarvis", "message:Hi", "edited:/hello"), routed);
+    }
+
+    @Test
+    public void testRouteCallbackQueriesByLongestPrefix() {
+        final List<String> routed = new ArrayList<>();
+        final UpdateRouter router = new UpdateRouter()
+                .addCallbackHandler(query -> routed.add("default:" + query.getData()))
+                .addCallbackHandler("vote:", query -> routed.add("vote:" + query.getData()))
+                .addCallbackHandler("vote:up", query -> routed.add("up:" + query.getData()))
+                .addCallbackHandler("page:", query -> routed.add("page:" + query.getData()));
+
+        for (final String data : Arrays.asList("vote:up:1", "vote:down:1", "page:2", "pag", null)) {
+            assertTrue(router.handleUpdate(new Update(1, null, null, null, null, null, null, newCallbackQuery(data), null, null)));
+        }
+        assertEquals(Arrays.asList("up:vote:up:1", "vote:vote:down:1", "page:page:2", "default:pag", "default:null"), routed);
+    }
+
+    @Test
+    public void testRouteToProcessorsAndFallback() {
+        final List<String> routed = new ArrayList<>();
+        final UpdateRouter router = new UpdateRouter()
+                .addCallbackHandler("vote:", query -> routed.add("vote"))
+                .addUpdateProcessor(UpdateType.POLL, update -> routed.add("poll"))
+                .addUpdateProcessor(UpdateType.POLL, update -> false)
+                .setFallback(update -> routed.add("fallback:" + UpdateType.of(update)));
+
+        assertFalse(router.handleUpdate(new Update(1, null, null, null, null, null, null, null, mock(Poll.class), null)));
+        assertTrue(router.handleUpdate(new Update(2, null, null, null, null, null, null, newCallbackQuery("page:1"), null, null)));
+        assertTrue(router.handleUpdate(new Update(3, null, null, newMessage("Hi"), null, null, null, null, null, null)));
+        assertTrue(router.handleUpdate(new Update(4, null, null, null, null, null, null, null, null, null)));
+        assertEquals(Arrays.asList("poll", "fallback:CALLBACK_QUERY", "fallback:CHANNEL_POST", "fallback:UNKNOWN"), routed);
+        // Updates nobody takes are considered handled when there is no fallback.
+        assertTrue(new UpdateRouter().handleUpdate(new Update(5, newMessage("Hi"), null, null, null, null, null, null, null, null)));
+    }
+
+    @Test
+    public void testFailedHandler() {
+        final UpdateRouter router = new UpdateRouter().addMessageHandler(message -> {
+            throw new IllegalStateException("Oops");
+        });
+        assertFalse(router.handleUpdate(new Update(1, newMessage("Hi"), null, null, null, null, null, null, null, null)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddMessageHandlerForTypeWithoutMessage() {
+        new UpdateRouter().addMessageHandler(UpdateType.CALLBACK_QUERY, message -> {
+        });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddDuplicatedCallbackPrefix() {
+        new UpdateRouter().addCallbackHandler("vote:", query -> {
+        }).addCallbackHandler("vote:", query -> {
+        });
+    }
+
+    @Test
+    public void testClassifyUpdate() {
+        assertEquals(UpdateType.MESSAGE, UpdateType.of(new Update(1, newMessage("Hi"), null, null, null, null, null, null, null, null)));
+        assertEquals(UpdateType.EDITED_CHANNEL_POST, UpdateType.of(new Update(1, null, null, null, newMessage("Hi"), null, null, null, null, null)));
+        assertEquals(UpdateType.UNKNOWN, UpdateType.of(new Update(1, null, null, null, null, null, null, null, null, null)));
+        assertEquals("edited_channel_post", UpdateType.EDITED_CHANNEL_POST.getFieldName());
+        assertEquals(UpdateType.POLL, UpdateType.of(new Update(1, null, null, null, null, null, null, null, mock(Poll.class), null)));
+    }
+
+    private static Message newMessage(final String text) {
+        final Message message = mock(Message.class);
+        when(message.getText()).thenReturn(text);
+        when(message.getEntities()).thenReturn(null);
+        return message;
+    }
+
+    private static CallbackQuery newCallbackQuery(final String data) {
+        final CallbackQuery query = mock(CallbackQuery.class);
+        when(query.getData()).thenReturn(data);
+        return query;
+    }
+
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package io.sgr.telegram.bot.engine.reactive;
+
+import static io.sgr.telegram.bot.engine.TestUpdates.newUpdate;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.sgr.telegram.bot.api.BotApi;
+import io.sgr.telegram.bot.api.models.Update;
+import io.sgr.telegram.bot.api.models.http.GetUpdatesPayload;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author SgrAlpha
+ */
+public class UpdatePublisherTest {
+
+    private final LinkedBlockingQueue<GetUpdatesPayload> payloads = new LinkedBlockingQueue<>();
+    private final LinkedBlockingQueue<CompletableFuture<List<Update>>> calls = new LinkedBlockingQueue<>();
+
+    @Test
+    public void testFetchOnDemand() throws Exception {
+        final UpdatePublisher publisher = new UpdatePublisher(mockBotApi()).setGetUpdatesTimeoutInSec(5);
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        assertNull(payloads.poll());
+
+        subscriber.subscription.request(2);
+        GetUpdatesPayload payload = payloads.poll(10, TimeUnit.SECONDS);
+        assertNull(payload.getOffset());
+        assertEquals(Integer.valueOf(2), payload.getLimit());
+        assertEquals(Integer.valueOf(5), payload.getTimeout());
+        calls.poll(10, TimeUnit.SECONDS).complete(Arrays.asList(newUpdate(1), newUpdate(2)));
+        assertEquals(Arrays.asList(1L, 2L), subscriber.received);
+        // No demand, no more request.
+        assertNull(payloads.poll(100, TimeUnit.MILLISECONDS));
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        payload = payloads.poll(10, TimeUnit.SECONDS);
+        assertEquals(Long.valueOf(3), payload.getOffset());
+        assertEquals(Integer.valueOf(100), payload.getLimit());
+        calls.poll(10, TimeUnit.SECONDS).complete(Collections.emptyList());
+        // Long polling goes on while there is demand.
+        assertEquals(Long.valueOf(3), payloads.poll(10, TimeUnit.SECONDS).getOffset());
+        assertEquals(Long.valueOf(3), publisher.getOffset());
+    }
+
+    @Test
+    public void testDeliverNoMoreThanRequested() throws Exception {
+        final UpdatePublisher publisher = new UpdatePublisher(mockBotApi());
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(3);
+        payloads.poll(10, TimeUnit.SECONDS);
+        calls.poll(10, TimeUnit.SECONDS).complete(Collections.singletonList(newUpdate(1)));
+        // The remaining demand goes to the next request.
+        assertEquals(Integer.valueOf(2), payloads.poll(10, TimeUnit.SECONDS).getLimit());
+        calls.poll(10, TimeUnit.SECONDS).complete(Arrays.asList(newUpdate(2), newUpdate(3)));
+        assertEquals(Arrays.asList(1L, 2L, 3L), subscriber.received);
+        assertNull(payloads.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testRequestFromOnNext() throws Exception {
+        final UpdatePublisher publisher = new UpdatePublisher(mockBotApi());
+        final RecordingSubscriber subscriber = new RecordingSubscriber() {
+            @Override public void onNext(final Update update) {
+                super.onNext(update);
+                subscription.request(1);
+            }
+        };
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(1);
+        payloads.poll(10, TimeUnit.SECONDS);
+        final List<Update> batch = new ArrayList<>();
+        for (long id = 1; id <= 10000; id++) {
+            batch.add(newUpdate(id));
+        }
+        calls.poll(10, TimeUnit.SECONDS).complete(Collections.singletonList(newUpdate(0)));
+        assertEquals(Integer.valueOf(1), payloads.poll(10, TimeUnit.SECONDS).getLimit());
+        // Bigger than the stack would allow if requesting recursed.
+        calls.poll(10, TimeUnit.SECONDS).complete(batch);
+        assertEquals(10001, subscriber.received.size());
+    }
+
+    @Test
+    public void testCancelAndResubscribe() throws Exception {
+        final UpdatePublisher publisher = new UpdatePublisher(mockBotApi());
+        final RecordingSubscriber first = new RecordingSubscriber() {
+            @Override public void onNext(final Update update) {
+                super.onNext(update);
+                subscription.cancel();
+            }
+        };
+        publisher.subscribe(first);
+        first.subscription.request(2);
+        payloads.poll(10, TimeUnit.SECONDS);
+        calls.poll(10, TimeUnit.SECONDS).complete(Arrays.asList(newUpdate(1), newUpdate(2)));
+        assertEquals(Collections.singletonList(1L), first.received);
+
+        final RecordingSubscriber second = new RecordingSubscriber();
+        publisher.subscribe(second);
+        second.subscription.request(1);
+        // Update 2 has not been delivered, so it should be fetched again.
+        assertEquals(Long.valueOf(2), payloads.poll(10, TimeUnit.SECONDS).getOffset());
+        assertNull(second.error);
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        final UpdatePublisher publisher = new UpdatePublisher(mockBotApi());
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        final RecordingSubscriber another = new RecordingSubscriber();
+        publisher.subscribe(another);
+        assertTrue(another.error instanceof IllegalStateException);
+
+        subscriber.subscription.request(1);
+        payloads.poll(10, TimeUnit.SECONDS);
+        final IllegalStateException failure = new IllegalStateException("Oops");
+        calls.poll(10, TimeUnit.SECONDS).completeExceptionally(failure);
+        assertEquals(failure, subscriber.error);
+
+        final RecordingSubscriber invalid = new RecordingSubscriber();
+        publisher.subscribe(invalid);
+        invalid.subscription.request(0);
+        assertTrue(invalid.error instanceof IllegalArgumentException);
+        assertNull(payloads.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testAdaptToReactiveStreams() throws Exception {
+        final UpdatePublisher publisher = new UpdatePublisher(mockBotApi());
+        final List<Long> received = new ArrayList<>();
+        final Publisher<Update> adapted = ReactivePublishers.toPublisher(publisher, Publisher.class);
+        adapted.subscribe(new Subscriber<Update>() {
+            @Override public void onSubscribe(final Subscription subscription) {
+                subscription.request(2);
+            }
+
+            @Override public void onNext(final Update update) {
+                received.add(update.getId());
+            }
+
+            @Override public void onError(final Throwable error) {
+            }
+
+            @Override public void onComplete() {
+            }
+        });
+        assertEquals(Integer.valueOf(2), payloads.poll(10, TimeUnit.SECONDS).getLimit());
+        calls.poll(10, TimeUnit.SECONDS).complete(Arrays.asList(newUpdate(1), newUpdate(2)));
+        assertEquals(Arrays.asList(1L, 2L), received);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAdaptToUnknownType() {
+        ReactivePublishers.toPublisher(new UpdatePublisher(mockBotApi()), Runnable.class);
+    }
+
+    private BotApi mockBotApi() {
+        final BotApi botApi = mock(BotApi.class);
+        when(botApi.getUpdates(any(GetUpdatesPayload.class))).thenAnswer(invocation -> {
+            final CompletableFuture<List<Update>> call = new CompletableFuture<>();
+            payloads.add(invocation.getArgument(0));
+            calls.add(call);
+            return call;
+        });
+        return botApi;
+    }
+
+    /**
+     * Same shape as the interfaces of Reactive Streams, which are not on the class path.
+     */
+    public interface Publisher<T> {
+
+        void subscribe(Subscriber<? super T> subscriber);
+
+    }
+
+    public interface Subscriber<T> {
+
+        void onSubscribe(Subscription subscription);
+
+        void onNext(T item);
+
+        void onError(Throwable error);
+
+        void onComplete();
+
+    }
+
+    public interface Subscription {
+
+        void request(long n);
+
+        void cancel();
+
+    }
+
+    private static class RecordingSubscriber implements UpdateSubscriber {
+
+        final List<Long> received = new ArrayList<>();
+        UpdateSubscription subscription;
+        Throwable error;
+
+        @Override public void onSubscribe(final UpdateSubscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override public void onNext(final Update update) {
+            received.add(update.getId());
+        }
+
+        @Override public void onError(final Throwable error) {
+            this.error = error;
+        }
+
+        @Override public void onComplete() {
+        }
+
+    }
+}
@@ -18,14 +18,21 @@
 package io.sgr.telegram.bot.engine.utils;
 
 import static io.sgr.telegram.bot.engine.utils.CommandUtil.parseCommandFromText;
+import static io.sgr.telegram.bot.engine.utils.CommandUtil.parseCommandsFromEntities;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import io.sgr.telegram.bot.api.models.MessageEntity;
 import io.sgr.telegram.bot.engine.Command;
 
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 public class CommandUtilTest {
 
     @Test
@@ -94,4 +101,30 @@ public class CommandUtilTest {
 
     }
 
+    @Test
+    public void testParseCommandsFromEntities() {
+        assertTrue(parseCommandsFromEntities(null, null).isEmpty());
+        assertTrue(parseCommandsFromEntities("/hello", null).isEmpty());
+        assertTrue(parseCommandsFromEntities("/hello", Collections.singletonList(new MessageEntity("bold", 0, 6, null, null, null))).isEmpty());
+        // Entity out of the text, or not starting with "/".
+        assertTrue(parseCommandsFromEntities("/hello", Collections.singletonList(new MessageEntity("bot_command", 1, 6, null, null, null))).isEmpty());
+        assertTrue(parseCommandsFromEntities("hello", Collections.singletonList(new MessageEntity("bot_command", 0, 5, null, null, null))).isEmpty());
+
+        final String text = "Try /hello@enl_jarvis_bot Jarvis, then\n/Bye";
+        final List<Command> commands = parseCommandsFromEntities(text, Arrays.asList(
+                new MessageEntity("bot_command", 4, 21, null, null, null),
+                new MessageEntity("bot_command", text.indexOf("/Bye"), 4, null, null, null)));
+        assertEquals(2, commands.size());
+        assertEquals("hello", commands.get(0).type);
+        assertEquals("enl_jarvis_bot", commands.get(0).toBot);
+        assertEquals("Jarvis, then", commands.get(0).argument);
+        assertEquals("bye", commands.get(1).type);
+        assertNull(commands.get(1).toBot);
+        assertNull(commands.get(1).argument);
+
+        final Command command = parseCommandsFromEntities("/hello ", Collections.singletonList(new MessageEntity("bot_command", 0, 6, null, null, null))).get(0);
+        assertEquals("hello", command.type);
+        assertEquals("", command.argument);
+    }
+
 }
@@ -27,6 +27,8 @@ import io.sgr.telegram.bot.engine.BotEngine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * @author SgrAlpha
  */
@@ -37,30 +39,31 @@ public class HelloTelegramBot {
     public static void main(String... args) {
         final String botApiToken = System.getenv("BOT_API_TOKEN");
         final BotApi botApi = BotApi.newBuilder(botApiToken).setLogger(LOGGER).build();
-        final BotEngine engine = new BotEngine(botApi).setBotUpdateProcessor((Update update) -> {
+        final BotEngine engine = new BotEngine(botApi).setAsyncBotUpdateProcessor((Update update) -> {
             if (update.getMessage() == null) {
                 // Not what we want, ignored, but still send a success signal so it can deal with the next update.
-                return true;
+                return CompletableFuture.completedFuture(true);
             }
             final SendMessagePayload payload = new SendMessagePayload(update.getMessage().getChat().getId(), "Hello Telegram!");
-            botApi.sendMessage(payload) // Send response message asynchronously without blocking next incoming update.
-                    .exceptionally(e -> {
+            return botApi.sendMessage(payload) // Send response message asynchronously without blocking next incoming update.
+                    .handle((message, e) -> {
+                        if (e == null) {
+                            // Do anything you want with sent message here, or ignore it directly.
+                            return true;
+                        }
                         // Something wrong when sending message, you might want to at least log it.
                         final Throwable cause = e.getCause();
                         if (cause instanceof ApiCallException) {
-                            final String message = ((ApiCallException) cause).getErrorResponse()
+                            final String description = ((ApiCallException) cause).getErrorResponse()
                                     .flatMap(ApiErrorResponse::getDescription)
                                     .orElse(cause.getMessage());
-                            LOGGER.error(message, e);
+                            LOGGER.error(description, e);
                         } else {
                             LOGGER.error(e.getMessage(), e);
                         }
-                        return null;    // Return null because no message been sent.
-                    })
-                    .thenAccept(message -> {
-                        // Nullable. Do anything you want with sent message here, or ignore it directly.
+                        // Return false instead if you want the engine to stop and retry this update next time.
+                        return true;
                     });
-            return true;
         });
         engine.start();
     }
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.webhook;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Strings.isNullOrEmpty;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.sgr.telegram.bot.api.models.Update;
+import io.sgr.telegram.bot.api.utils.JsonUtil;
+import io.sgr.telegram.bot.engine.BotUpdateProcessor;
+import io.sgr.telegram.bot.engine.UpdateDeduplicator;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receives updates pushed by Telegram with an embedded HTTP server of the JDK, which starts in milliseconds and needs
+ * no other dependency.
+ *
+ * <p>Only POST requests to the secret path are accepted, and if a secret token is set, it has to match the {@value
+ * #SECRET_TOKEN_HEADER} header as well. Updates are parsed straight from the request body and put into a bounded
+ * queue, then Telegram is acknowledged right away, before the update is handled. When the queue is full, Telegram gets
+ * HTTP 503 and will send the update again later. Updates in the queue are handled by {@link
+ * #setProcessorThreads(int)} threads, updates are handled in order only with one thread, which is the default.
+ *
+ * @author SgrAlpha
+ */
+public class WebhookServer {
+
+    public static final String SECRET_TOKEN_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 1000;
+    private static final int DEFAULT_PROCESSOR_THREADS = 1;
+    private static final int DEFAULT_IO_THREADS = 2;
+    private static final int DEFAULT_MAX_BODY_SIZE = 1024 * 1024;
+    private static final long POLL_TIMEOUT_IN_MILLIS = 100;
+
+    private static final int HTTP_OK = 200;
+    private static final int HTTP_BAD_REQUEST = 400;
+    private static final int HTTP_FORBIDDEN = 403;
+    private static final int HTTP_NOT_FOUND = 404;
+    private static final int HTTP_METHOD_NOT_ALLOWED = 405;
+    private static final int HTTP_PAYLOAD_TOO_LARGE = 413;
+    private static final int HTTP_SERVICE_UNAVAILABLE = 503;
+
+    private static final ObjectReader UPDATE_READER = JsonUtil.getReader(Update.class);
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WebhookServer.class);
+
+    private final BotUpdateProcessor processor;
+
+    private InetSocketAddress address = new InetSocketAddress(8443);
+    private String path = "/";
+    private byte[] secretToken;
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private int processorThreads = DEFAULT_PROCESSOR_THREADS;
+    private int ioThreads = DEFAULT_IO_THREADS;
+    private int maxBodySize = DEFAULT_MAX_BODY_SIZE;
+    private UpdateDeduplicator deduplicator;
+
+    private HttpServer server;
+    private ExecutorService ioExecutor;
+    private ExecutorService processorExecutor;
+    private BlockingQueue<Update> queue;
+    private volatile boolean stopped = true;
+
+    /**
+     * @param processor The processor to handle received updates with.
+     */
+    public WebhookServer(final BotUpdateProcessor processor) {
+        this.processor = checkNotNull(processor, "Bot update processor should be specified");
+    }
+
+    /**
+     * Start listening, returns once the server is ready to receive updates.
+     */
+    public synchronized void start() {
+        checkState(this.stopped, "Webhook server has already been started.");
+        final HttpServer server;
+        try {
+            server = HttpServer.create(this.address, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.queue = new ArrayBlockingQueue<>(this.queueCapacity);
+        this.ioExecutor = Executors.newFixedThreadPool(this.ioThreads,
+                new ThreadFactoryBuilder().setNameFormat("telegram-bot-webhook-io-%d").setDaemon(true).build());
+        this.processorExecutor = Executors.newFixedThreadPool(this.processorThreads,
+                new ThreadFactoryBuilder().setNameFormat("telegram-bot-webhook-processor-%d").build());
+        final String path = this.path;
+        final byte[] secretToken = this.secretToken;
+        final int maxBodySize = this.maxBodySize;
+        final UpdateDeduplicator deduplicator = this.deduplicator;
+        final BlockingQueue<Update> queue = this.queue;
+        server.createContext("/", exchange -> handle(exchange, path, secretToken, maxBodySize, deduplicator, queue));
+        server.setExecutor(this.ioExecutor);
+        this.stopped = false;
+        for (int i = 0; i < this.processorThreads; i++) {
+            this.processorExecutor.execute(() -> process(queue));
+        }
+        server.start();
+        this.server = server;
+        LOGGER.info("Webhook server started, listening on {}.", server.getAddress());
+    }
+
+    /**
+     * Stop receiving updates, and wait for received ones to be handled.
+     *
+     * @param timeout The maximum time to wait for received updates to be handled.
+     * @param unit    The time unit of the timeout.
+     *
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public synchronized void stop(final long timeout, final TimeUnit unit) throws InterruptedException {
+        if (this.stopped) {
+            return;
+        }
+        this.server.stop(0);
+        this.ioExecutor.shutdown();
+        this.stopped = true;
+        this.processorExecutor.shutdown();
+        if (!this.processorExecutor.awaitTermination(timeout, unit)) {
+            LOGGER.warn("Webhook server stopped with {} updates not handled yet.", this.queue.size());
+            this.processorExecutor.shutdownNow();
+        }
+        LOGGER.info("Webhook server stopped.");
+    }
+
+    /**
+     * @return The address the server is listening on, which tells the port picked if started with port 0.
+     */
+    public synchronized InetSocketAddress getAddress() {
+        checkState(!this.stopped, "Webhook server has not been started.");
+        return this.server.getAddress();
+    }
+
+    /**
+     * @return The number of received updates waiting to be handled.
+     */
+    public int getQueuedCount() {
+        final BlockingQueue<Update> queue = this.queue;
+        return queue == null ? 0 : queue.size();
+    }
+
+    private static void handle(final HttpExchange exchange, final String path, final byte[] secretToken, final int maxBodySize,
+            final UpdateDeduplicator deduplicator, final BlockingQueue<Update> queue) throws IOException {
+        try {
+            if (!path.equals(exchange.getRequestURI().getPath())) {
+                respond(exchange, HTTP_NOT_FOUND);
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, HTTP_METHOD_NOT_ALLOWED);
+                return;
+            }
+            if (secretToken != null && !isValidToken(secretToken, exchange.getRequestHeaders().getFirst(SECRET_TOKEN_HEADER))) {
+                respond(exchange, HTTP_FORBIDDEN);
+                return;
+            }
+            final byte[] body = readBody(exchange.getRequestBody(), maxBodySize);
+            if (body == null) {
+                respond(exchange, HTTP_PAYLOAD_TOO_LARGE);
+                return;
+            }
+            final Update update;
+            try {
+                update = UPDATE_READER.readValue(body);
+            } catch (IOException e) {
+                LOGGER.warn("Unable to parse update: {}", e.getMessage());
+                respond(exchange, HTTP_BAD_REQUEST);
+                return;
+            }
+            if (deduplicator != null && !deduplicator.markSeen(update.getId())) {
+                LOGGER.debug("Dropped duplicated update {}.", update.getId());
+                respond(exchange, HTTP_OK);
+                return;
+            }
+            if (!queue.offer(update)) {
+                LOGGER.warn("Update queue is full, asking Telegram to send update {} again later.", update.getId());
+                if (deduplicator != null) {
+                    deduplicator.forget(update.getId());
+                }
+                respond(exchange, HTTP_SERVICE_UNAVAILABLE);
+                return;
+            }
+            respond(exchange, HTTP_OK);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void process(final BlockingQueue<Update> queue) {
+        while (true) {
+            final Update update;
+            try {
+                update = queue.poll(POLL_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (update == null) {
+                if (this.stopped) {
+                    return;
+                }
+                continue;
+            }
+            try {
+                if (!processor.handleUpdate(update)) {
+                    LOGGER.warn("Failed to handle update {}.", update.getId());
+                }
+            } catch (RuntimeException e) {
+                LOGGER.error(String.format("Failed to handle update %d: %s", update.getId(), e.getMessage()), e);
+            }
+        }
+    }
+
+    private static boolean isValidToken(final byte[] expected, final String actual) {
+        return actual != null && MessageDigest.isEqual(expected, actual.getBytes(UTF_8));
+    }
+
+    /**
+     * @return The body, or NULL if it is larger than the given max size.
+     */
+    private static byte[] readBody(final InputStream in, final int maxBodySize) throws IOException {
+        byte[] buffer = new byte[Math.min(maxBodySize, 8192)];
+        int length = 0;
+        while (true) {
+            if (length == buffer.length) {
+                if (length == maxBodySize) {
+                    return in.read() < 0 ? buffer : null;
+                }
+                buffer = Arrays.copyOf(buffer, Math.min(maxBodySize, length * 2));
+            }
+            final int read = in.read(buffer, length, buffer.length - length);
+            if (read < 0) {
+                return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+            }
+            length += read;
+        }
+    }
+
+    private static void respond(final HttpExchange exchange, final int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    /**
+     * @param address The address to listen on, default to port 8443 of all interfaces.
+     *
+     * @return The webhook server.
+     */
+    public WebhookServer setAddress(final InetSocketAddress address) {
+        this.address = checkNotNull(address, "Address should be specified.");
+        return this;
+    }
+
+    /**
+     * @param path The path to receive updates on, which should be hard to guess, e.g. contain the bot token.
+     *
+     * @return The webhook server.
+     */
+    public WebhookServer setPath(final String path) {
+        checkArgument(!isNullOrEmpty(path) && path.startsWith("/"), "Path should start with '/', but got " + path);
+        this.path = path;
+        return this;
+    }
+
+    /**
+     * @param secretToken Optional. The secret token set with the webhook, which Telegram sends in the {@value
+     *                    #SECRET_TOKEN_HEADER} header of every request. Set to NULL to skip checking the header.
+     *
+     * @return The webhook server.
+     */
+    public WebhookServer setSecretToken(final String secretToken) {
+        this.secretToken = isNullOrEmpty(secretToken) ? null : secretToken.getBytes(UTF_8);
+        return this;
+    }
+
+    /**
+     * @param deduplicator Optional. Drops updates delivered again by Telegram, which happens when acknowledgements are
+     *                     slow. Set to NULL to hand over all received updates.
+     *
+     * @return The webhook server.
+     */
+    public WebhookServer setDeduplicator(final UpdateDeduplicator deduplicator) {
+        this.deduplicator = deduplicator;
+        return this;
+    }
+
+    /**
+     * @param queueCapacity The maximum number of received updates waiting to be handled.
+     *
+     * @return The webhook server.
+     */
+    public WebhookServer setQueueCapacity(final int queueCapacity) {
+        checkArgument(queueCapacity > 0, "Queue capacity should be greater than 0, but got " + queueCapacity);
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    /**
+     * @param processorThreads The number of threads to handle updates with, updates are handled in order only with one
+     *                         thread.
+     *
+     * @return The webhook server.
+     */
+    public WebhookServer setProcessorThreads(final int processorThreads) {
+        checkArgument(processorThreads > 0, "Processor threads should be greater than 0, but got " + processorThreads);
+        this.processorThreads = processorThreads;
+        return this;
+    }
+
+    /**
+     * @param ioThreads The number of threads to receive requests with.
+     *
+     * @return The webhook server.
+     */
+    public WebhookServer setIoThreads(final int ioThreads) {
+        checkArgument(ioThreads > 0, "IO threads should be greater than 0, but got " + ioThreads);
+        this.ioThreads = ioThreads;
+        return this;
+    }
+
+    /**
+     * @param maxBodySize The maximum size of request bodies in bytes, larger ones are refused.
+     *
+     * @return The webhook server.
+     */
+    public WebhookServer setMaxBodySize(final int maxBodySize) {
+        checkArgument(maxBodySize > 0, "Max body size should be greater than 0, but got " + maxBodySize);
+        this.maxBodySize = maxBodySize;
+        return this;
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017-2020 SgrAlpha
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.sgr.telegram.bot.webhook;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.sgr.telegram.bot.api.models.Update;
+import io.sgr.telegram.bot.engine.BotUpdateProcessor;
+import io.sgr.telegram.bot.engine.UpdateDeduplicator;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author SgrAlpha
+ */
+public class WebhookServerTest {
+
+    private static final String PATH = "/webhook/secret";
+    private static final String TOKEN = "s3cr3t";
+
+    private WebhookServer server;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if (server != null) {
+            server.stop(1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testReceiveUpdate() throws IOException, InterruptedException {
+        final BlockingQueue<Update> received = new LinkedBlockingQueue<>();
+        server = newServer(received::add).setQueueCapacity(10);
+        server.start();
+
+        assertEquals(200, post(PATH, TOKEN, "{\"update_id\":1,\"message\":{\"message_id\":2,\"date\":0,\"chat\":{\"id\":3,\"type\":\"private\"},\"text\":\"hi\"}}"));
+        final Update update = received.poll(10, TimeUnit.SECONDS);
+        assertEquals(1, update.getId());
+        assertEquals("hi", update.getMessage().getText());
+    }
+
+    @Test
+    public void testRejectInvalidRequests() throws IOException {
+        server = newServer(update -> true).setMaxBodySize(64);
+        server.start();
+
+        assertEquals(404, post("/webhook/other", TOKEN, "{\"update_id\":1}"));
+        assertEquals(403, post(PATH, null, "{\"update_id\":1}"));
+        assertEquals(403, post(PATH, "wrong", "{\"update_id\":1}"));
+        assertEquals(400, post(PATH, TOKEN, "not json"));
+        assertEquals(413, post(PATH, TOKEN, "{\"update_id\":1,\"padding\":\"" + new String(new char[64]).replace('\0', 'x') + "\"}"));
+        final HttpURLConnection conn = (HttpURLConnection) toUrl(PATH).openConnection();
+        assertEquals(405, conn.getResponseCode());
+    }
+
+    @Test
+    public void testQueueFull() throws IOException, InterruptedException {
+        final CountDownLatch handling = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        server = newServer(update -> {
+            handling.countDown();
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }).setQueueCapacity(1);
+        server.start();
+
+        assertEquals(200, post(PATH, TOKEN, "{\"update_id\":1}"));
+        assertTrue(handling.await(10, TimeUnit.SECONDS));
+        assertEquals(200, post(PATH, TOKEN, "{\"update_id\":2}"));
+        assertEquals(503, post(PATH, TOKEN, "{\"update_id\":3}"));
+        assertEquals(1, server.getQueuedCount());
+        release.countDown();
+    }
+
+    @Test
+    public void testDropDuplicatedUpdates() throws IOException, InterruptedException {
+        final BlockingQueue<Update> received = new LinkedBlockingQueue<>();
+        server = newServer(received::add).setDeduplicator(new UpdateDeduplicator(64));
+        server.start();
+
+        assertEquals(200, post(PATH, TOKEN, "{\"update_id\":1}"));
+        assertEquals(200, post(PATH, TOKEN, "{\"update_id\":2}"));
+        assertEquals(200, post(PATH, TOKEN, "{\"update_id\":1}"));
+        assertEquals(1, received.poll(10, TimeUnit.SECONDS).getId());
+        assertEquals(2, received.poll(10, TimeUnit.SECONDS).getId());
+        assertNull(received.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    private static WebhookServer newServer(final BotUpdateProcessor processor) {
+        return new WebhookServer(processor)
+                .setAddress(new InetSocketAddress("127.0.0.1", 0))
+                .setPath(PATH)
+                .setSecretToken(TOKEN);
+    }
+
+    private int post(final String path, final String token, final String body) throws IOException {
+        final HttpURLConnection conn = (HttpURLConnection) toUrl(path).openConnection();
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        conn.setRequestProperty("Content-Type", "application/json");
+        if (token != null) {
+            conn.setRequestProperty(WebhookServer.SECRET_TOKEN_HEADER, token);
+        }
+        try (OutputStream out = conn.getOutputStream()) {
+            out.write(body.getBytes(UTF_8));
+        }
+        return conn.getResponseCode();
+    }
+
+    private URL toUrl(final String path) throws IOException {
+        return new URL("http", "127.0.0.1", server.getAddress().getPort(), path);
+    }
+
+}